@@ -24,6 +24,10 @@ CREATE TABLE IF NOT EXISTS users (
   UNIQUE KEY uniq_users_email (email)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 全文索引须在关闭 InnoDB 默认停用词的会话中创建：ngram 分词下含停用词（如 a、i、in、is）的词元会被整体丢弃，
+-- 导致 MATCH 漏掉 LIKE 能命中的拾言；索引注释 stopwords=off 供后端启动迁移与检索识别
+SET SESSION innodb_ft_enable_stopword = 0;
+
 -- 表：shiyan（拾言/便签主表）
 CREATE TABLE IF NOT EXISTS shiyan (
   id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -35,10 +39,19 @@ CREATE TABLE IF NOT EXISTS shiyan (
   is_public TINYINT(1) DEFAULT 0,
   created_at DATETIME NOT NULL,
   updated_at DATETIME NOT NULL,
+  -- 反范式计数：点赞/收藏数量（由应用原子维护并定期与明细表对账）
+  like_count BIGINT NOT NULL DEFAULT 0,
+  favorite_count BIGINT NOT NULL DEFAULT 0,
   INDEX idx_shiyan_user (user_id),
+  -- 复合索引：支撑列表游标分页（ORDER BY updated_at DESC, id DESC）
+  INDEX idx_shiyan_public_updated (is_public, updated_at, id),
+  INDEX idx_shiyan_user_updated (user_id, updated_at, id),
+  -- 全文索引：关键词检索（ngram 解析器，支持中文），替代 LIKE '%q%' 全表扫描
+  FULLTEXT INDEX ft_shiyan_content_tags (content, tags) WITH PARSER ngram COMMENT 'stopwords=off',
   -- 外键：删除用户时级联删除其拾言
   CONSTRAINT fk_shiyan_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+SET SESSION innodb_ft_enable_stopword = 1;
 
 -- 表：note_likes（拾言点赞记录，一用户对一拾言仅一条）
 CREATE TABLE IF NOT EXISTS note_likes (
@@ -49,6 +62,10 @@ CREATE TABLE IF NOT EXISTS note_likes (
   UNIQUE KEY uniq_note_user (note_id, user_id),
   INDEX idx_likes_note (note_id),
   INDEX idx_likes_user (user_id),
+  -- 热度分计算按互动时间窗口范围扫描
+  INDEX idx_likes_created (created_at),
+  -- “我点赞的”按点赞时间倒序游标分页
+  INDEX idx_likes_user_created (user_id, created_at, id),
   -- 外键：删除拾言或用户时级联删除对应点赞
   CONSTRAINT fk_likes_note FOREIGN KEY (note_id) REFERENCES shiyan(id) ON DELETE CASCADE,
   CONSTRAINT fk_likes_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
@@ -63,11 +80,36 @@ CREATE TABLE IF NOT EXISTS note_favorites (
   UNIQUE KEY uniq_note_user_fav (note_id, user_id),
   INDEX idx_fav_note (note_id),
   INDEX idx_fav_user (user_id),
+  INDEX idx_fav_created (created_at),
+  -- “我收藏的”按收藏时间倒序游标分页
+  INDEX idx_fav_user_created (user_id, created_at, id),
   -- 外键：删除拾言或用户时级联删除对应收藏
   CONSTRAINT fk_favorites_note FOREIGN KEY (note_id) REFERENCES shiyan(id) ON DELETE CASCADE,
   CONSTRAINT fk_favorites_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 表：note_scores（热门拾言热度分，由后台任务定期重算，GET /api/notes/hot 读取）
+CREATE TABLE IF NOT EXISTS note_scores (
+  note_id BIGINT PRIMARY KEY,
+  score DOUBLE NOT NULL,
+  computed_at DATETIME NOT NULL,
+  INDEX idx_note_scores_score (score)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 表：note_tags（拾言标签索引，shiyan.tags 的规范化拆分，一行一个标签）
+CREATE TABLE IF NOT EXISTS note_tags (
+  note_id BIGINT NOT NULL,
+  tag VARCHAR(64) NOT NULL,
+  PRIMARY KEY (note_id, tag),
+  -- 按标签精确筛选与标签云 GROUP BY 聚合
+  INDEX idx_note_tags_tag (tag, note_id),
+  -- 外键：删除拾言时级联删除其标签行
+  CONSTRAINT fk_note_tags_note FOREIGN KEY (note_id) REFERENCES shiyan(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 日志表（audit_logs / request_logs / auth_logs / error_logs）按天分区为可选项：
+-- 开启 logdb.partitioning-enabled 后由 DbMigrationRunner 启动时转换（主键改为 (id, created_at)，
+-- PARTITION BY RANGE (TO_DAYS(created_at))），保留清理改为 DROP PARTITION。
 -- 表：audit_logs（审计日志，记录后台操作事件）
 CREATE TABLE IF NOT EXISTS audit_logs (
   id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -99,6 +141,20 @@ CREATE TABLE IF NOT EXISTS request_logs (
   INDEX idx_request_logs_reqid (request_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 表：request_stats（请求耗时分钟汇总，每实例每分钟每路由模板每状态码一行耗时直方图，由 RequestStatsAggregator 写入）
+CREATE TABLE IF NOT EXISTS request_stats (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  bucket_start DATETIME NOT NULL,
+  route VARCHAR(192) NOT NULL,
+  status INT NOT NULL,
+  cnt BIGINT NOT NULL,
+  sum_ms BIGINT NOT NULL,
+  max_ms BIGINT NOT NULL,
+  hist TEXT NOT NULL,
+  INDEX idx_request_stats_bucket (bucket_start),
+  INDEX idx_request_stats_route (route, bucket_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- 表：auth_logs（认证日志，记录登录或令牌校验）
 CREATE TABLE IF NOT EXISTS auth_logs (
   id BIGINT AUTO_INCREMENT PRIMARY KEY,
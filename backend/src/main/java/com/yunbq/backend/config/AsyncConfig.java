@@ -6,10 +6,14 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * 异步执行器配置。
  * 作用：为日志写入等后台任务提供独立线程池，避免阻塞请求线程。
+ * 定时任务：@Scheduled 任务共用 spring.task.scheduling 线程池（见 application.yml）；
+ * 会长时间占用线程的维护任务（如日志保留清理的分批删除与休眠）另交给 maintenanceTaskExecutor，
+ * 不拖慢导航快照检查、点击/互动刷盘等秒级任务。
  * 说明：线程池参数可按需调整，当前配置兼顾开发与中小规模生产场景。
  */
 @Configuration
@@ -37,4 +41,22 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * 维护任务专用线程池（单线程）。
+     * - 与 @Scheduled 组合使用：调度线程只负责提交，耗时的清理在此线程执行；
+     * - 不排队：上一轮尚未结束时新一轮直接丢弃（DiscardPolicy），避免慢清理在队列中堆积。
+     */
+    @Bean("maintenanceTaskExecutor")
+    public Executor maintenanceTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("maint-exec-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
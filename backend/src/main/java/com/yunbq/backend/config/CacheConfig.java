@@ -30,14 +30,14 @@ public class CacheConfig {
             Caffeine.newBuilder()
                 .maximumSize(5000)
                 .expireAfterWrite(60, TimeUnit.SECONDS)
+                // 记录命中/未命中统计：Spring Boot 为启动时已声明的缓存自动注册 cache.gets 等指标
+                .recordStats()
         );
         // 可选：预先声明常用缓存名称（非必需），更清晰地看到已使用的缓存
+        // 导航分类/站点不走 CacheManager，由 NavigationSnapshot 内存快照提供
         manager.setCacheNames(java.util.List.of(
-            // 站点：按分类查询
-            "sites_by_category",
-            // 分类：导航栏与完整启用分类树
-            "categories_root",
-            "categories_enabled"
+            // 拾言：标签云（分面统计）
+            "note_tag_facets"
         ));
         return manager;
     }
@@ -68,9 +68,8 @@ public class CacheConfigRedis {
 
         // 针对常用命名空间配置差异化 TTL
         Map<String, RedisCacheConfiguration> configs = new HashMap<>();
-        configs.put("sites_by_category", defaultConfig.entryTtl(Duration.ofSeconds(60)));  // 分类列表：60s
-        configs.put("sites_featured",    defaultConfig.entryTtl(Duration.ofSeconds(30)));  // 推荐站点：30s，更实时
-        configs.put("sites_popular",     defaultConfig.entryTtl(Duration.ofSeconds(30)));  // 热门站点：30s，更实时
+        // 导航分类/站点由 NavigationSnapshot 进程内快照提供，不使用 Redis 缓存
+        configs.put("note_tag_facets",   defaultConfig.entryTtl(Duration.ofSeconds(60)));  // 拾言标签云：60s
 
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
@@ -1,14 +1,28 @@
 package com.yunbq.backend.config;
 
+import com.yunbq.backend.service.LogPartitionManager;
+import com.yunbq.backend.service.NoteSearchSupport;
+import com.yunbq.backend.util.HashtagParser;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 public class DbMigrationRunner implements CommandLineRunner {
     private final JdbcTemplate jdbc;
+    private final LogPartitionManager logPartitions;
+    private final NoteSearchSupport searchSupport;
 
-    public DbMigrationRunner(JdbcTemplate jdbc) { this.jdbc = jdbc; }
+    public DbMigrationRunner(JdbcTemplate jdbc, LogPartitionManager logPartitions, NoteSearchSupport searchSupport) {
+        this.jdbc = jdbc;
+        this.logPartitions = logPartitions;
+        this.searchSupport = searchSupport;
+    }
 
     @Override
     public void run(String... args) {
@@ -91,6 +105,46 @@ public class DbMigrationRunner implements CommandLineRunner {
             // 不阻塞启动
         }
 
+        // 新增：列表游标分页复合索引（若不存在）
+        // 说明：GET /api/notes 游标模式按 (updated_at, id) 倒序定位，公开流与“我的”流分别命中以下索引。
+        ensureIndex(currentSchema, tblNotes, "idx_shiyan_public_updated", "(is_public, updated_at, id)");
+        ensureIndex(currentSchema, tblNotes, "idx_shiyan_user_updated", "(user_id, updated_at, id)");
+
+        // 新增：关键词检索全文索引（ngram 解析器支持中文），替代 content/tags 的 LIKE '%q%' 全表扫描
+        // 说明：MySQL 5.7.6+ 内置 ngram；不支持或无权限时跳过，NoteSearchSupport 会自动回退 LIKE。
+        // 停用词：ngram 分词下含 InnoDB 默认停用词（a、i、in、is 等）的词元会被丢弃，MATCH 会漏掉 LIKE 能命中的便签；
+        // 索引须在关闭 innodb_ft_enable_stopword 的会话中创建，并以注释 stopwords=off 标记；未标记的旧索引删除重建（一次性）。
+        try {
+            List<String> ftComments = jdbc.queryForList(
+                "SELECT index_comment FROM information_schema.statistics WHERE table_schema = ? AND table_name = ? AND index_name = ?",
+                String.class,
+                currentSchema, tblNotes, NoteSearchSupport.FULLTEXT_INDEX
+            );
+            boolean exists = !ftComments.isEmpty();
+            if (!exists || !NoteSearchSupport.FULLTEXT_MARKER.equals(ftComments.get(0))) {
+                String drop = exists ? "DROP INDEX " + NoteSearchSupport.FULLTEXT_INDEX + ", " : "";
+                String ddl = "ALTER TABLE " + tblNotes + " " + drop
+                        + "ADD FULLTEXT INDEX " + NoteSearchSupport.FULLTEXT_INDEX + " (content, tags) WITH PARSER ngram COMMENT '"
+                        + NoteSearchSupport.FULLTEXT_MARKER + "'";
+                // 会话变量只对当前连接生效：SET 与 ALTER 必须在同一连接上执行
+                jdbc.execute((ConnectionCallback<Void>) con -> {
+                    try (Statement st = con.createStatement()) {
+                        st.execute("SET SESSION innodb_ft_enable_stopword = 0");
+                        try {
+                            st.execute(ddl);
+                        } finally {
+                            st.execute("SET SESSION innodb_ft_enable_stopword = 1");
+                        }
+                    }
+                    return null;
+                });
+            }
+        } catch (Exception ignored) {
+            // 不阻塞启动
+        }
+        // 检索探测与建索引使用同一张表（shiyan，极端回退时为 notes），并在索引就绪后重新探测
+        searchSupport.useTable(tblNotes);
+
         // 新增：创建 note_favorites 表（若不存在）
         // 外键：引用到当前实际“便签”表（tblNotes：shiyan 或 notes）
         try {
@@ -121,6 +175,92 @@ public class DbMigrationRunner implements CommandLineRunner {
             // 不阻塞启动
         }
 
+        // 新增：反范式计数列 like_count / favorite_count（若不存在）
+        // 首次添加时按明细表一次性回填，之后由应用原子维护、NoteCounterReconciler 定期对账。
+        try {
+            Integer likeCountCol = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = ? AND table_name = '" + tblNotes + "' AND column_name = 'like_count'",
+                Integer.class,
+                currentSchema
+            );
+            if (likeCountCol == null || likeCountCol == 0) {
+                jdbc.execute("ALTER TABLE " + tblNotes + " ADD COLUMN like_count BIGINT NOT NULL DEFAULT 0");
+                jdbc.execute("UPDATE " + tblNotes + " n JOIN (SELECT note_id, COUNT(*) AS c FROM note_likes GROUP BY note_id) l ON l.note_id = n.id SET n.like_count = l.c");
+            }
+        } catch (Exception ignored) {
+            // 不阻塞启动
+        }
+        try {
+            Integer favCountCol = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = ? AND table_name = '" + tblNotes + "' AND column_name = 'favorite_count'",
+                Integer.class,
+                currentSchema
+            );
+            if (favCountCol == null || favCountCol == 0) {
+                jdbc.execute("ALTER TABLE " + tblNotes + " ADD COLUMN favorite_count BIGINT NOT NULL DEFAULT 0");
+                jdbc.execute("UPDATE " + tblNotes + " n JOIN (SELECT note_id, COUNT(*) AS c FROM note_favorites GROUP BY note_id) f ON f.note_id = n.id SET n.favorite_count = f.c");
+            }
+        } catch (Exception ignored) {
+            // 不阻塞启动
+        }
+
+        // 新增：标签索引表 note_tags（若不存在）；表为空而便签存在标签时按 shiyan.tags 回填
+        // 说明：spring.sql.init 先于本 Runner 执行 schema.sql（CREATE TABLE IF NOT EXISTS note_tags），已有库启动时表总是已存在，
+        //      因此回填条件与建表解耦，按“note_tags 为空且存在带标签的便签”判断，回填完成后表非空即不再触发；
+        //      回填在应用侧拆分逗号串（复用 HashtagParser.splitTags，与 NoteService 规则一致：去空、去 # 前缀、去重、超长忽略），
+        //      按 ID 分批读取，避免一次性加载全表。
+        try {
+            Integer tagTableExists = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = ? AND table_name = 'note_tags'",
+                Integer.class,
+                currentSchema
+            );
+            if (tagTableExists == null || tagTableExists == 0) {
+                jdbc.execute("CREATE TABLE note_tags (\n" +
+                        "  note_id BIGINT NOT NULL,\n" +
+                        "  tag VARCHAR(64) NOT NULL,\n" +
+                        "  PRIMARY KEY (note_id, tag),\n" +
+                        "  INDEX idx_note_tags_tag (tag, note_id)\n" +
+                        ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+                try {
+                    jdbc.execute("ALTER TABLE note_tags ADD CONSTRAINT fk_note_tags_note FOREIGN KEY (note_id) REFERENCES " + tblNotes + "(id) ON DELETE CASCADE");
+                } catch (Exception ignoredFk) {}
+            }
+            Integer tagRows = jdbc.queryForObject("SELECT EXISTS(SELECT 1 FROM note_tags)", Integer.class);
+            Integer taggedNotes = jdbc.queryForObject(
+                "SELECT EXISTS(SELECT 1 FROM " + tblNotes + " WHERE tags IS NOT NULL AND tags <> '')", Integer.class);
+            if ((tagRows == null || tagRows == 0) && taggedNotes != null && taggedNotes > 0) {
+                backfillNoteTags(tblNotes);
+            }
+        } catch (Exception ignored) {
+            // 不阻塞启动
+        }
+
+        // 新增：热门便签热度分表 note_scores（若不存在），由 NoteHotScoreJob 定期整体刷新
+        try {
+            Integer scoreTableExists = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = ? AND table_name = 'note_scores'",
+                Integer.class,
+                currentSchema
+            );
+            if (scoreTableExists == null || scoreTableExists == 0) {
+                jdbc.execute("CREATE TABLE note_scores (\n" +
+                        "  note_id BIGINT PRIMARY KEY,\n" +
+                        "  score DOUBLE NOT NULL,\n" +
+                        "  computed_at DATETIME NOT NULL,\n" +
+                        "  INDEX idx_note_scores_score (score)\n" +
+                        ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            }
+        } catch (Exception ignored) {
+            // 不阻塞启动
+        }
+        // 热度分计算按互动时间窗口范围扫描明细表
+        ensureIndex(currentSchema, "note_likes", "idx_likes_created", "(created_at)");
+        ensureIndex(currentSchema, "note_favorites", "idx_fav_created", "(created_at)");
+        // “我点赞的/我收藏的”按互动时间倒序做游标分页：(user_id, created_at, id) 覆盖过滤、排序与定位
+        ensureIndex(currentSchema, "note_likes", "idx_likes_user_created", "(user_id, created_at, id)");
+        ensureIndex(currentSchema, "note_favorites", "idx_fav_user_created", "(user_id, created_at, id)");
+
         // 修复历史环境下 note_likes 的外键指向旧表名 notes 导致插入失败的问题
         // 背景：部分库早期创建了 note_likes，并将 fk_likes_note 指向 notes(id)，
         //      当主表已迁移/统一为 shiyan 时，插入会因外键不匹配而报错。
@@ -191,5 +331,78 @@ public class DbMigrationRunner implements CommandLineRunner {
         } catch (Exception ignored) {
             // 不阻塞启动
         }
+
+        // 新增：请求耗时分钟汇总表 request_stats（若不存在），由 RequestStatsAggregator 按分钟写入
+        try {
+            Integer statsTableExists = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = ? AND table_name = 'request_stats'",
+                Integer.class,
+                currentSchema
+            );
+            if (statsTableExists == null || statsTableExists == 0) {
+                jdbc.execute("CREATE TABLE request_stats (\n" +
+                        "  id BIGINT PRIMARY KEY AUTO_INCREMENT,\n" +
+                        "  bucket_start DATETIME NOT NULL,\n" +
+                        "  route VARCHAR(192) NOT NULL,\n" +
+                        "  status INT NOT NULL,\n" +
+                        "  cnt BIGINT NOT NULL,\n" +
+                        "  sum_ms BIGINT NOT NULL,\n" +
+                        "  max_ms BIGINT NOT NULL,\n" +
+                        "  hist TEXT NOT NULL,\n" +
+                        "  INDEX idx_request_stats_bucket (bucket_start),\n" +
+                        "  INDEX idx_request_stats_route (route, bucket_start)\n" +
+                        ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            }
+        } catch (Exception ignored) {
+            // 不阻塞启动
+        }
+
+        // 日志表按天分区（logdb.partitioning-enabled）：转换表结构并预建未来分区，保留清理改为 DROP PARTITION
+        logPartitions.prepareAll();
+    }
+
+    /**
+     * 按 shiyan.tags 回填 note_tags：每批 500 条便签，批量 INSERT IGNORE。
+     */
+    private void backfillNoteTags(String tblNotes) {
+        long lastId = 0;
+        while (true) {
+            List<Object[]> rows = jdbc.query(
+                "SELECT id, tags FROM " + tblNotes + " WHERE id > ? AND tags IS NOT NULL AND tags <> '' ORDER BY id LIMIT 500",
+                (rs, rowNum) -> new Object[]{ rs.getLong(1), rs.getString(2) },
+                lastId
+            );
+            if (rows.isEmpty()) break;
+            List<Object[]> batch = new ArrayList<>();
+            for (Object[] r : rows) {
+                Long noteId = (Long) r[0];
+                for (String t : HashtagParser.splitTags((String) r[1], 64)) {
+                    batch.add(new Object[]{ noteId, t });
+                }
+                lastId = noteId;
+            }
+            if (!batch.isEmpty()) {
+                jdbc.batchUpdate("INSERT IGNORE INTO note_tags (note_id, tag) VALUES (?, ?)", batch);
+            }
+        }
+    }
+
+    /**
+     * 若指定索引不存在则创建（幂等）。
+     * 说明：通过 information_schema.statistics 判断索引是否存在；失败时忽略，不阻塞启动。
+     */
+    private void ensureIndex(String schema, String table, String indexName, String columns) {
+        try {
+            Integer cnt = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = ? AND table_name = ? AND index_name = ?",
+                Integer.class,
+                schema, table, indexName
+            );
+            if (cnt == null || cnt == 0) {
+                jdbc.execute("ALTER TABLE " + table + " ADD INDEX " + indexName + " " + columns);
+            }
+        } catch (Exception ignored) {
+            // 不阻塞启动：权限不足或表不存在时忽略
+        }
     }
-}
\ No newline at end of file
+}
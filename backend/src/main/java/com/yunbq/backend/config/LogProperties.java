@@ -8,7 +8,10 @@ import org.springframework.stereotype.Component;
  * 作用：
  * - 提供日志写入的开关与采样，便于在不同环境下灵活调整日志量；
  * - 提供各类日志的保留天数，用于定期清理历史数据；
- * - 提供保留清理的执行频率（毫秒）。
+ * - 提供保留清理的执行频率（毫秒）；
+ * - 提供请求日志异步攒批写入的缓冲容量、批大小、刷写间隔与溢出策略；
+ * - 按日志类型选择落地实现（db / file）及本地分段文件的目录与查询范围；
+ * - 提供日志表按天分区与分批删除的参数。
  *
  * 前缀：logdb
  */
@@ -19,6 +22,14 @@ public class LogProperties {
     private boolean requestEnabled = true;
     /** 请求日志采样百分比（0-100，100 表示全量） */
     private int requestSamplingPercent = 100;
+    /** 请求日志内存缓冲容量（条，向上取整为 2 的幂） */
+    private int requestBufferCapacity = 8192;
+    /** 请求日志单批写入条数（多行 INSERT） */
+    private int requestBatchSize = 200;
+    /** 请求日志最长刷写间隔（毫秒）：不足一批时按该间隔落库 */
+    private long requestFlushIntervalMs = 1000L;
+    /** 缓冲区满时的溢出策略：drop-newest（丢弃新记录）或 drop-oldest（挤掉最旧记录） */
+    private String requestOverflowPolicy = "drop-newest";
 
     /** 是否写入认证日志 */
     private boolean authEnabled = true;
@@ -38,15 +49,60 @@ public class LogProperties {
     /** 审计日志保留天数 */
     private int retentionAuditDays = 90;
 
+    /** 审计日志落地：db（数据库表）或 file（本地分段文件） */
+    private String auditSink = "db";
+    /** 请求日志落地：db 或 file */
+    private String requestSink = "db";
+    /** 认证日志落地：db 或 file */
+    private String authSink = "db";
+    /** 错误日志落地：db 或 file */
+    private String errorSink = "db";
+    /** 本地分段文件根目录（每类日志一个子目录，每小时一个分段） */
+    private String fileDir = "logs/segments";
+    /** 管理端查询文件日志时最多扫描的最近分段数（默认 24，即最近一天） */
+    private int fileQueryMaxSegments = 24;
+
     /** 保留清理的执行间隔（毫秒），默认一小时 */
     private long retentionSweepIntervalMs = 60 * 60 * 1000L;
 
+    /** 是否将日志表转换为按天 RANGE 分区（保留清理改为 DROP PARTITION）；默认关闭 */
+    private boolean partitioningEnabled = false;
+    /** 预建未来分区的天数 */
+    private int partitionAheadDays = 3;
+    /** 分批删除每批行数（未分区表或分区内不足一天的过期行） */
+    private int deleteChunkSize = 5000;
+    /** 分批删除批次之间的休眠（毫秒），给在线写入让出锁与 IO */
+    private long deleteChunkSleepMs = 100L;
+
+    /** 是否按路由模板/状态码/分钟聚合请求耗时（不受采样与 request-enabled 影响） */
+    private boolean requestStatsEnabled = true;
+    /** 分钟汇总写入 request_stats 的检查间隔（毫秒） */
+    private long requestStatsFlushIntervalMs = 30000L;
+    /** 单个进程内未落库的（分钟, 路由, 状态码）组合上限，超出的请求只计入丢弃数 */
+    private int requestStatsMaxKeys = 20000;
+    /** GET /api/admin/request-stats 单次查询的最大窗口（天），防止超长窗口拖垮数据库与内存 */
+    private int requestStatsMaxQueryDays = 31;
+    /** request_stats 保留天数 */
+    private int retentionRequestStatsDays = 90;
+
     public boolean isRequestEnabled() { return requestEnabled; }
     public void setRequestEnabled(boolean requestEnabled) { this.requestEnabled = requestEnabled; }
 
     public int getRequestSamplingPercent() { return requestSamplingPercent; }
     public void setRequestSamplingPercent(int requestSamplingPercent) { this.requestSamplingPercent = requestSamplingPercent; }
 
+    public int getRequestBufferCapacity() { return requestBufferCapacity; }
+    public void setRequestBufferCapacity(int requestBufferCapacity) { this.requestBufferCapacity = requestBufferCapacity; }
+
+    public int getRequestBatchSize() { return requestBatchSize; }
+    public void setRequestBatchSize(int requestBatchSize) { this.requestBatchSize = requestBatchSize; }
+
+    public long getRequestFlushIntervalMs() { return requestFlushIntervalMs; }
+    public void setRequestFlushIntervalMs(long requestFlushIntervalMs) { this.requestFlushIntervalMs = requestFlushIntervalMs; }
+
+    public String getRequestOverflowPolicy() { return requestOverflowPolicy; }
+    public void setRequestOverflowPolicy(String requestOverflowPolicy) { this.requestOverflowPolicy = requestOverflowPolicy; }
+
     public boolean isAuthEnabled() { return authEnabled; }
     public void setAuthEnabled(boolean authEnabled) { this.authEnabled = authEnabled; }
 
@@ -68,6 +124,51 @@ public class LogProperties {
     public int getRetentionAuditDays() { return retentionAuditDays; }
     public void setRetentionAuditDays(int retentionAuditDays) { this.retentionAuditDays = retentionAuditDays; }
 
+    public String getAuditSink() { return auditSink; }
+    public void setAuditSink(String auditSink) { this.auditSink = auditSink; }
+
+    public String getRequestSink() { return requestSink; }
+    public void setRequestSink(String requestSink) { this.requestSink = requestSink; }
+
+    public String getAuthSink() { return authSink; }
+    public void setAuthSink(String authSink) { this.authSink = authSink; }
+
+    public String getErrorSink() { return errorSink; }
+    public void setErrorSink(String errorSink) { this.errorSink = errorSink; }
+
+    public String getFileDir() { return fileDir; }
+    public void setFileDir(String fileDir) { this.fileDir = fileDir; }
+
+    public int getFileQueryMaxSegments() { return fileQueryMaxSegments; }
+    public void setFileQueryMaxSegments(int fileQueryMaxSegments) { this.fileQueryMaxSegments = fileQueryMaxSegments; }
+
     public long getRetentionSweepIntervalMs() { return retentionSweepIntervalMs; }
     public void setRetentionSweepIntervalMs(long retentionSweepIntervalMs) { this.retentionSweepIntervalMs = retentionSweepIntervalMs; }
-}
\ No newline at end of file
+
+    public boolean isPartitioningEnabled() { return partitioningEnabled; }
+    public void setPartitioningEnabled(boolean partitioningEnabled) { this.partitioningEnabled = partitioningEnabled; }
+
+    public int getPartitionAheadDays() { return partitionAheadDays; }
+    public void setPartitionAheadDays(int partitionAheadDays) { this.partitionAheadDays = partitionAheadDays; }
+
+    public int getDeleteChunkSize() { return deleteChunkSize; }
+    public void setDeleteChunkSize(int deleteChunkSize) { this.deleteChunkSize = deleteChunkSize; }
+
+    public long getDeleteChunkSleepMs() { return deleteChunkSleepMs; }
+    public void setDeleteChunkSleepMs(long deleteChunkSleepMs) { this.deleteChunkSleepMs = deleteChunkSleepMs; }
+
+    public boolean isRequestStatsEnabled() { return requestStatsEnabled; }
+    public void setRequestStatsEnabled(boolean requestStatsEnabled) { this.requestStatsEnabled = requestStatsEnabled; }
+
+    public long getRequestStatsFlushIntervalMs() { return requestStatsFlushIntervalMs; }
+    public void setRequestStatsFlushIntervalMs(long requestStatsFlushIntervalMs) { this.requestStatsFlushIntervalMs = requestStatsFlushIntervalMs; }
+
+    public int getRequestStatsMaxKeys() { return requestStatsMaxKeys; }
+    public void setRequestStatsMaxKeys(int requestStatsMaxKeys) { this.requestStatsMaxKeys = requestStatsMaxKeys; }
+
+    public int getRequestStatsMaxQueryDays() { return requestStatsMaxQueryDays; }
+    public void setRequestStatsMaxQueryDays(int requestStatsMaxQueryDays) { this.requestStatsMaxQueryDays = requestStatsMaxQueryDays; }
+
+    public int getRetentionRequestStatsDays() { return retentionRequestStatsDays; }
+    public void setRetentionRequestStatsDays(int retentionRequestStatsDays) { this.retentionRequestStatsDays = retentionRequestStatsDays; }
+}
@@ -0,0 +1,84 @@
+package com.yunbq.backend.config;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 指标配置（Micrometer）
+ * 职责：
+ * - 为标注了 {@link Timed} 的 Bean 方法计时（服务层热点：便签列表、点赞/收藏切换、站点点击、验证码渲染等）；
+ * - 注册 {@link MybatisMetricsInterceptor}，为每条 Mapper 语句计时；
+ * - 指标经 /actuator/metrics 与 /actuator/prometheus 暴露（见 application.yml 的 management 配置）。
+ *
+ * 设计要点：
+ * - 项目未引入 AspectJ，Micrometer 自带的 TimedAspect 不可用；这里以基础设施角色注册 Advisor，
+ *   与 @Transactional 相同，由 Spring 默认的自动代理机制织入，无需额外依赖；
+ * - 标签与 TimedAspect 保持一致且基数有界：class、method、exception（异常简单类名，正常返回为 none），外加注解上的 extraTags；
+ * - 正常返回路径的 Timer 按方法缓存，避免每次调用都构建 Meter ID；
+ * - Advisor 顺序为 0，位于事务拦截器外层，@Transactional 方法的耗时包含提交；
+ * - 与代理的其他限制相同：类内自调用不会被计时。
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor timedMethodAdvisor(ObjectProvider<MeterRegistry> registry) {
+        Map<Method, Timer> okTimers = new ConcurrentHashMap<>();
+        MethodInterceptor interceptor = invocation -> {
+            MeterRegistry reg = registry.getIfAvailable();
+            if (reg == null) return invocation.proceed();
+            Method method = invocation.getMethod();
+            Timer.Sample sample = Timer.start(reg);
+            try {
+                Object result = invocation.proceed();
+                sample.stop(okTimers.computeIfAbsent(method, m -> timer(reg, invocation.getThis(), m, "none")));
+                return result;
+            } catch (Throwable t) {
+                sample.stop(timer(reg, invocation.getThis(), method, t.getClass().getSimpleName()));
+                throw t;
+            }
+        };
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(null, Timed.class, true), interceptor);
+        advisor.setOrder(0);
+        return advisor;
+    }
+
+    @Bean
+    public MybatisMetricsInterceptor mybatisMetricsInterceptor(ObjectProvider<MeterRegistry> registry) {
+        return new MybatisMetricsInterceptor(registry);
+    }
+
+    private static Timer timer(MeterRegistry reg, Object target, Method method, String exception) {
+        Class<?> cls = target != null ? AopUtils.getTargetClass(target) : method.getDeclaringClass();
+        Method specific = AopUtils.getMostSpecificMethod(method, cls);
+        Timed timed = AnnotatedElementUtils.findMergedAnnotation(specific, Timed.class);
+        String name = timed != null && !timed.value().isEmpty() ? timed.value() : "method.timed";
+        Timer.Builder b = Timer.builder(name)
+                .tag("class", cls.getSimpleName())
+                .tag("method", method.getName())
+                .tag("exception", exception);
+        if (timed != null) {
+            if (!timed.description().isEmpty()) b.description(timed.description());
+            if (timed.extraTags().length > 0) b.tags(timed.extraTags());
+            if (timed.histogram()) b.publishPercentileHistogram();
+        }
+        return b.register(reg);
+    }
+}
@@ -0,0 +1,79 @@
+package com.yunbq.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapper 语句计时插件（MyBatis Interceptor）
+ * 职责：
+ * - 为每次 Executor 查询/更新记录 Timer {@code yunbq.db.statement}，标签：
+ *   mapper（Mapper 接口简单类名）、method（语句名，含分页插件生成的 _mpCount）、type（SELECT/INSERT/UPDATE/DELETE）、outcome（success/error）；
+ * - 标签只取自已注册的 MappedStatement，基数与 Mapper 方法数同阶，不含 SQL 参数。
+ *
+ * 说明：
+ * - 游标查询（queryCursor）只计打开游标的耗时，逐行读取的时间计入调用方；
+ * - 由 MyBatis-Plus 自动配置收集 Interceptor Bean 注册，与分页插件共存，每条语句只计一次。
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+    @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class}),
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class MybatisMetricsInterceptor implements Interceptor {
+
+    private final ObjectProvider<MeterRegistry> registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public MybatisMetricsInterceptor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MeterRegistry reg = registry.getIfAvailable();
+        if (reg == null) return invocation.proceed();
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Object result = invocation.proceed();
+            ok = true;
+            return result;
+        } finally {
+            timer(reg, ms, ok).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(MeterRegistry reg, MappedStatement ms, boolean ok) {
+        String outcome = ok ? "success" : "error";
+        return timers.computeIfAbsent(ms.getId() + '#' + outcome, k -> {
+            String id = ms.getId();
+            int dot = id.lastIndexOf('.');
+            String owner = dot > 0 ? id.substring(0, dot) : id;
+            String mapper = owner.substring(owner.lastIndexOf('.') + 1);
+            return Timer.builder("yunbq.db.statement")
+                    .description("MyBatis mapped statement execution time")
+                    .tag("mapper", mapper)
+                    .tag("method", dot > 0 ? id.substring(dot + 1) : id)
+                    .tag("type", ms.getSqlCommandType().name())
+                    .tag("outcome", outcome)
+                    .register(reg);
+        });
+    }
+}
@@ -6,6 +6,7 @@ import com.yunbq.backend.mapper.UserMapper;
 import com.yunbq.backend.model.User;
 import com.yunbq.backend.util.AuthUtil;
 import com.yunbq.backend.service.PasswordResetService;
+import com.yunbq.backend.service.UserProfileCache;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -47,8 +48,10 @@ import java.util.regex.Pattern;
 public class AccountController {
     private final UserMapper userMapper;
     private final PasswordResetService resetService;
+    // 用户公开资料缓存：昵称/头像/签名变更后失效，列表与消息立即展示新资料
+    private final UserProfileCache profileCache;
     private static final Logger log = LoggerFactory.getLogger(AccountController.class);
-    public AccountController(UserMapper userMapper, PasswordResetService resetService){ this.userMapper = userMapper; this.resetService = resetService; }
+    public AccountController(UserMapper userMapper, PasswordResetService resetService, UserProfileCache profileCache){ this.userMapper = userMapper; this.resetService = resetService; this.profileCache = profileCache; }
 
     /**
      * 按用户名查询公开的用户信息（匿名可访问）。
@@ -145,6 +148,7 @@ public class AccountController {
             String url = "/uploads/avatars/" + filename; // 静态资源映射
             // 更新数据库
             userMapper.update(null, new UpdateWrapper<User>().eq("id", uid).set("avatar_url", url));
+            profileCache.invalidate(uid);
             User u = userMapper.selectById(uid);
             return ResponseEntity.ok(Map.of(
                     "id", u.getId(),
@@ -284,6 +288,7 @@ public class AccountController {
         if (u == null) return ResponseEntity.status(404).body(Map.of("message","用户不存在"));
         u.setNickname(nickname.isEmpty() ? null : nickname);
         userMapper.updateById(u);
+        profileCache.invalidate(uid);
         return ResponseEntity.ok(Map.of(
                 "id", u.getId(),
                 "username", u.getUsername(),
@@ -315,6 +320,7 @@ public class AccountController {
         if (u == null) return ResponseEntity.status(404).body(Map.of("message","用户不存在"));
         u.setSignature(signature.isEmpty() ? null : signature);
         userMapper.updateById(u);
+        profileCache.invalidate(uid);
         return ResponseEntity.ok(Map.of(
                 "id", u.getId(),
                 "username", u.getUsername(),
@@ -14,7 +14,9 @@ import com.yunbq.backend.model.User;
 import com.yunbq.backend.model.RequestLog;
 import com.yunbq.backend.model.AuthLog;
 import com.yunbq.backend.model.ErrorLog;
+import com.yunbq.backend.util.CsvWriter;
 import com.yunbq.backend.util.AuthUtil; // 工具类：用于获取当前认证用户ID（从 SecurityContext）
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -31,7 +33,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -72,6 +76,8 @@ public class AdminController {
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
     private final com.yunbq.backend.service.LogService logService;
     private final PasswordEncoder passwordEncoder; // 密码编码器：用于对明文密码进行哈希处理
+    private final com.yunbq.backend.service.UserProfileCache profileCache; // 用户公开资料缓存：更新/删除用户后失效
+    private final com.yunbq.backend.service.RequestStatsAggregator requestStats; // 请求耗时分钟汇总：按窗口查询分位数
 
     public AdminController(UserMapper userMapper,
                            AuditLogMapper auditLogMapper,
@@ -80,7 +86,9 @@ public class AdminController {
                            ErrorLogMapper errorLogMapper,
                            com.fasterxml.jackson.databind.ObjectMapper objectMapper,
                            com.yunbq.backend.service.LogService logService,
-                           PasswordEncoder passwordEncoder) {
+                           PasswordEncoder passwordEncoder,
+                           com.yunbq.backend.service.UserProfileCache profileCache,
+                           com.yunbq.backend.service.RequestStatsAggregator requestStats) {
         this.userMapper = userMapper;
         this.auditLogMapper = auditLogMapper;
         this.requestLogMapper = requestLogMapper;
@@ -89,6 +97,8 @@ public class AdminController {
         this.objectMapper = objectMapper;
         this.logService = logService;
         this.passwordEncoder = passwordEncoder;
+        this.profileCache = profileCache;
+        this.requestStats = requestStats;
     }
 
     /**
@@ -290,6 +300,7 @@ public class AdminController {
         }
 
         userMapper.updateById(u);
+        profileCache.invalidateAfterCommit(id);
 
         boolean hasPassword = u.getPasswordHash() != null && !u.getPasswordHash().isBlank();
         UserSummary resp = new UserSummary(
@@ -327,6 +338,7 @@ public class AdminController {
             return ResponseEntity.status(404).body(Map.of("message", "用户不存在"));
         }
         userMapper.deleteById(id);
+        profileCache.invalidateAfterCommit(id);
         return ResponseEntity.ok(Map.of("ok", true));
     }
 
@@ -366,6 +378,9 @@ public class AdminController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String level
     ) {
+        if (logService.isFileSink(com.yunbq.backend.service.LogSink.Type.AUDIT)) {
+            return ResponseEntity.ok(logService.pageAuditLogsFromSegments(page, size, level));
+        }
         QueryWrapper<AuditLog> qw = new QueryWrapper<>();
         if (level != null && !level.isBlank()) {
             qw.eq("level", level);
@@ -383,35 +398,26 @@ public class AdminController {
      * - 可按 {@code level} 过滤（INFO/WARN/ERROR）；排序为 {@code created_at} 倒序（与分页接口一致）。
      *
      * 边界与约束：
-     * - 大量数据导出可能占用内存与带宽，建议结合筛选缩小范围或采用分页批量导出；
-     * - CSV 导出添加 UTF-8 BOM 以兼容 Excel；JSON 导出直接序列化为字节。
+     * - 流式导出：数据库游标逐行读取并直接写入响应流，内存占用与行数无关；建议用 {@code from}/{@code to} 限定时间范围；
+     * - CSV 添加 UTF-8 BOM；JSON 输出实体数组。
      *
      * 参数：
-     * - {@code format}：csv 或 json（默认 csv）。
+     * - {@code format}：csv 或 json（默认 csv）；
+     * - {@code from}/{@code to}：ISO 时间，created_at 范围 [from, to)，可选；
+     * - {@code gzip}：true 时 gzip 压缩输出（文件名追加 .gz）。
      */
     @GetMapping("/logs/export")
     @PreAuthorize("hasRole('ADMIN')")
-    public org.springframework.http.ResponseEntity<byte[]> exportAuditLogs(
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(
             @RequestParam(defaultValue = "csv") String format,
-            @RequestParam(required = false) String level
-    ) throws Exception {
-        java.util.List<AuditLog> items = logService.listAuditLogs(level);
-        String filename = "audit-logs." + ("json".equalsIgnoreCase(format) ? "json" : "csv");
-        org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-        headers.add("Content-Disposition", "attachment; filename=" + filename);
-        if ("json".equalsIgnoreCase(format)) {
-            byte[] json = objectMapper.writeValueAsBytes(items);
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM); // 使用通用类型便于前端 blob 下载
-            return org.springframework.http.ResponseEntity.ok().headers(headers).body(json);
-        } else {
-            String csv = logService.exportAuditLogsToCsv(items);
-            byte[] bom = new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF};
-            byte[] bytes = (new java.io.ByteArrayOutputStream(){
-                { try { this.write(bom); this.write(csv.getBytes(java.nio.charset.StandardCharsets.UTF_8)); } catch (java.io.IOException ignored) {} }
-            }).toByteArray();
-            headers.setContentType(MediaType.valueOf("text/csv; charset=UTF-8"));
-            return org.springframework.http.ResponseEntity.ok().headers(headers).body(bytes);
-        }
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        boolean json = "json".equalsIgnoreCase(format);
+        return streamExport("audit-logs", json, gzip,
+                out -> logService.exportAuditLogs(level, from, to, json, out));
     }
 
     /**
@@ -424,7 +430,8 @@ public class AdminController {
      *
      * 边界与约束：
      * - {@code size} 建议不超过 200；
-     * - 模糊匹配可能导致索引失效，必要时可引入前缀匹配或专用检索方案。
+     * - 模糊匹配可能导致索引失效，必要时可引入前缀匹配或专用检索方案；
+     * - {@code logdb.request-sink=file} 时读取最近的本地分段（{@code logdb.file-query-max-segments}），记录无 id。
      *
      * @param page 页码，默认 1
      * @param size 每页条数，默认 10（建议 ≤ 200）
@@ -444,6 +451,10 @@ public class AdminController {
     ) {
         // 说明：请求日志分页查询
         // 支持按 URI、状态码与 requestId 精确/模糊过滤；按创建时间倒序。
+        // 请求日志写入本地分段文件时，读取最近的分段
+        if (logService.isFileSink(com.yunbq.backend.service.LogSink.Type.REQUEST)) {
+            return ResponseEntity.ok(logService.pageRequestLogsFromSegments(page, size, uri, status, requestId));
+        }
         QueryWrapper<RequestLog> qw = new QueryWrapper<>();
         if (uri != null && !uri.isBlank()) { qw.like("uri", uri); }
         if (status != null) { qw.eq("status", status); }
@@ -462,37 +473,68 @@ public class AdminController {
      * - 排序为 {@code created_at} 倒序（与分页接口一致）。
      *
      * 边界与约束：
-     * - 大量数据导出可能占用内存与带宽，建议结合筛选缩小范围或采用分页批量导出；
-     * - CSV 添加 UTF-8 BOM；JSON 直接序列化。
+     * - 流式导出：数据库游标逐行读取并直接写入响应流，内存占用与行数无关；建议用 {@code from}/{@code to} 限定时间范围；
+     * - CSV 添加 UTF-8 BOM；JSON 输出实体数组。
      *
      * 参数：
-     * - {@code format}：csv 或 json（默认 csv）。
+     * - {@code format}：csv 或 json（默认 csv）；
+     * - {@code from}/{@code to}：ISO 时间，created_at 范围 [from, to)，可选；
+     * - {@code gzip}：true 时 gzip 压缩输出（文件名追加 .gz）。
      */
     @GetMapping("/request-logs/export")
     @PreAuthorize("hasRole('ADMIN')")
-    public org.springframework.http.ResponseEntity<byte[]> exportRequestLogs(
+    public ResponseEntity<StreamingResponseBody> exportRequestLogs(
             @RequestParam(defaultValue = "csv") String format,
             @RequestParam(required = false) String uri,
             @RequestParam(required = false) Integer status,
-            @RequestParam(required = false) String requestId
-    ) throws Exception {
-        java.util.List<RequestLog> items = logService.listRequestLogs(uri, status, requestId);
-        String filename = "request-logs." + ("json".equalsIgnoreCase(format) ? "json" : "csv");
-        org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-        headers.add("Content-Disposition", "attachment; filename=" + filename);
-        if ("json".equalsIgnoreCase(format)) {
-            byte[] json = objectMapper.writeValueAsBytes(items);
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            return org.springframework.http.ResponseEntity.ok().headers(headers).body(json);
-        } else {
-            String csv = logService.exportRequestLogsToCsv(items);
-            byte[] bom = new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF};
-            byte[] bytes = (new java.io.ByteArrayOutputStream(){
-                { try { this.write(bom); this.write(csv.getBytes(java.nio.charset.StandardCharsets.UTF_8)); } catch (java.io.IOException ignored) {} }
-            }).toByteArray();
-            headers.setContentType(MediaType.valueOf("text/csv; charset=UTF-8"));
-            return org.springframework.http.ResponseEntity.ok().headers(headers).body(bytes);
+            @RequestParam(required = false) String requestId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        boolean json = "json".equalsIgnoreCase(format);
+        return streamExport("request-logs", json, gzip,
+                out -> logService.exportRequestLogs(uri, status, requestId, from, to, json, out));
+    }
+
+    /**
+     * 请求耗时统计（按路由模板聚合的请求数与分位数）。
+     *
+     * 数据来源：
+     * - request_stats 分钟汇总（每分钟每路由模板每状态码一行耗时直方图）与尚未落库的内存分钟，不扫描 request_logs 明细；
+     * - 路由为 "方法 + 路由模板"（如 {@code GET /api/notes/{id}}），未匹配到处理器的请求归入 {@code UNMATCHED}。
+     *
+     * 参数：
+     * - {@code from}/{@code to}：ISO 时间，窗口 [from, to)，按分钟对齐；默认最近一小时；
+     *   窗口最长 logdb.request-stats-max-query-days 天（默认 31），超出返回 400；
+     * - {@code route}：路由模板模糊匹配，可选；
+     * - {@code status}：状态码精确匹配，可选；
+     * - {@code limit}：按请求数倒序返回的路由数（默认 50，最大 500）。
+     *
+     * 返回：
+     * - { from, to, items: [{ route, count, errors, statusCounts, avgMs, p50Ms, p90Ms, p95Ms, p99Ms, maxMs }] }；
+     *   分位数取直方图桶上界，相对误差不超过 12.5%。
+     */
+    @GetMapping("/request-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> requestStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String route,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(1);
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "from 必须早于 to"));
         }
+        int maxDays = requestStats.maxQueryDays();
+        if (start.plusDays(maxDays).isBefore(end)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "查询窗口不能超过 " + maxDays + " 天"));
+        }
+        List<Map<String, Object>> items = requestStats.query(start, end, route, status, Math.min(Math.max(limit, 1), 500));
+        return ResponseEntity.ok(Map.of("from", start, "to", end, "items", items));
     }
 
     /**
@@ -525,6 +567,9 @@ public class AdminController {
     ) {
         // 说明：认证日志分页查询
         // 支持按成功/失败、用户名与 requestId 过滤；按创建时间倒序。
+        if (logService.isFileSink(com.yunbq.backend.service.LogSink.Type.AUTH)) {
+            return ResponseEntity.ok(logService.pageAuthLogsFromSegments(page, size, success, username, requestId));
+        }
         QueryWrapper<AuthLog> qw = new QueryWrapper<>();
         if (success != null) { qw.eq("success", success ? 1 : 0); }
         if (username != null && !username.isBlank()) { qw.like("username", username); }
@@ -542,37 +587,28 @@ public class AdminController {
      * - 支持 {@code success}、{@code username}、{@code requestId}；排序为 {@code created_at} 倒序（与分页接口一致）。
      *
      * 边界与约束：
-     * - 大量数据导出可能占用内存与带宽，建议结合筛选缩小范围或采用分页批量导出；
-     * - CSV 添加 UTF-8 BOM；JSON 直接序列化。
+     * - 流式导出：数据库游标逐行读取并直接写入响应流，内存占用与行数无关；建议用 {@code from}/{@code to} 限定时间范围；
+     * - CSV 添加 UTF-8 BOM；JSON 输出实体数组。
      *
      * 参数：
-     * - {@code format}：csv 或 json（默认 csv）。
+     * - {@code format}：csv 或 json（默认 csv）；
+     * - {@code from}/{@code to}：ISO 时间，created_at 范围 [from, to)，可选；
+     * - {@code gzip}：true 时 gzip 压缩输出（文件名追加 .gz）。
      */
     @GetMapping("/auth-logs/export")
     @PreAuthorize("hasRole('ADMIN')")
-    public org.springframework.http.ResponseEntity<byte[]> exportAuthLogs(
+    public ResponseEntity<StreamingResponseBody> exportAuthLogs(
             @RequestParam(defaultValue = "csv") String format,
             @RequestParam(required = false) Boolean success,
             @RequestParam(required = false) String username,
-            @RequestParam(required = false) String requestId
-    ) throws Exception {
-        java.util.List<AuthLog> items = logService.listAuthLogs(success, username, requestId);
-        String filename = "auth-logs." + ("json".equalsIgnoreCase(format) ? "json" : "csv");
-        org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-        headers.add("Content-Disposition", "attachment; filename=" + filename);
-        if ("json".equalsIgnoreCase(format)) {
-            byte[] json = objectMapper.writeValueAsBytes(items);
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            return org.springframework.http.ResponseEntity.ok().headers(headers).body(json);
-        } else {
-            String csv = logService.exportAuthLogsToCsv(items);
-            byte[] bom = new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF};
-            byte[] bytes = (new java.io.ByteArrayOutputStream(){
-                { try { this.write(bom); this.write(csv.getBytes(java.nio.charset.StandardCharsets.UTF_8)); } catch (java.io.IOException ignored) {} }
-            }).toByteArray();
-            headers.setContentType(MediaType.valueOf("text/csv; charset=UTF-8"));
-            return org.springframework.http.ResponseEntity.ok().headers(headers).body(bytes);
-        }
+            @RequestParam(required = false) String requestId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        boolean json = "json".equalsIgnoreCase(format);
+        return streamExport("auth-logs", json, gzip,
+                out -> logService.exportAuthLogs(success, username, requestId, from, to, json, out));
     }
 
     /**
@@ -603,6 +639,9 @@ public class AdminController {
     ) {
         // 说明：错误日志分页查询
         // 支持按异常类名与 requestId 过滤；按创建时间倒序。
+        if (logService.isFileSink(com.yunbq.backend.service.LogSink.Type.ERROR)) {
+            return ResponseEntity.ok(logService.pageErrorLogsFromSegments(page, size, exception, requestId));
+        }
         QueryWrapper<ErrorLog> qw = new QueryWrapper<>();
         if (exception != null && !exception.isBlank()) { qw.like("exception", exception); }
         if (requestId != null && !requestId.isBlank()) { qw.eq("request_id", requestId); }
@@ -619,36 +658,55 @@ public class AdminController {
      * - 支持 {@code exception} 与 {@code requestId}；排序为 {@code created_at} 倒序（与分页接口一致）。
      *
      * 边界与约束：
-     * - 大量数据导出可能占用内存与带宽，建议结合筛选缩小范围或采用分页批量导出；
-     * - CSV 添加 UTF-8 BOM；JSON 直接序列化。
+     * - 流式导出：数据库游标逐行读取并直接写入响应流，内存占用与行数无关；建议用 {@code from}/{@code to} 限定时间范围；
+     * - CSV 添加 UTF-8 BOM；JSON 输出实体数组。
      *
      * 参数：
-     * - {@code format}：csv 或 json（默认 csv）。
+     * - {@code format}：csv 或 json（默认 csv）；
+     * - {@code from}/{@code to}：ISO 时间，created_at 范围 [from, to)，可选；
+     * - {@code gzip}：true 时 gzip 压缩输出（文件名追加 .gz）。
      */
     @GetMapping("/error-logs/export")
     @PreAuthorize("hasRole('ADMIN')")
-    public org.springframework.http.ResponseEntity<byte[]> exportErrorLogs(
+    public ResponseEntity<StreamingResponseBody> exportErrorLogs(
             @RequestParam(defaultValue = "csv") String format,
             @RequestParam(required = false) String exception,
-            @RequestParam(required = false) String requestId
-    ) throws Exception {
-        java.util.List<ErrorLog> items = logService.listErrorLogs(exception, requestId);
-        String filename = "error-logs." + ("json".equalsIgnoreCase(format) ? "json" : "csv");
+            @RequestParam(required = false) String requestId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        boolean json = "json".equalsIgnoreCase(format);
+        return streamExport("error-logs", json, gzip,
+                out -> logService.exportErrorLogs(exception, requestId, from, to, json, out));
+    }
+
+    /**
+     * 日志导出的流式响应。
+     * 说明：
+     * - body 在 MVC 异步线程中执行，服务层边读游标边写出，响应不设置 Content-Length（分块传输）；
+     * - gzip=true 时以 GZIPOutputStream 包装输出，文件名追加 .gz、类型为 application/gzip；
+     * - CSV 为 text/csv（UTF-8 BOM），JSON 使用通用二进制类型便于前端 blob 下载。
+     */
+    private ResponseEntity<StreamingResponseBody> streamExport(String baseName, boolean json, boolean gzip, StreamingResponseBody body) {
+        String filename = baseName + (json ? ".json" : ".csv") + (gzip ? ".gz" : "");
         org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
         headers.add("Content-Disposition", "attachment; filename=" + filename);
-        if ("json".equalsIgnoreCase(format)) {
-            byte[] json = objectMapper.writeValueAsBytes(items);
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            return org.springframework.http.ResponseEntity.ok().headers(headers).body(json);
+        if (gzip) {
+            headers.setContentType(MediaType.parseMediaType("application/gzip"));
         } else {
-            String csv = logService.exportErrorLogsToCsv(items);
-            byte[] bom = new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF};
-            byte[] bytes = (new java.io.ByteArrayOutputStream(){
-                { try { this.write(bom); this.write(csv.getBytes(java.nio.charset.StandardCharsets.UTF_8)); } catch (java.io.IOException ignored) {} }
-            }).toByteArray();
-            headers.setContentType(MediaType.valueOf("text/csv; charset=UTF-8"));
-            return org.springframework.http.ResponseEntity.ok().headers(headers).body(bytes);
+            headers.setContentType(json ? MediaType.APPLICATION_OCTET_STREAM : MediaType.valueOf("text/csv; charset=UTF-8"));
         }
+        StreamingResponseBody out = os -> {
+            if (gzip) {
+                java.util.zip.GZIPOutputStream gz = new java.util.zip.GZIPOutputStream(os, 8192);
+                body.writeTo(gz);
+                gz.finish();
+            } else {
+                body.writeTo(os);
+            }
+        };
+        return ResponseEntity.ok().headers(headers).body(out);
     }
 
     /**
@@ -710,42 +768,38 @@ public class AdminController {
             headers.setContentType(MediaType.APPLICATION_JSON);
             return org.springframework.http.ResponseEntity.ok().headers(headers).body(json);
         } else {
-            // CSV 格式导出
-            String csv = exportUsersToCsv(userSummaries);
-            // 添加 UTF-8 BOM 以确保中文正确显示
-            byte[] bom = new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF};
-            byte[] bytes = (new java.io.ByteArrayOutputStream(){
-                { try { this.write(bom); this.write(csv.getBytes(java.nio.charset.StandardCharsets.UTF_8)); } catch (java.io.IOException ignored) {} }
-            }).toByteArray();
+            // CSV 格式导出（含 UTF-8 BOM 以确保中文正确显示）
+            byte[] bytes = exportUsersToCsv(userSummaries);
             headers.setContentType(MediaType.valueOf("text/csv; charset=UTF-8"));
             return org.springframework.http.ResponseEntity.ok().headers(headers).body(bytes);
         }
     }
 
     /**
-     * 将用户列表转换为 CSV 格式字符串。
+     * 将用户列表转换为 CSV（UTF-8，带 BOM）。
      * 包含表头和数据行，密码状态显示为"已设置"或"未设置"。
      */
-    private String exportUsersToCsv(List<UserSummary> users) {
-        StringBuilder csv = new StringBuilder();
+    private byte[] exportUsersToCsv(List<UserSummary> users) throws java.io.IOException {
+        java.io.ByteArrayOutputStream buf = new java.io.ByteArrayOutputStream(8192);
+        CsvWriter csv = CsvWriter.utf8(buf).bom();
         
         // CSV 表头
-        csv.append("用户ID,用户名,昵称,邮箱,角色,注册时间,头像地址,密码状态\n");
+        csv.header("用户ID", "用户名", "昵称", "邮箱", "角色", "注册时间", "头像地址", "密码状态");
         
         // 数据行
         for (UserSummary user : users) {
-            csv.append(escapeCsvField(String.valueOf(user.getId()))).append(",");
-            csv.append(escapeCsvField(user.getUsername())).append(",");
-            csv.append(escapeCsvField(user.getNickname())).append(",");
-            csv.append(escapeCsvField(user.getEmail())).append(",");
-            csv.append(escapeCsvField(user.getRole())).append(",");
-            csv.append(escapeCsvField(user.getCreatedAt() != null ? user.getCreatedAt().toString() : "")).append(",");
-            csv.append(escapeCsvField(user.getAvatarUrl() != null ? user.getAvatarUrl() : "")).append(",");
-            csv.append(escapeCsvField(user.isHasPassword() ? "已设置" : "未设置"));
-            csv.append("\n");
+            csv.field(user.getId())
+               .field(user.getUsername())
+               .field(user.getNickname())
+               .field(user.getEmail())
+               .field(user.getRole())
+               .field(user.getCreatedAt())
+               .field(user.getAvatarUrl())
+               .field(user.isHasPassword() ? "已设置" : "未设置")
+               .endRow();
         }
-        
-        return csv.toString();
+        csv.flush();
+        return buf.toByteArray();
     }
 
     /**
@@ -807,66 +861,42 @@ public class AdminController {
             headers.setContentType(MediaType.APPLICATION_JSON);
             return org.springframework.http.ResponseEntity.ok().headers(headers).body(json);
         } else {
-            // CSV 导出：构造包含完整字段的 CSV 文本
-            String csv = exportUsersAdvancedToCsv(users);
-            byte[] bom = new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF}; // 添加 UTF-8 BOM，确保 Excel 等正确识别编码
-            byte[] bytes = (new java.io.ByteArrayOutputStream(){
-                { try { this.write(bom); this.write(csv.getBytes(java.nio.charset.StandardCharsets.UTF_8)); } catch (java.io.IOException ignored) {} }
-            }).toByteArray();
+            // CSV 导出：包含完整字段，带 UTF-8 BOM，确保 Excel 等正确识别编码
+            byte[] bytes = exportUsersAdvancedToCsv(users);
             headers.setContentType(MediaType.valueOf("text/csv; charset=UTF-8"));
             return org.springframework.http.ResponseEntity.ok().headers(headers).body(bytes);
         }
     }
 
     /**
-     * 高级导出：将完整的 User 实体列表转换为 CSV。
+     * 高级导出：将完整的 User 实体列表转换为 CSV（UTF-8，带 BOM）。
      * 字段顺序与表头如下：
      * id,username,nickname,email,signature,avatarUrl,role,createdAt,passwordHash
      * 格式化说明：
-     * - 对所有文本字段进行转义（逗号、引号、换行），确保 CSV 合规；
+     * - 对所有文本字段进行转义（逗号、引号、换行，见 {@link CsvWriter}），确保 CSV 合规；
      * - 时间使用 LocalDateTime#toString()（ISO-8601），便于通用解析；
      * - 空值输出为空字符串。
      */
-    private String exportUsersAdvancedToCsv(List<User> users) {
-        StringBuilder sb = new StringBuilder();
+    private byte[] exportUsersAdvancedToCsv(List<User> users) throws java.io.IOException {
+        java.io.ByteArrayOutputStream buf = new java.io.ByteArrayOutputStream(8192);
+        CsvWriter csv = CsvWriter.utf8(buf).bom();
         // 表头
-        sb.append("id,username,nickname,email,signature,avatarUrl,role,createdAt,passwordHash\n");
+        csv.header("id", "username", "nickname", "email", "signature", "avatarUrl", "role", "createdAt", "passwordHash");
         // 数据行
         for (User u : users) {
-            sb.append(escapeCsvField(u.getId() != null ? String.valueOf(u.getId()) : ""))
-              .append(',')
-              .append(escapeCsvField(u.getUsername()))
-              .append(',')
-              .append(escapeCsvField(u.getNickname()))
-              .append(',')
-              .append(escapeCsvField(u.getEmail()))
-              .append(',')
-              .append(escapeCsvField(u.getSignature()))
-              .append(',')
-              .append(escapeCsvField(u.getAvatarUrl()))
-              .append(',')
-              .append(escapeCsvField(u.getRole()))
-              .append(',')
-              .append(escapeCsvField(u.getCreatedAt() != null ? u.getCreatedAt().toString() : ""))
-              .append(',')
-              .append(escapeCsvField(u.getPasswordHash()))
-              .append('\n');
-        }
-        return sb.toString();
-    }
-
-    /**
-     * 转义 CSV 字段，处理包含逗号、引号或换行符的内容。
-     */
-    private String escapeCsvField(String field) {
-        if (field == null) {
-            return "";
-        }
-        // 如果字段包含逗号、引号或换行符，需要用引号包围并转义内部引号
-        if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
-            return "\"" + field.replace("\"", "\"\"") + "\"";
+            csv.field(u.getId())
+               .field(u.getUsername())
+               .field(u.getNickname())
+               .field(u.getEmail())
+               .field(u.getSignature())
+               .field(u.getAvatarUrl())
+               .field(u.getRole())
+               .field(u.getCreatedAt())
+               .field(u.getPasswordHash())
+               .endRow();
         }
-        return field;
+        csv.flush();
+        return buf.toByteArray();
     }
 
     /**
@@ -1047,6 +1077,7 @@ public class AdminController {
                     created++;
                 } else {
                     userMapper.updateById(u);
+                    profileCache.invalidateAfterCommit(u.getId());
                     updated++;
                 }
             } catch (Exception ex) {
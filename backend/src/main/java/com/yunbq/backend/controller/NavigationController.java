@@ -4,18 +4,26 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yunbq.backend.dto.PageResult;
 import com.yunbq.backend.model.NavigationCategory;
 import com.yunbq.backend.model.NavigationSite;
+import com.yunbq.backend.service.ContentVersions;
 import com.yunbq.backend.service.NavigationCategoryService;
 import com.yunbq.backend.service.NavigationSiteService;
+import com.yunbq.backend.service.NavigationSnapshot;
 import com.yunbq.backend.util.AuthUtil;
+import com.yunbq.backend.util.CsvWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.validation.Valid;
+import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.Map;
 import java.nio.charset.StandardCharsets;
@@ -49,20 +57,27 @@ import com.fasterxml.jackson.core.type.TypeReference;
 public class NavigationController {
     
     private static final Logger log = LoggerFactory.getLogger(NavigationController.class);
+    /** 推荐/热门站点 limit 的默认值与上限（limit 参与预序列化响应的缓存键，需归一化） */
+    private static final int DEFAULT_SITE_LIMIT = 10;
+    private static final int MAX_SITE_LIMIT = 50;
     
     private final NavigationCategoryService categoryService;
     private final NavigationSiteService siteService;
     // 使用 Spring 管理的 ObjectMapper（已注册 JavaTimeModule 等），避免 LocalDateTime 序列化失败
     private final ObjectMapper objectMapper;
+    // 导航内存快照：公开列表接口按快照版本号生成 ETag 与 304
+    private final NavigationSnapshot snapshot;
     
     public NavigationController(
             NavigationCategoryService categoryService,
             NavigationSiteService siteService,
-            ObjectMapper objectMapper
+            ObjectMapper objectMapper,
+            NavigationSnapshot snapshot
     ) {
         this.categoryService = categoryService;
         this.siteService = siteService;
         this.objectMapper = objectMapper;
+        this.snapshot = snapshot;
     }
 
     /**
@@ -131,10 +146,9 @@ public class NavigationController {
      * @return 所有启用的根分类列表；可能为空。
      */
     @GetMapping("/categories")
-    public ResponseEntity<List<NavigationCategory>> getRootCategories() {
+    public ResponseEntity<byte[]> getRootCategories(WebRequest webRequest) {
         log.info("[NavigationController] GET /api/navigation/categories called");
-        List<NavigationCategory> categories = categoryService.getRootCategories();
-        return ResponseEntity.ok(categories);
+        return json(snapshot.json("categories", categoryService::getRootCategories), null, webRequest);
     }
     
     /**
@@ -154,10 +168,11 @@ public class NavigationController {
      * @return 指定父分类的启用子分类列表；可能为空。
      */
     @GetMapping("/categories/{parentId}/children")
-    public ResponseEntity<List<NavigationCategory>> getSubCategories(@PathVariable Long parentId) {
+    public ResponseEntity<byte[]> getSubCategories(@PathVariable Long parentId, WebRequest webRequest) {
         log.info("[NavigationController] GET /api/navigation/categories/{}/children called", parentId);
-        List<NavigationCategory> subCategories = categoryService.getSubCategories(parentId);
-        return ResponseEntity.ok(subCategories);
+        // 仅对存在的分类缓存响应，不存在的 ID 返回未缓存的空列表
+        String key = snapshot.category(parentId) != null ? "categories/children:" + parentId : null;
+        return json(snapshot.json(key, () -> categoryService.getSubCategories(parentId)), null, webRequest);
     }
     
     /**
@@ -172,13 +187,15 @@ public class NavigationController {
      *
      * 安全：公开接口，无需登录。
      *
-     * @return 启用分类（一级与二级）的完整集合；可能为空。
+     * 条件请求：携带强 ETag（导航快照的分类版本号），If-None-Match 命中时返回 304，不序列化。
+     *
+     * @return 启用分类（一级与二级）的完整集合；可能为空；未变化时 304。
      */
     @GetMapping("/categories/all")
-    public ResponseEntity<List<NavigationCategory>> getAllEnabledCategories() {
+    public ResponseEntity<byte[]> getAllEnabledCategories(WebRequest webRequest) {
         log.info("[NavigationController] GET /api/navigation/categories/all called");
-        List<NavigationCategory> categories = categoryService.getAllEnabledCategories();
-        return ResponseEntity.ok(categories);
+        String etag = snapshot.etag(ContentVersions.NAV_CATEGORIES);
+        return json(snapshot.json("categories/all", categoryService::getAllEnabledCategories), etag, webRequest);
     }
     
     /**
@@ -232,13 +249,13 @@ public class NavigationController {
      * @return 分类实体或 404。
      */
     @GetMapping("/categories/{id}")
-    public ResponseEntity<NavigationCategory> getCategoryById(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getCategoryById(@PathVariable Long id, WebRequest webRequest) {
         log.info("[NavigationController] GET /api/navigation/categories/{} called", id);
-        NavigationCategory category = categoryService.getById(id);
-        if (category == null) {
+        NavigationSnapshot.JsonBody body = snapshot.json("categories:" + id, () -> categoryService.getById(id));
+        if (body == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(category);
+        return json(body, null, webRequest);
     }
     
     /**
@@ -425,13 +442,15 @@ public class NavigationController {
                         .contentType(MediaType.APPLICATION_OCTET_STREAM)
                         .body(json);
             } else {
-                // CSV 导出：由服务层生成带表头的 CSV 文本
+                // CSV 导出：由服务层直接写入 UTF-8 字节缓冲（不经中间字符串）
                 // 乱码修复：
                 // - 为了在 Windows Excel 中正确识别 UTF-8 中文，需在文本前添加 BOM（\uFEFF）；
                 // - 同时设置 Content-Type 为 text/csv; charset=UTF-8。
-                String csv = categoryService.exportCategoriesToCsv(categories);
-                String withBom = "\uFEFF" + csv; // 前置 UTF-8 BOM
-                byte[] bytes = withBom.getBytes(StandardCharsets.UTF_8);
+                ByteArrayOutputStream buf = new ByteArrayOutputStream(8192);
+                CsvWriter csv = CsvWriter.utf8(buf).bom(); // 前置 UTF-8 BOM
+                categoryService.exportCategoriesToCsv(categories, csv);
+                csv.flush();
+                byte[] bytes = buf.toByteArray();
                 return ResponseEntity.ok()
                         .header("Content-Disposition", "attachment; filename=categories.csv")
                         .contentType(MediaType.valueOf("text/csv; charset=UTF-8"))
@@ -502,48 +521,51 @@ public class NavigationController {
      * 边界：分类不存在或无站点时返回空列表（HTTP 200）。
      * 安全：公开接口。
      *
+     * 条件请求：携带强 ETag（导航快照的站点版本号 + 分类 ID），If-None-Match 命中时返回 304。
+     *
      * @param categoryId 分类主键。
-     * @return 站点列表；可能为空。
+     * @return 站点列表；可能为空；未变化时 304。
      */
     @GetMapping("/sites/category/{categoryId}")
-    public ResponseEntity<List<NavigationSite>> getSitesByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<byte[]> getSitesByCategory(@PathVariable Long categoryId, WebRequest webRequest) {
         log.info("[NavigationController] GET /api/navigation/sites/category/{} called", categoryId);
-        List<NavigationSite> sites = siteService.getSitesByCategory(categoryId);
-        return ResponseEntity.ok(sites);
+        String etag = snapshot.etag(ContentVersions.NAV_SITES, categoryId);
+        String key = snapshot.category(categoryId) != null ? "sites/category:" + categoryId : null;
+        return json(snapshot.json(key, () -> siteService.getSitesByCategory(categoryId)), etag, webRequest);
     }
     
     /**
      * 获取推荐站点
      *
      * 行为：返回 `isFeatured=true` 的启用站点，按服务层默认排序且限制数量。
-     * 边界：`limit<=0` 归一化为默认值；无推荐站点返回空列表（HTTP 200）。
+     * 边界：`limit<=0` 归一化为默认值 10，超过 50 按 50 处理；无推荐站点返回空列表（HTTP 200）。
      * 安全：公开接口。
      *
      * @param limit 返回的最大条数（默认 10）。
      * @return 推荐站点列表；可能为空。
      */
     @GetMapping("/sites/featured")
-    public ResponseEntity<List<NavigationSite>> getFeaturedSites(@RequestParam(defaultValue = "10") int limit) {
+    public ResponseEntity<byte[]> getFeaturedSites(@RequestParam(defaultValue = "10") int limit, WebRequest webRequest) {
         log.info("[NavigationController] GET /api/navigation/sites/featured called, limit={}", limit);
-        List<NavigationSite> sites = siteService.getFeaturedSites(limit);
-        return ResponseEntity.ok(sites);
+        int n = siteLimit(limit);
+        return json(snapshot.json("sites/featured:" + n, () -> siteService.getFeaturedSites(n)), null, webRequest);
     }
     
     /**
      * 获取热门站点
      *
      * 行为：依据点击数等指标返回热门站点集合，数量受 `limit` 限制。
-     * 边界：`limit<=0` 归一化为默认值；无热门数据返回空列表（HTTP 200）。
+     * 边界：`limit<=0` 归一化为默认值 10，超过 50 按 50 处理；无热门数据返回空列表（HTTP 200）。
      * 安全：公开接口。
      *
      * @param limit 返回的最大条数（默认 10）。
      * @return 热门站点列表；可能为空。
      */
     @GetMapping("/sites/popular")
-    public ResponseEntity<List<NavigationSite>> getPopularSites(@RequestParam(defaultValue = "10") int limit) {
+    public ResponseEntity<byte[]> getPopularSites(@RequestParam(defaultValue = "10") int limit, WebRequest webRequest) {
         log.info("[NavigationController] GET /api/navigation/sites/popular called, limit={}", limit);
-        List<NavigationSite> sites = siteService.getPopularSites(limit);
-        return ResponseEntity.ok(sites);
+        int n = siteLimit(limit);
+        return json(snapshot.json("sites/popular:" + n, () -> siteService.getPopularSites(n)), null, webRequest);
     }
     
     /**
@@ -644,13 +666,13 @@ public class NavigationController {
      * @return 站点实体或 404。
      */
     @GetMapping("/sites/{id}")
-    public ResponseEntity<NavigationSite> getSiteById(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getSiteById(@PathVariable Long id, WebRequest webRequest) {
         log.info("[NavigationController] GET /api/navigation/sites/{} called", id);
-        NavigationSite site = siteService.getById(id);
-        if (site == null) {
+        NavigationSnapshot.JsonBody body = snapshot.json("sites:" + id, () -> siteService.getById(id));
+        if (body == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(site);
+        return json(body, null, webRequest);
     }
     
     /**
@@ -761,23 +783,25 @@ public class NavigationController {
      * 增加站点点击次数
      *
      * 行为：
-     * - 将 `clickCount` +1；返回更新后的实体。
-     * - 若站点不存在或更新失败，返回 400。
+     * - 点击计入内存缓冲，由后台定时批量累加到 `clickCount`，返回 202 与 `{id, accepted}`；
+     * - 不再返回站点实体（前端未使用返回体），热门/推荐排序在点击落库后按间隔刷新；
+     * - 待写站点数达到上限时 `accepted=false`，本次点击不计入；
+     * - 站点不存在或未启用时返回 404，不进入缓冲。
      *
      * 安全：公开接口；若存在频控策略应在服务层或网关层实现。
      *
      * @param id 站点主键。
-     * @return 更新后的站点实体或错误。
+     * @return 202 Accepted；站点不存在返回 404。
      */
     @PostMapping("/sites/{id}/click")
-    public ResponseEntity<NavigationSite> incrementClickCount(@PathVariable Long id) {
-        log.info("[NavigationController] POST /api/navigation/sites/{}/click called", id);
+    public ResponseEntity<Map<String, Object>> incrementClickCount(@PathVariable Long id) {
+        // 高频接口：仅 debug 级别日志
+        log.debug("[NavigationController] POST /api/navigation/sites/{}/click called", id);
         try {
-            NavigationSite updated = siteService.incrementClickCount(id);
-            return ResponseEntity.ok(updated);
-        } catch (Exception e) {
-            log.error("Failed to increment click count for site {}: {}", id, e.getMessage());
-            return ResponseEntity.badRequest().build();
+            boolean accepted = siteService.incrementClickCount(id);
+            return ResponseEntity.accepted().body(Map.of("id", id, "accepted", accepted));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
         }
     }
     
@@ -860,13 +884,15 @@ public class NavigationController {
                         .contentType(MediaType.APPLICATION_OCTET_STREAM)
                         .body(json);
             } else {
-                // CSV 导出：由服务层生成带表头的 CSV 文本
+                // CSV 导出：由服务层直接写入 UTF-8 字节缓冲（不经中间字符串）
                 // 乱码修复：
                 // - 为了在 Windows Excel 中正确识别 UTF-8 中文，需在文本前添加 BOM（\uFEFF）；
                 // - 同时设置 Content-Type 为 text/csv; charset=UTF-8。
-                String csv = siteService.exportSitesToCsv(sites);
-                String withBom = "\uFEFF" + csv; // 前置 UTF-8 BOM
-                byte[] bytes = withBom.getBytes(StandardCharsets.UTF_8);
+                ByteArrayOutputStream buf = new ByteArrayOutputStream(8192);
+                CsvWriter csv = CsvWriter.utf8(buf).bom(); // 前置 UTF-8 BOM
+                siteService.exportSitesToCsv(sites, csv);
+                csv.flush();
+                byte[] bytes = buf.toByteArray();
                 return ResponseEntity.ok()
                         .header("Content-Disposition", "attachment; filename=sites.csv")
                         .contentType(MediaType.valueOf("text/csv; charset=UTF-8"))
@@ -926,4 +952,68 @@ public class NavigationController {
         List<NavigationSite> sites = siteService.getUserSites(userId);
         return ResponseEntity.ok(sites);
     }
-}
\ No newline at end of file
+
+    // ==================== 预序列化响应 ====================
+
+    /**
+     * 写出预序列化的 JSON 响应体（见 {@link NavigationSnapshot#json}）
+     *
+     * 行为：
+     * - 客户端接受 gzip 且存在压缩版本时直接写出 gzip 字节（`Content-Encoding: gzip`），否则写出原始字节；
+     * - 始终携带 `Vary: Accept-Encoding`，避免中间缓存把压缩版本返回给不支持的客户端；
+     * - etag 非空时按编码区分强 ETag（gzip 版本追加 `-gz`），If-None-Match 命中返回 304。
+     *
+     * @param body 预序列化响应体（非空）。
+     * @param etag 强 ETag；为 null 时不做条件请求处理。
+     * @param webRequest 当前请求。
+     * @return 200 JSON 字节或 304。
+     */
+    private ResponseEntity<byte[]> json(NavigationSnapshot.JsonBody body, String etag, WebRequest webRequest) {
+        boolean gzip = body.gzip() != null && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (etag != null) {
+            if (gzip) {
+                etag = etag.substring(0, etag.length() - 1) + "-gz\"";
+            }
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache())
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+            }
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (etag != null) {
+            builder.eTag(etag).cacheControl(CacheControl.noCache());
+        }
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return builder.body(body.gzip());
+        }
+        return builder.body(body.raw());
+    }
+
+    /** 推荐/热门站点数量归一化：limit<=0 取默认值，超过上限按上限。 */
+    private static int siteLimit(int limit) {
+        return limit <= 0 ? DEFAULT_SITE_LIMIT : Math.min(limit, MAX_SITE_LIMIT);
+    }
+
+    /** Accept-Encoding 是否接受 gzip（忽略 q=0；q 值无法解析时视为接受）。 */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            if (!"gzip".equalsIgnoreCase(params[0].trim())) continue;
+            for (int i = 1; i < params.length; i++) {
+                String p = params[i].trim();
+                if (!p.startsWith("q=")) continue;
+                try {
+                    if (Double.parseDouble(p.substring(2).trim()) <= 0) return false;
+                } catch (NumberFormatException ignored) {
+                    // 非法 q 值按默认 q=1 处理
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,17 +1,28 @@
 package com.yunbq.backend.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.yunbq.backend.dto.CursorPageResult;
 import com.yunbq.backend.dto.NoteRequest;
 import com.yunbq.backend.dto.NoteItem;
 import com.yunbq.backend.dto.PageResult;
-import com.yunbq.backend.dto.ImportNotesRequest;
 import com.yunbq.backend.model.Note;
+import com.yunbq.backend.service.ContentVersions;
 import com.yunbq.backend.service.NoteService;
 import com.yunbq.backend.util.AuthUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.List;
 import org.slf4j.Logger;
@@ -39,12 +50,15 @@ import org.slf4j.LoggerFactory;
 public class NoteController {
 
     private final NoteService noteService;
+    // 列表版本号：用于 GET /api/notes 的 ETag 与 304
+    private final ContentVersions versions;
     // 说明：加入日志记录用于观测控制层是否成功接收到请求以及关键参数（方法、路径、用户ID、目标ID等）。
     // 这有助于前后端联调时快速定位是“未到达控制器”还是“控制器执行过程中出现业务错误”。
     private static final Logger log = LoggerFactory.getLogger(NoteController.class);
 
-    public NoteController(NoteService noteService) {
+    public NoteController(NoteService noteService, ContentVersions versions) {
         this.noteService = noteService;
+        this.versions = versions;
     }
 
     @GetMapping
@@ -53,6 +67,7 @@ public class NoteController {
      *
      * 过滤参数：
      * - {@code q}：全文检索关键字（内容/标签等）；
+     * - {@code tag}：标签精确筛选（单个标签，可带或不带 # 前缀）；
      * - {@code archived}：是否仅返回归档便签（null 表示不限）；
      * - {@code isPublic}：是否仅返回公开便签（null 表示不限）；
      * - {@code mineOnly}：是否仅返回当前用户的便签（true 需登录）。
@@ -61,30 +76,72 @@ public class NoteController {
      * - {@code page}：页码，默认 1；
      * - {@code size}：每页条数，默认 10。
      *
+     * 游标模式（Keyset Pagination）：
+     * - 携带 {@code cursor} 参数即启用（首屏传空串，后续原样回传上一页的 {@code nextCursor}）；
+     * - 此时忽略 {@code page}，返回 {@code CursorPageResult<NoteItem>}（items/nextCursor/hasMore/size）；
+     * - {@code withTotal=true} 时附带 total（额外一次 COUNT，默认不计算）；
+     * - 游标非法返回 400。
+     *
      * 安全与行为：
      * - 登录态通过 {@code AuthUtil.currentUserId()} 识别；
      * - 未登录时仅返回公开内容，且用户态标记（我是否点赞/收藏）均为 false；
      * - 服务层负责精确的过滤逻辑与范围控制（例如 size 的上限）。
      *
-     * @return 200 OK，{@code PageResult<NoteItem>}，包含 items/total/page/size
+     * 条件请求：
+     * - 响应携带强 ETag（列表版本号 + 当前用户 + 查询参数），Cache-Control: private, no-cache；
+     * - 请求头 If-None-Match 命中时返回 304，不查询数据库、不序列化响应体。
+     *
+     * @return 200 OK，{@code PageResult<NoteItem>}，包含 items/total/page/size；游标模式下为 {@code CursorPageResult<NoteItem>}；未变化时 304
      */
-    public ResponseEntity<PageResult<NoteItem>> list(@RequestParam(defaultValue = "1") int page,
-                                           @RequestParam(defaultValue = "10") int size,
-                                           @RequestParam(required = false) String q,
-                                           @RequestParam(required = false) Boolean archived,
-                                           @RequestParam(required = false) Boolean isPublic,
-                                           @RequestParam(required = false) Boolean mineOnly) {
+    public ResponseEntity<?> list(@RequestParam(defaultValue = "1") int page,
+                                  @RequestParam(defaultValue = "10") int size,
+                                  @RequestParam(required = false) String q,
+                                  @RequestParam(required = false) String tag,
+                                  @RequestParam(required = false) Boolean archived,
+                                  @RequestParam(required = false) Boolean isPublic,
+                                  @RequestParam(required = false) Boolean mineOnly,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "false") boolean withTotal,
+                                  WebRequest webRequest) {
         Long uid = AuthUtil.currentUserId();
         // 详细注释：记录列表查询的入参及当前用户，以便确认请求是否达到控制器。
-        log.info("[NoteController] GET /api/notes list called, uid={}, page={}, size={}, q={}, archived={}, isPublic={}, mineOnly={}",
-                uid, page, size, q, archived, isPublic, mineOnly);
-        Page<NoteItem> p = noteService.list(uid, page, size, q, archived, isPublic, mineOnly);
+        log.info("[NoteController] GET /api/notes list called, uid={}, page={}, size={}, q={}, tag={}, archived={}, isPublic={}, mineOnly={}, cursor={}",
+                uid, page, size, q, tag, archived, isPublic, mineOnly, cursor);
+        // 版本号须在查询数据之前读取，保证 ETag 不会比响应内容更新
+        String etag = versions.etag(ContentVersions.NOTES, uid, page, size, q, tag, archived, isPublic, mineOnly, cursor, withTotal);
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        if (cursor != null) {
+            try {
+                CursorPageResult<NoteItem> cp = noteService.listByCursor(uid, cursor, size, q, tag, archived, isPublic, mineOnly, withTotal);
+                return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(cp);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", "无效的分页游标"));
+            }
+        }
+        Page<NoteItem> p = noteService.list(uid, page, size, q, tag, archived, isPublic, mineOnly);
         PageResult<NoteItem> resp = new PageResult<>();
         resp.setItems(p.getRecords());
         resp.setTotal(p.getTotal());
         resp.setPage(p.getCurrent());
         resp.setSize(p.getSize());
-        return ResponseEntity.ok(resp);
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(resp);
+    }
+
+    @GetMapping("/tags")
+    /**
+     * 标签云（分面统计）。
+     *
+     * @param limit 返回条数，默认 30，范围 1~100
+     * @return 200 OK，形如：[{ "tag": "读书", "count": 12 }, ...]
+     *
+     * 说明：匿名可访问；仅统计公开且未归档的便签，结果短时缓存。
+     */
+    public ResponseEntity<List<Map<String, Object>>> tags(@RequestParam(defaultValue = "30") int limit) {
+        int safeLimit = Math.max(1, Math.min(limit, 100));
+        return ResponseEntity.ok(noteService.topTags(safeLimit));
     }
 
     @PostMapping
@@ -241,15 +298,25 @@ public class NoteController {
      * @param page 页码，默认 1
      * @param size 每页条数，默认 10
      * @param q    关键字过滤（可选）
-     * @return 200 OK，分页结果
+     * @param cursor 游标（可选）：携带即启用游标模式，语义同 GET /api/notes
+     * @return 200 OK，分页结果；游标模式下为 {@code CursorPageResult<NoteItem>}
      *
-     * 说明：未登录时仅返回公开内容；登录时返回个人收藏列表，并附带用户态标记。
+     * 说明：按收藏时间倒序；未登录时返回空列表；登录时返回个人收藏列表，并附带用户态标记。
      */
-    public ResponseEntity<PageResult<NoteItem>> listFavorited(@RequestParam(defaultValue = "1") int page,
-                                                   @RequestParam(defaultValue = "10") int size,
-                                                   @RequestParam(required = false) String q) {
+    public ResponseEntity<?> listFavorited(@RequestParam(defaultValue = "1") int page,
+                                           @RequestParam(defaultValue = "10") int size,
+                                           @RequestParam(required = false) String q,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "false") boolean withTotal) {
         Long uid = AuthUtil.currentUserId();
-        log.info("[NoteController] GET /api/notes/favorites called, uid={}, page={}, size={}, q={} ", uid, page, size, q);
+        log.info("[NoteController] GET /api/notes/favorites called, uid={}, page={}, size={}, q={}, cursor={} ", uid, page, size, q, cursor);
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(noteService.listFavoritedByCursor(uid, cursor, size, q, withTotal));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", "无效的分页游标"));
+            }
+        }
         Page<NoteItem> p = noteService.listFavorited(uid, page, size, q);
         PageResult<NoteItem> resp = new PageResult<>();
         resp.setItems(p.getRecords());
@@ -262,17 +329,27 @@ public class NoteController {
     /**
      * 列出当前用户点过赞的便签（分页）
      * 说明：
-     * - 与 /favorites 类似，通过用户点赞记录反查便签并分页返回；
+     * - 与 /favorites 类似，以点赞记录联表便签，按点赞时间倒序分页返回；
      * - 返回的每条记录包含作者昵称、点赞/收藏数量以及“我是否已点赞/已收藏”等用户态标记；
-     * - GET 接口允许匿名访问，但仅在携带 token 时才能计算“我是否已点赞/已收藏”，匿名时两者均为 false。
+     * - 携带 cursor 参数时启用游标模式（语义同 GET /api/notes）；
+     * - GET 接口允许匿名访问，但匿名时没有“我点赞过的”记录，返回空列表。
      */
     @GetMapping("/liked")
-    public ResponseEntity<PageResult<NoteItem>> listLiked(@RequestParam(defaultValue = "1") int page,
-                                                @RequestParam(defaultValue = "10") int size,
-                                                @RequestParam(required = false) String q) {
+    public ResponseEntity<?> listLiked(@RequestParam(defaultValue = "1") int page,
+                                       @RequestParam(defaultValue = "10") int size,
+                                       @RequestParam(required = false) String q,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "false") boolean withTotal) {
         Long uid = AuthUtil.currentUserId();
-        // 详细注释：用于确认“喜欢页”列表请求是否抵达控制器，若 uid 为空（匿名）则只返回公开数据；携带 token 则可计算用户态标记。
-        log.info("[NoteController] GET /api/notes/liked called, uid={}, page={}, size={}, q={} ", uid, page, size, q);
+        // 详细注释：用于确认“喜欢页”列表请求是否抵达控制器，若 uid 为空（匿名）则返回空列表；携带 token 则返回点赞记录。
+        log.info("[NoteController] GET /api/notes/liked called, uid={}, page={}, size={}, q={}, cursor={} ", uid, page, size, q, cursor);
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(noteService.listLikedByCursor(uid, cursor, size, q, withTotal));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", "无效的分页游标"));
+            }
+        }
         Page<NoteItem> p = noteService.listLiked(uid, page, size, q);
         PageResult<NoteItem> resp = new PageResult<>();
         resp.setItems(p.getRecords());
@@ -282,17 +359,62 @@ public class NoteController {
         return ResponseEntity.ok(resp);
     }
 
-    // 已移除：最近/热门公开拾言端点
-    // 说明：按需求彻底下线“最近便签”和“热门便签”功能，因此删除
-    // GET /api/notes/recent 与 GET /api/notes/hot 两个路由及对应服务方法调用。
-    // 这样可以避免无效接口暴露与误用，同时确保控制层不再依赖已移除的服务逻辑。
+    // 已移除：最近公开拾言端点（GET /api/notes/recent）。
+
+    /**
+     * 热门公开拾言
+     * 说明：
+     * - 榜单来自后台任务预计算的热度分（点赞/收藏按时间衰减加权），并经本地缓存，请求路径不做聚合；
+     * - 匿名可访问；登录用户附带 likedByMe/favoritedByMe。
+     *
+     * @param size 返回条数，默认 10，最大 50
+     * @return 200 OK，{@code PageResult<NoteItem>}（page 固定为 1）
+     */
+    @GetMapping("/hot")
+    public ResponseEntity<PageResult<NoteItem>> hot(@RequestParam(defaultValue = "10") int size) {
+        Long uid = AuthUtil.currentUserId();
+        log.info("[NoteController] GET /api/notes/hot called, uid={}, size={}", uid, size);
+        Page<NoteItem> p = noteService.hotPublic(uid, size);
+        PageResult<NoteItem> resp = new PageResult<>();
+        resp.setItems(p.getRecords());
+        resp.setTotal(p.getTotal());
+        resp.setPage(p.getCurrent());
+        resp.setSize(p.getSize());
+        return ResponseEntity.ok(resp);
+    }
+
+    /**
+     * 导出我的拾言（流式）
+     * 说明：
+     * - GET /api/notes/export?format=ndjson|json，默认 ndjson（每行一个 JSON 对象）；
+     * - 使用 StreamingResponseBody 在异步线程中边查边写，服务层通过 MyBatis 游标逐行读取，内存占用恒定；
+     * - 导出字段与导入格式兼容（content/tags/color/archived/isPublic），并附带 id、时间与点赞/收藏数量；
+     * - 需要登录，未登录返回 401。
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportNotes(@RequestParam(defaultValue = "ndjson") String format) {
+        Long uid = AuthUtil.currentUserId();
+        log.info("[NoteController] GET /api/notes/export called, uid={}, format={}", uid, format);
+        if (uid == null) {
+            return ResponseEntity.status(401).body(Map.of("message", "请先登录后再导出"));
+        }
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        String filename = "shiyan-export-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + (ndjson ? ".ndjson" : ".json");
+        StreamingResponseBody body = out -> noteService.exportNotes(uid, ndjson, out);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                .body(body);
+    }
 
     /**
      * 导入拾言（批量）
      * 说明：
      * - 前端请求：POST /shiyan/import（axios baseURL 已含 /api，实际路径为 /api/shiyan/import）；
-     * - 请求体结构：{ items: NoteRequest[] }，每项包含 content、tags、color、archived、isPublic；
-     * - 返回体建议：{ imported: 成功数量, failed: 失败数量, errors: [可选错误消息] }；
+     * - 请求体结构：{ items: NoteRequest[] }（也接受顶层数组），每项包含 content、tags、color、archived、isPublic；
+     * - 请求体按流解析，不整体反序列化为 ImportNotesRequest：服务层边读边分块写入，大文件不占用成倍内存；
+     * - 单条字段格式错误计入 failed/errors；中途 JSON 语法错误时返回已导入部分与 aborted=true（200），首条之前即无法解析返回 400；
+     * - 返回体：{ imported: 成功数量, failed: 失败数量, errors: [可选错误消息，最多 200 条] }；
      * - 登录校验：仅登录用户允许导入（当前控制器所有方法均依赖 AuthUtil.currentUserId 识别登录态）。
      *
      * HttpRequestMethodNotSupportedException 根因与修复：
@@ -300,16 +422,19 @@ public class NoteController {
      * - 修复：新增 @PostMapping("/import") 映射，使 /api/notes/import 与 /api/shiyan/import 均可访问。
      */
     @PostMapping("/import")
-    public ResponseEntity<Map<String, Object>> importNotes(@RequestBody ImportNotesRequest req) {
+    public ResponseEntity<Map<String, Object>> importNotes(HttpServletRequest request) throws IOException {
         Long uid = AuthUtil.currentUserId();
-        // 详细日志：记录导入请求到达控制器与候选条目数，便于联调定位问题
-        int size = (req == null || req.getItems() == null) ? 0 : req.getItems().size();
-        log.info("[NoteController] POST /api/notes/import called, uid={}, items={}", uid, size);
+        // 详细日志：记录导入请求到达控制器与请求体大小（流式解析，条目数在完成后由结果给出）
+        log.info("[NoteController] POST /api/notes/import called, uid={}, contentLength={}", uid, request.getContentLengthLong());
         // 未登录直接返回 401（与前端 suppress401Redirect 对齐）：避免将匿名导入写入数据库
         if (uid == null) {
             return ResponseEntity.status(401).body(Map.of("message", "请先登录后再导入"));
         }
-        Map<String, Object> result = noteService.importNotes(uid, req == null ? java.util.Collections.emptyList() : req.getItems());
-        return ResponseEntity.ok(result);
+        try {
+            Map<String, Object> result = noteService.importNotes(uid, request.getInputStream());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.yunbq.backend.mapper.UserMapper;
 import com.yunbq.backend.model.User;
 import com.yunbq.backend.security.JwtUtil;
+import com.yunbq.backend.service.UserProfileCache;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -65,6 +66,8 @@ public class SocialAuthController {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    // 用户公开资料缓存：回填昵称/头像后失效
+    private final UserProfileCache profileCache;
 
     // QQ OAuth state 存储（简易内存版，含 TTL）。
     // 说明：用于在发起授权时生成随机 state 并在回调中校验，防止 CSRF。
@@ -72,10 +75,11 @@ public class SocialAuthController {
     private final ConcurrentMap<String, Long> qqStateStore = new ConcurrentHashMap<>();
     private final long qqStateTtlMillis = 5 * 60 * 1000L; // 5 分钟有效期
 
-    public SocialAuthController(UserMapper userMapper, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public SocialAuthController(UserMapper userMapper, PasswordEncoder passwordEncoder, JwtUtil jwtUtil, UserProfileCache profileCache) {
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.profileCache = profileCache;
     }
 
     @GetMapping("/qq/login")
@@ -288,6 +292,7 @@ public class SocialAuthController {
             // 若已存在用户但未设置昵称，则填充为社交侧昵称（一次性回填）
             user.setNickname(nicknameIfNew);
             userMapper.updateById(user);
+            profileCache.invalidate(user.getId());
         }
         String token = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getRole());
         // 回跳到前端并携带token
@@ -329,6 +334,7 @@ public class SocialAuthController {
             }
             if (needUpdate) {
                 userMapper.updateById(user);
+                profileCache.invalidate(user.getId());
             }
         }
         String token = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getRole());
@@ -0,0 +1,31 @@
+package com.yunbq.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果（Keyset Pagination）
+ * 说明：
+ * - 与 {@link PageResult} 不同，游标分页不依赖 offset，而是由上一页最后一条记录生成不透明的 nextCursor；
+ * - 客户端翻页时原样回传 nextCursor，服务端以 (updated_at, id) 作为定位条件，第 N 页与第 1 页成本一致；
+ * - total 仅在调用方显式要求时计算（需要额外的 COUNT(*)），未计算时不输出该字段。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResult<T> {
+    private List<T> items;
+    /** 下一页游标；为 null 表示已到末页 */
+    private String nextCursor;
+    /** 是否还有下一页 */
+    private boolean hasMore;
+    /** 本次请求的每页条数（已按服务端上限截断） */
+    private long size;
+    /** 可选总数：仅当 withTotal=true 时返回 */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+}
@@ -1,5 +1,6 @@
 package com.yunbq.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -26,4 +27,8 @@ public class NoteItem {
     private Boolean likedByMe;
     private Long favoriteCount;
     private Boolean favoritedByMe;
+
+    // 检索命中摘要：仅在带关键词 q 的检索中返回，内容已做 HTML 转义，命中片段以 <mark> 包裹
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String highlight;
 }
\ No newline at end of file
@@ -1,14 +1,15 @@
 package com.yunbq.backend.job;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yunbq.backend.config.LogProperties;
 import com.yunbq.backend.mapper.*;
-import com.yunbq.backend.model.RequestLog;
-import com.yunbq.backend.model.AuthLog;
-import com.yunbq.backend.model.ErrorLog;
-import com.yunbq.backend.model.AuditLog;
+import com.yunbq.backend.service.FileLogSink;
+import com.yunbq.backend.service.LogPartitionManager;
+import com.yunbq.backend.service.LogSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -17,7 +18,11 @@ import java.time.LocalDateTime;
 /**
  * 日志保留清理任务。
  * 作用：根据配置的保留天数，定期清理超期的日志数据，控制表规模。
- * 触发：固定延迟执行（fixedDelay），间隔来自配置 logdb.retention-sweep-interval-ms。
+ * 分区：logdb.partitioning-enabled 开启后日志表按天分区，过期数据整段 DROP PARTITION；未分区时分批删除。
+ * 触发：固定延迟执行（fixedDelay），间隔来自配置 logdb.retention-sweep-interval-ms；
+ *       实际清理在 maintenanceTaskExecutor 单线程上执行（分批删除之间会休眠），不占用共享的调度线程。
+ * 文件落地：本地分段文件按同样的保留天数整段删除（无论当前落地方式，切换后遗留的分段也会被清理）。
+ * 请求汇总：request_stats 按 logdb.retention-request-stats-days 分批删除（通常比明细保留更久）。
  */
 @Component
 public class LogRetentionScheduler {
@@ -28,47 +33,112 @@ public class LogRetentionScheduler {
     private final RequestLogMapper requestLogMapper;
     private final AuthLogMapper authLogMapper;
     private final ErrorLogMapper errorLogMapper;
+    private final FileLogSink fileSink;
+    private final LogPartitionManager partitions;
+    private final RequestStatMapper requestStatMapper;
 
     public LogRetentionScheduler(LogProperties props,
                                  AuditLogMapper auditLogMapper,
                                  RequestLogMapper requestLogMapper,
                                  AuthLogMapper authLogMapper,
-                                 ErrorLogMapper errorLogMapper) {
+                                 ErrorLogMapper errorLogMapper,
+                                 FileLogSink fileSink,
+                                 LogPartitionManager partitions,
+                                 RequestStatMapper requestStatMapper) {
         this.props = props;
         this.auditLogMapper = auditLogMapper;
         this.requestLogMapper = requestLogMapper;
         this.authLogMapper = authLogMapper;
         this.errorLogMapper = errorLogMapper;
+        this.fileSink = fileSink;
+        this.partitions = partitions;
+        this.requestStatMapper = requestStatMapper;
     }
 
     /**
      * 定期执行日志清理：按各表的保留天数删除 created_at 在截止时间之前的数据。
-     * 注意：为避免长事务与锁影响，将每类日志分别清理；若数据量巨大，建议改为分批 limit 删除。
+     * 策略：
+     * - 已分区的表先预建未来分区，再整段 DROP PARTITION 删除全部过期的日分区（见 {@link LogPartitionManager}）；
+     * - 剩余的过期行（未分区表，或分区内不足一天的部分）按 logdb.delete-chunk-size 分批删除，
+     *   批次之间休眠 logdb.delete-chunk-sleep-ms，避免一次性大 DELETE 长时间持锁并撑大 undo log；
+     * - 每类日志分别清理，单表失败不影响其他表。
      */
+    @Async("maintenanceTaskExecutor")
     @Scheduled(fixedDelayString = "${logdb.retention-sweep-interval-ms:3600000}")
     public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoffReq = now.minusDays(props.getRetentionRequestDays());
+        LocalDateTime cutoffAuth = now.minusDays(props.getRetentionAuthDays());
+        LocalDateTime cutoffErr = now.minusDays(props.getRetentionErrorDays());
+        LocalDateTime cutoffAudit = now.minusDays(props.getRetentionAuditDays());
+
+        long reqDel = purge("request_logs", requestLogMapper, cutoffReq);
+        long authDel = purge("auth_logs", authLogMapper, cutoffAuth);
+        long errDel = purge("error_logs", errorLogMapper, cutoffErr);
+        long auditDel = purge("audit_logs", auditLogMapper, cutoffAudit);
+        long statsDel = purgeRequestStats(now.minusDays(props.getRetentionRequestStatsDays()));
+
+        // 本地分段文件清理
+        int segDel = 0;
+        try {
+            segDel = fileSink.purgeBefore(LogSink.Type.REQUEST, cutoffReq)
+                    + fileSink.purgeBefore(LogSink.Type.AUTH, cutoffAuth)
+                    + fileSink.purgeBefore(LogSink.Type.ERROR, cutoffErr)
+                    + fileSink.purgeBefore(LogSink.Type.AUDIT, cutoffAudit);
+        } catch (Exception e) {
+            log.warn("[LogRetention] segment purge failed: {}", e.getMessage());
+        }
+
+        log.info("[LogRetention] sweep done: requestDel={} authDel={} errorDel={} auditDel={} statsDel={} segmentsDel={}",
+                reqDel, authDel, errDel, auditDel, statsDel, segDel);
+    }
+
+    /**
+     * 清理单张日志表。
+     * 返回：
+     * - 分批删除的行数（整段删除的分区不计行数，只记录日志）；失败时返回已删除的部分。
+     */
+    private <T> long purge(String table, BaseMapper<T> mapper, LocalDateTime cutoff) {
+        long deleted = 0;
         try {
-            // 请求日志清理
-            LocalDateTime cutoffReq = LocalDateTime.now().minusDays(props.getRetentionRequestDays());
-            int reqDel = requestLogMapper.delete(new QueryWrapper<RequestLog>()
-                    .lt("created_at", cutoffReq));
-            // 认证日志清理
-            LocalDateTime cutoffAuth = LocalDateTime.now().minusDays(props.getRetentionAuthDays());
-            int authDel = authLogMapper.delete(new QueryWrapper<AuthLog>()
-                    .lt("created_at", cutoffAuth));
-            // 错误日志清理
-            LocalDateTime cutoffErr = LocalDateTime.now().minusDays(props.getRetentionErrorDays());
-            int errDel = errorLogMapper.delete(new QueryWrapper<ErrorLog>()
-                    .lt("created_at", cutoffErr));
-            // 审计日志清理
-            LocalDateTime cutoffAudit = LocalDateTime.now().minusDays(props.getRetentionAuditDays());
-            int auditDel = auditLogMapper.delete(new QueryWrapper<AuditLog>()
-                    .lt("created_at", cutoffAudit));
+            if (partitions.isPartitioned(table)) {
+                partitions.rotate(table);
+                int dropped = partitions.dropExpired(table, cutoff);
+                if (dropped > 0) {
+                    log.info("[LogRetention] {} dropped {} expired partitions", table, dropped);
+                }
+            }
+            int chunk = Math.max(100, props.getDeleteChunkSize());
+            long sleepMs = Math.max(0L, props.getDeleteChunkSleepMs());
+            int n;
+            do {
+                n = mapper.delete(new QueryWrapper<T>().lt("created_at", cutoff).last("LIMIT " + chunk));
+                deleted += n;
+                if (n >= chunk && sleepMs > 0) {
+                    Thread.sleep(sleepMs);
+                }
+            } while (n >= chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("[LogRetention] purge {} failed: {}", table, e.getMessage());
+        }
+        return deleted;
+    }
 
-            log.info("[LogRetention] sweep done: requestDel={} authDel={} errorDel={} auditDel={}",
-                    reqDel, authDel, errDel, auditDel);
+    /** 清理 request_stats 中超过 logdb.retention-request-stats-days 的分钟汇总（同样分批删除）。 */
+    private long purgeRequestStats(LocalDateTime cutoff) {
+        long deleted = 0;
+        try {
+            int chunk = Math.max(100, props.getDeleteChunkSize());
+            int n;
+            do {
+                n = requestStatMapper.deleteBefore(cutoff, chunk);
+                deleted += n;
+            } while (n >= chunk);
         } catch (Exception e) {
-            log.warn("[LogRetention] sweep failed: {}", e.getMessage());
+            log.warn("[LogRetention] purge request_stats failed: {}", e.getMessage());
         }
+        return deleted;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.yunbq.backend.job;
+
+import com.yunbq.backend.mapper.NoteMapper;
+import com.yunbq.backend.service.ContentVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 点赞/收藏反范式计数对账任务。
+ * 作用：shiyan.like_count / favorite_count 由点赞/收藏切换时原子增减维护，
+ *      但历史数据、手工改库或异常中断可能造成漂移；本任务定期以 note_likes / note_favorites 为准修复。
+ * 策略：按便签 ID 区间分批执行 UPDATE ... JOIN (GROUP BY) 只改写不一致的行，单批事务短、锁范围小。
+ * 触发：固定延迟执行（fixedDelay），间隔来自配置 notes.counter.reconcile-interval-ms。
+ */
+@Component
+public class NoteCounterReconciler {
+    private static final Logger log = LoggerFactory.getLogger(NoteCounterReconciler.class);
+
+    private final NoteMapper noteMapper;
+    private final ContentVersions versions;
+    private final int batchSize;
+
+    public NoteCounterReconciler(NoteMapper noteMapper,
+                                 ContentVersions versions,
+                                 @Value("${notes.counter.reconcile-batch-size:1000}") int batchSize) {
+        this.noteMapper = noteMapper;
+        this.versions = versions;
+        this.batchSize = Math.max(100, batchSize);
+    }
+
+    /**
+     * 定期对账：从 ID 1 扫描到当前最大 ID，每批 batchSize 个 ID。
+     * 注意：批次之间不持有事务，期间发生的点赞/收藏不受影响；极端并发下单批可能短暂覆盖一次增量，
+     *      下一轮对账会再次收敛。
+     */
+    @Scheduled(fixedDelayString = "${notes.counter.reconcile-interval-ms:600000}",
+               initialDelayString = "${notes.counter.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        try {
+            Long maxId = noteMapper.selectMaxId();
+            if (maxId == null) return;
+            int likeFixed = 0;
+            int favFixed = 0;
+            for (long from = 1; from <= maxId; from += batchSize) {
+                long to = Math.min(from + batchSize - 1, maxId);
+                likeFixed += noteMapper.reconcileLikeCounts(from, to);
+                favFixed += noteMapper.reconcileFavoriteCounts(from, to);
+            }
+            if (likeFixed > 0 || favFixed > 0) {
+                versions.bump(ContentVersions.NOTES);
+                log.info("[NoteCounter] reconcile done: likeFixed={} favoriteFixed={} maxId={}", likeFixed, favFixed, maxId);
+            }
+        } catch (Exception e) {
+            log.warn("[NoteCounter] reconcile failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.yunbq.backend.job;
+
+import com.yunbq.backend.mapper.NoteScoreMapper;
+import com.yunbq.backend.service.NoteHotRanking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 热门便签热度分计算任务。
+ * 作用：按窗口期（notes.hot.window-days）内的点赞/收藏明细计算时间衰减热度分，写入 note_scores；
+ *      GET /api/notes/hot 只读取该表（并经本地缓存），请求路径不再做聚合。
+ * 策略：单条 INSERT ... SELECT ... GROUP BY ... ON DUPLICATE KEY UPDATE 覆盖本轮分数，
+ *      再删除 computed_at 早于本轮的旧行；互动表按 created_at 索引做范围扫描。
+ * 触发：固定延迟执行（fixedDelay），间隔来自配置 notes.hot.recompute-interval-ms；启动后短延迟先算一次。
+ */
+@Component
+public class NoteHotScoreJob {
+    private static final Logger log = LoggerFactory.getLogger(NoteHotScoreJob.class);
+
+    private final NoteScoreMapper scoreMapper;
+    private final NoteHotRanking hotRanking;
+    private final int windowDays;
+    private final double lambda;
+
+    public NoteHotScoreJob(NoteScoreMapper scoreMapper,
+                           NoteHotRanking hotRanking,
+                           @Value("${notes.hot.window-days:30}") int windowDays,
+                           @Value("${notes.hot.half-life-hours:72}") double halfLifeHours) {
+        this.scoreMapper = scoreMapper;
+        this.hotRanking = hotRanking;
+        this.windowDays = Math.max(1, windowDays);
+        this.lambda = Math.log(2) / Math.max(1.0, halfLifeHours);
+    }
+
+    @Scheduled(fixedDelayString = "${notes.hot.recompute-interval-ms:300000}", initialDelayString = "${notes.hot.initial-delay-ms:15000}")
+    public void recompute() {
+        // 截断到秒，保证与 DATETIME 列比较时精度一致
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        try {
+            long start = System.currentTimeMillis();
+            int upserted = scoreMapper.upsertScores(now.minusDays(windowDays), now, lambda);
+            int removed = scoreMapper.deleteStale(now);
+            hotRanking.invalidate();
+            log.info("[NoteHot] scores recomputed: upserted={} removed={} costMs={}", upserted, removed, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("[NoteHot] recompute failed: {}", e.getMessage());
+        }
+    }
+}
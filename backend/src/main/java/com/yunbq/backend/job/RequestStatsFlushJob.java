@@ -0,0 +1,35 @@
+package com.yunbq.backend.job;
+
+import com.yunbq.backend.service.RequestStatsAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 请求耗时分钟汇总落库任务。
+ * 作用：把 RequestStatsAggregator 中已结束的分钟写入 request_stats，供 GET /api/admin/request-stats 按窗口求分位数。
+ * 触发：固定延迟执行（fixedDelay），间隔来自配置 logdb.request-stats-flush-interval-ms；应用关闭时由聚合器自身全量写出。
+ */
+@Component
+public class RequestStatsFlushJob {
+    private static final Logger log = LoggerFactory.getLogger(RequestStatsFlushJob.class);
+
+    private final RequestStatsAggregator aggregator;
+
+    public RequestStatsFlushJob(RequestStatsAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    @Scheduled(fixedDelayString = "${logdb.request-stats-flush-interval-ms:30000}")
+    public void flush() {
+        try {
+            int written = aggregator.flush(false);
+            if (written > 0) {
+                log.debug("[RequestStats] flushed {} minute rows, pendingKeys={}", written, aggregator.pendingKeys());
+            }
+        } catch (Exception e) {
+            log.warn("[RequestStats] flush failed: {}", e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package com.yunbq.backend.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.yunbq.backend.model.AuditLog;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 /**
  * 审计日志 Mapper 接口
@@ -16,5 +23,13 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface AuditLogMapper extends BaseMapper<AuditLog> {
-    // 这里保留扩展自定义查询的空间，例如复杂筛选或聚合统计。
-}
\ No newline at end of file
+    /**
+     * 按条件流式读取审计日志，供导出使用。
+     * 说明：
+     * - fetchSize = Integer.MIN_VALUE 使 MySQL 驱动逐行流式返回，而非一次性缓冲整个结果集；
+     * - 返回的 Cursor 只能在打开它的事务内迭代，调用方需在 @Transactional 方法中使用并关闭。
+     */
+    @Select("SELECT * FROM audit_logs ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<AuditLog> selectCursor(@Param(Constants.WRAPPER) Wrapper<AuditLog> wrapper);
+}
@@ -1,8 +1,15 @@
 package com.yunbq.backend.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.yunbq.backend.model.ErrorLog;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 /**
  * 错误日志 Mapper 接口
@@ -15,4 +22,13 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface ErrorLogMapper extends BaseMapper<ErrorLog> {
-}
\ No newline at end of file
+    /**
+     * 按条件流式读取错误日志，供导出使用。
+     * 说明：
+     * - fetchSize = Integer.MIN_VALUE 使 MySQL 驱动逐行流式返回，而非一次性缓冲整个结果集；
+     * - 返回的 Cursor 只能在打开它的事务内迭代，调用方需在 @Transactional 方法中使用并关闭。
+     */
+    @Select("SELECT * FROM error_logs ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<ErrorLog> selectCursor(@Param(Constants.WRAPPER) Wrapper<ErrorLog> wrapper);
+}
@@ -13,7 +13,7 @@ import java.util.Map;
  * 消息中心 Mapper 接口
  * 职责：
  * - 提供消息的分页查询、分组统计（未读计数）、总量计算等；
- * - 联表查询触发者（用户）与便签摘要信息用于前端展示。
+ * - 联表查询便签摘要信息用于前端展示（触发者资料由服务层从 UserProfileCache 补齐）。
  *
  * 分页与筛选：
  * - 列表查询支持按消息类型可选过滤（type 允许为 null 表示不限）；
@@ -48,7 +48,7 @@ public interface MessageMapper extends BaseMapper<Message> {
     Long unreadTotal(@Param("uid") Long uid);
 
     /**
-     * 分页查询消息，并联表取触发者信息与拾言摘要。
+     * 分页查询消息，并联表取拾言摘要（返回触发者 ID，昵称/头像由服务层补齐，不再联表 users）。
      * 筛选与排序：
      * - 可选按类型过滤；按 `m.created_at DESC` 排序；
      * 分页：
@@ -58,15 +58,14 @@ public interface MessageMapper extends BaseMapper<Message> {
      * - type：消息类型（可为 null 表示不限）；
      * - offset/size：分页偏移与大小。
      * 返回：
-     * - 扁平字段的 Map 列表，包含触发者昵称与摘要文本，便于前端直接渲染。
+     * - 扁平字段的 Map 列表，包含触发者 ID 与摘要文本。
      */
     @Select({
             "SELECT m.id, m.type, m.is_read AS isRead, m.created_at AS createdAt,",
-            "       u.username AS actorUsername, u.nickname AS actorNickname, u.avatar_url AS actorAvatarUrl,",
+            "       m.actor_user_id AS actorUserId,",
             "       n.id AS noteId, SUBSTRING(n.content, 1, 160) AS contentSnippet,",
             "       m.message",
             "  FROM messages m",
-            "  LEFT JOIN users u ON u.id = m.actor_user_id",
             "  LEFT JOIN shiyan n ON n.id = m.note_id",
             " WHERE m.receiver_user_id = #{uid}",
             "   AND (#{type} IS NULL OR m.type = #{type})",
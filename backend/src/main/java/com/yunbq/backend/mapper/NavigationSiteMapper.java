@@ -3,10 +3,12 @@ package com.yunbq.backend.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yunbq.backend.model.NavigationSite;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 导航站点 Mapper 接口
@@ -81,6 +83,24 @@ public interface NavigationSiteMapper extends BaseMapper<NavigationSite> {
      */
     @Update("UPDATE navigation_sites SET click_count = click_count + 1 WHERE id = #{siteId}")
     int incrementClickCount(Long siteId);
+
+    /**
+     * 批量累加站点点击次数（由 NavigationClickBuffer 定时刷盘调用）。
+     * 说明：
+     * - 单条 `UPDATE ... SET click_count = click_count + CASE id ... END`，一次写入多个站点的增量；
+     * - 增量累加而非覆盖，多实例各自刷盘互不影响；不存在的站点 ID 不影响其他行。
+     * 参数：
+     * - deltas：站点 ID → 点击增量（非空，条数由调用方按批次控制）。
+     * 返回：
+     * - 影响行数。
+     */
+    @Update({"<script>",
+            "UPDATE navigation_sites SET click_count = click_count + CASE id",
+            "<foreach collection='deltas' index='id' item='n'> WHEN #{id} THEN #{n}</foreach>",
+            " ELSE 0 END",
+            "WHERE id IN <foreach collection='deltas' index='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    int addClickCounts(@Param("deltas") Map<Long, Long> deltas);
     
     /**
      * 查询用户添加的站点。
@@ -1,7 +1,11 @@
 package com.yunbq.backend.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.yunbq.backend.model.NoteFavorite;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -54,4 +58,73 @@ public interface NoteFavoriteMapper extends BaseMapper<NoteFavorite> {
      * - 用户已收藏的便签 ID 列表。
      */
     List<Long> findFavoritedNoteIdsByUser(@Param("userId") Long userId, @Param("ids") List<Long> ids);
-}
\ No newline at end of file
+
+    /**
+     * 按便签 ID 升序列出用户收藏过的全部便签 ID（用于构建按用户的内存集合）。
+     * 参数：
+     * - userId：用户 ID；
+     * - limit：最多返回条数（调用方传入上限 + 1 以判断是否超限）。
+     */
+    @Select("SELECT note_id FROM note_favorites WHERE user_id = #{userId} ORDER BY note_id LIMIT #{limit}")
+    List<Long> selectNoteIdsByUser(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * 联表查询用户的收藏记录（“我收藏的”列表），条件、排序与 LIMIT 由 wrapper 提供。
+     * 说明：
+     * - 以 note_favorites 为驱动表（别名 r）半连接 shiyan（别名 s），只为叠加关键词等便签侧条件，不取便签列；
+     * - wrapper 中的收藏表列须带别名（r.user_id / r.created_at / r.id），content/tags 可直接引用；
+     * - 配合 (user_id, created_at, id) 索引按收藏时间倒序分页，结果规模只与页大小相关。
+     */
+    @Select("SELECT r.* FROM note_favorites r JOIN shiyan s ON s.id = r.note_id ${ew.customSqlSegment}")
+    List<NoteFavorite> selectByUserJoined(@Param(Constants.WRAPPER) Wrapper<?> wrapper);
+
+    /** 统计 {@link #selectByUserJoined} 同条件下的记录数（wrapper 不应包含排序与 LIMIT）。 */
+    @Select("SELECT COUNT(*) FROM note_favorites r JOIN shiyan s ON s.id = r.note_id ${ew.customSqlSegment}")
+    long countByUserJoined(@Param(Constants.WRAPPER) Wrapper<?> wrapper);
+
+    /**
+     * 幂等写入收藏记录：依赖 (note_id, user_id) 唯一索引，重复时忽略。
+     * 返回：
+     * - 1 表示新写入；0 表示已存在（调用方据此决定是否调整计数与发送消息）。
+     */
+    @Insert("INSERT IGNORE INTO note_favorites (note_id, user_id, created_at) VALUES (#{noteId}, #{userId}, #{createdAt})")
+    int insertIgnore(@Param("noteId") Long noteId, @Param("userId") Long userId, @Param("createdAt") java.time.LocalDateTime createdAt);
+
+    /**
+     * 删除指定用户对便签的收藏记录。
+     * 返回：
+     * - 1 表示确有删除；0 表示本就不存在。
+     */
+    @Delete("DELETE FROM note_favorites WHERE note_id = #{noteId} AND user_id = #{userId}")
+    int deleteByNoteAndUser(@Param("noteId") Long noteId, @Param("userId") Long userId);
+
+    /**
+     * 批量幂等写入收藏记录（多行 INSERT IGNORE），供写后缓冲（write-behind）刷盘使用。
+     * 参数：
+     * - rows：待写入记录（仅使用 noteId/userId/createdAt），非空。
+     * 返回：
+     * - 实际新增的行数。
+     */
+    @Insert({
+        "<script>",
+        "INSERT IGNORE INTO note_favorites (note_id, user_id, created_at) VALUES ",
+        "<foreach collection='rows' item='r' separator=','>(#{r.noteId}, #{r.userId}, #{r.createdAt})</foreach>",
+        "</script>"
+    })
+    int insertIgnoreBatch(@Param("rows") List<NoteFavorite> rows);
+
+    /**
+     * 批量删除收藏记录（按 (note_id, user_id) 行构造器匹配唯一索引）。
+     * 参数：
+     * - rows：待删除记录（仅使用 noteId/userId），非空。
+     * 返回：
+     * - 实际删除的行数。
+     */
+    @Delete({
+        "<script>",
+        "DELETE FROM note_favorites WHERE (note_id, user_id) IN ",
+        "<foreach collection='rows' item='r' open='(' separator=',' close=')'>(#{r.noteId}, #{r.userId})</foreach>",
+        "</script>"
+    })
+    int deleteBatch(@Param("rows") List<NoteFavorite> rows);
+}
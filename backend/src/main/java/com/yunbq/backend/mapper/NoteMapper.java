@@ -1,9 +1,156 @@
 package com.yunbq.backend.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yunbq.backend.model.Note;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拾言（便签）Mapper 接口
+ * 职责：
+ * - 基础 CRUD 由 BaseMapper 提供；
+ * - 列表页用户态查询：一次往返取回当前用户对整页便签的点赞/收藏标记；
+ * - 反范式计数 like_count/favorite_count 的原子增减与按 ID 区间对账；
+ * - 全文检索分页：按 FULLTEXT(content, tags) 相关度排序；
+ * - 导出：以流式游标逐行读取某用户的全部便签。
+ */
 @Mapper
 public interface NoteMapper extends BaseMapper<Note> {
-}
\ No newline at end of file
+
+    /**
+     * 批量查询当前用户对一页便签的点赞/收藏状态（单次往返）。
+     * 说明：
+     * - EXISTS 子查询命中 (note_id, user_id) 唯一索引；
+     * - 仅在 {@code ViewerInteractionCache} 未能提供用户态（关闭或交互数超限）时调用；
+     * - 作者资料由 {@code UserProfileCache} 提供，点赞/收藏数量读取 shiyan 上的反范式计数列，均不在此查询。
+     * 参数：
+     * - ids：便签 ID 集合（非空，通常为一页大小）；
+     * - viewerId：当前用户 ID（非空）。
+     * 返回：
+     * - 列表项 { noteId, likedByMe, favoritedByMe }。
+     */
+    @Select({
+        "<script>",
+        "SELECT n.id AS noteId,",
+        "       EXISTS (SELECT 1 FROM note_likes l2 WHERE l2.note_id = n.id AND l2.user_id = #{viewerId}) AS likedByMe,",
+        "       EXISTS (SELECT 1 FROM note_favorites f2 WHERE f2.note_id = n.id AND f2.user_id = #{viewerId}) AS favoritedByMe",
+        "  FROM shiyan n",
+        " WHERE n.id IN ",
+        "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+        "</script>"
+    })
+    List<Map<String, Object>> selectViewerFlags(@Param("ids") List<Long> ids, @Param("viewerId") Long viewerId);
+
+    /**
+     * 全文检索分页：条件由调用方 wrapper 组装（可见范围 + MATCH 条件），按相关度倒序、更新时间倒序排序。
+     * 说明：
+     * - wrapper 中不应再设置 ORDER BY，排序由本语句固定追加；
+     * - 分页与 COUNT 由 MyBatis-Plus 分页插件处理。
+     * 参数：
+     * - page：分页参数；
+     * - wrapper：查询条件；
+     * - against：BOOLEAN MODE 查询串（与条件中的 MATCH 一致）。
+     */
+    @Select("SELECT * FROM shiyan ${ew.customSqlSegment} " +
+            "ORDER BY MATCH(content, tags) AGAINST(#{against} IN BOOLEAN MODE) DESC, updated_at DESC, id DESC")
+    Page<Note> selectSearchPage(Page<Note> page, @Param(Constants.WRAPPER) Wrapper<Note> wrapper, @Param("against") String against);
+
+    /**
+     * 多行插入便签（批量导入使用），自增 ID 回填到每个实体。
+     * 说明：
+     * - 计数列使用表默认值 0；
+     * - 单次行数由调用方分块控制，避免超出 max_allowed_packet。
+     * 返回：
+     * - 插入行数。
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO shiyan (user_id, content, tags, color, archived, is_public, created_at, updated_at) VALUES ",
+        "<foreach collection='rows' item='r' separator=','>",
+        "(#{r.userId}, #{r.content}, #{r.tags}, #{r.color}, #{r.archived}, #{r.isPublic}, #{r.createdAt}, #{r.updatedAt})",
+        "</foreach>",
+        "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "rows.id", keyColumn = "id")
+    int insertBatch(@Param("rows") List<Note> rows);
+
+    /**
+     * 流式读取某用户的全部便签（按 ID 升序），供导出使用。
+     * 说明：
+     * - fetchSize = Integer.MIN_VALUE 使 MySQL 驱动逐行流式返回，而非一次性缓冲整个结果集；
+     * - 返回的 Cursor 只能在打开它的事务/SqlSession 内迭代，调用方需在 @Transactional 方法中使用并关闭。
+     */
+    @Select("SELECT * FROM shiyan WHERE user_id = #{userId} ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Note> selectCursorByUser(@Param("userId") Long userId);
+
+    /**
+     * 原子调整点赞计数（delta 可为负数），结果不低于 0。
+     * 参数：
+     * - id：便签 ID；
+     * - delta：增量（+1 点赞 / -1 取消点赞）。
+     * 返回：
+     * - 影响行数。
+     */
+    @Update("UPDATE shiyan SET like_count = GREATEST(like_count + #{delta}, 0) WHERE id = #{id}")
+    int adjustLikeCount(@Param("id") Long id, @Param("delta") long delta);
+
+    /**
+     * 原子调整收藏计数（delta 可为负数），结果不低于 0。
+     */
+    @Update("UPDATE shiyan SET favorite_count = GREATEST(favorite_count + #{delta}, 0) WHERE id = #{id}")
+    int adjustFavoriteCount(@Param("id") Long id, @Param("delta") long delta);
+
+    /** 读取当前点赞计数（主键查询，O(1)）。 */
+    @Select("SELECT like_count FROM shiyan WHERE id = #{id}")
+    Long selectLikeCount(@Param("id") Long id);
+
+    /** 读取当前收藏计数（主键查询，O(1)）。 */
+    @Select("SELECT favorite_count FROM shiyan WHERE id = #{id}")
+    Long selectFavoriteCount(@Param("id") Long id);
+
+    /** 当前最大便签 ID（对账任务按区间分批扫描的上界）。 */
+    @Select("SELECT MAX(id) FROM shiyan")
+    Long selectMaxId();
+
+    /**
+     * 对账：按 ID 区间以 note_likes 实际行数修复 like_count 漂移。
+     * 仅更新不一致的行，区间大小由调用方控制，避免长事务与大范围锁。
+     * 返回：
+     * - 被修复的行数。
+     */
+    @Update({
+        "UPDATE shiyan n",
+        "  LEFT JOIN (SELECT note_id, COUNT(*) AS c FROM note_likes",
+        "              WHERE note_id BETWEEN #{fromId} AND #{toId} GROUP BY note_id) l ON l.note_id = n.id",
+        "   SET n.like_count = COALESCE(l.c, 0)",
+        " WHERE n.id BETWEEN #{fromId} AND #{toId}",
+        "   AND n.like_count <> COALESCE(l.c, 0)"
+    })
+    int reconcileLikeCounts(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * 对账：按 ID 区间以 note_favorites 实际行数修复 favorite_count 漂移。
+     */
+    @Update({
+        "UPDATE shiyan n",
+        "  LEFT JOIN (SELECT note_id, COUNT(*) AS c FROM note_favorites",
+        "              WHERE note_id BETWEEN #{fromId} AND #{toId} GROUP BY note_id) f ON f.note_id = n.id",
+        "   SET n.favorite_count = COALESCE(f.c, 0)",
+        " WHERE n.id BETWEEN #{fromId} AND #{toId}",
+        "   AND n.favorite_count <> COALESCE(f.c, 0)"
+    })
+    int reconcileFavoriteCounts(@Param("fromId") long fromId, @Param("toId") long toId);
+}
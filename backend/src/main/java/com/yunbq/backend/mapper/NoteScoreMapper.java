@@ -0,0 +1,63 @@
+package com.yunbq.backend.mapper;
+
+import com.yunbq.backend.model.Note;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 热门分数表 Mapper 接口（note_scores）
+ * 职责：
+ * - 由定时任务按点赞/收藏明细计算时间衰减热度分并整体刷新；
+ * - 按分数倒序读取热门公开便签（仅主键连接，无聚合）。
+ *
+ * 分数定义：
+ * - score = Σ 权重 × exp(-lambda × 互动距今小时数)，点赞权重 0.5、收藏权重 1.0；
+ * - lambda = ln2 / 半衰期（小时），即每经过一个半衰期，一次互动的贡献减半。
+ */
+@Mapper
+public interface NoteScoreMapper {
+
+    /**
+     * 以窗口期内的点赞/收藏明细重算热度分并写入（存在则覆盖）。
+     * 参数：
+     * - since：窗口起点（早于该时间的互动不计分）；
+     * - now：本轮计算时间（同时写入 computed_at，用于清理未被本轮覆盖的旧行）；
+     * - lambda：衰减系数（每小时）。
+     * 返回：
+     * - 影响行数（MySQL 对覆盖的行计 2）。
+     */
+    @Insert({
+        "INSERT INTO note_scores (note_id, score, computed_at)",
+        "SELECT a.note_id, SUM(a.w * EXP(-#{lambda} * TIMESTAMPDIFF(MINUTE, a.created_at, #{now}) / 60.0)) AS s, #{now}",
+        "  FROM (SELECT note_id, created_at, 0.5 AS w FROM note_likes WHERE created_at >= #{since}",
+        "        UNION ALL",
+        "        SELECT note_id, created_at, 1.0 AS w FROM note_favorites WHERE created_at >= #{since}) a",
+        "  JOIN shiyan n ON n.id = a.note_id AND n.is_public = 1 AND n.archived = 0",
+        " GROUP BY a.note_id",
+        "ON DUPLICATE KEY UPDATE score = VALUES(score), computed_at = VALUES(computed_at)"
+    })
+    int upsertScores(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now, @Param("lambda") double lambda);
+
+    /** 删除本轮未覆盖的旧分数行（互动已滑出窗口或便签已转私有/归档）。 */
+    @Delete("DELETE FROM note_scores WHERE computed_at < #{now}")
+    int deleteStale(@Param("now") LocalDateTime now);
+
+    /**
+     * 读取热门公开便签（按分数倒序）。
+     * 说明：读取时再次校验公开/未归档，避免两次计算之间可见性变化的便签出现在热门中。
+     */
+    @Select({
+        "SELECT n.* FROM note_scores s",
+        "  JOIN shiyan n ON n.id = s.note_id",
+        " WHERE n.is_public = 1 AND n.archived = 0",
+        " ORDER BY s.score DESC, n.id DESC",
+        " LIMIT #{limit}"
+    })
+    List<Note> selectTop(@Param("limit") int limit);
+}
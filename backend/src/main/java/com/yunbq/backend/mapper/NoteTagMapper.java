@@ -0,0 +1,75 @@
+package com.yunbq.backend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yunbq.backend.model.NoteTag;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 便签标签索引 Mapper 接口
+ * 职责：
+ * - 维护 note_tags（note_id, tag）规范化标签行：按便签整体删除后批量写入；
+ * - 标签云/分面统计：按标签聚合公开便签数量。
+ *
+ * 索引：
+ * - 主键 (note_id, tag)：按便签重建时定位；
+ * - idx_note_tags_tag (tag, note_id)：按标签精确筛选与 GROUP BY 聚合。
+ */
+@Mapper
+public interface NoteTagMapper extends BaseMapper<NoteTag> {
+
+    /** 删除某便签的全部标签行。 */
+    @Delete("DELETE FROM note_tags WHERE note_id = #{noteId}")
+    int deleteByNoteId(@Param("noteId") Long noteId);
+
+    /**
+     * 批量写入某便签的标签行（多行 INSERT IGNORE，重复标签忽略）。
+     * 参数：
+     * - noteId：便签 ID；
+     * - tags：已规范化的标签列表（非空）。
+     */
+    @Insert({
+        "<script>",
+        "INSERT IGNORE INTO note_tags (note_id, tag) VALUES ",
+        "<foreach collection='tags' item='t' separator=','>(#{noteId}, #{t})</foreach>",
+        "</script>"
+    })
+    int insertTags(@Param("noteId") Long noteId, @Param("tags") List<String> tags);
+
+    /**
+     * 批量写入多条便签的标签行（多行 INSERT IGNORE，批量导入使用）。
+     * 参数：
+     * - rows：标签行（noteId/tag），非空。
+     */
+    @Insert({
+        "<script>",
+        "INSERT IGNORE INTO note_tags (note_id, tag) VALUES ",
+        "<foreach collection='rows' item='r' separator=','>(#{r.noteId}, #{r.tag})</foreach>",
+        "</script>"
+    })
+    int insertRows(@Param("rows") List<NoteTag> rows);
+
+    /**
+     * 标签分面：统计公开且未归档便签中出现次数最多的标签。
+     * 参数：
+     * - limit：返回条数上限。
+     * 返回：
+     * - 列表项 { tag, count }，按 count 倒序。
+     */
+    @Select({
+        "SELECT t.tag AS tag, COUNT(*) AS count",
+        "  FROM note_tags t",
+        "  JOIN shiyan n ON n.id = t.note_id",
+        " WHERE n.is_public = 1 AND n.archived = 0",
+        " GROUP BY t.tag",
+        " ORDER BY count DESC, t.tag ASC",
+        " LIMIT #{limit}"
+    })
+    List<Map<String, Object>> selectTopPublicTags(@Param("limit") int limit);
+}
@@ -1,8 +1,18 @@
 package com.yunbq.backend.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.yunbq.backend.model.RequestLog;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.util.List;
 
 /**
  * 请求日志 Mapper 接口
@@ -13,7 +23,37 @@ import org.apache.ibatis.annotations.Mapper;
  * 分页与排序：
  * - 列表通常按 `created_at DESC` 排序；
  * - 过滤条件由控制器使用 QueryWrapper 组合后传递。
+ *
+ * 写入：
+ * - 请求日志由 RequestLogWriter 攒批后通过 {@link #insertBatch} 多行 INSERT 落库，不再逐条 insert。
  */
 @Mapper
 public interface RequestLogMapper extends BaseMapper<RequestLog> {
-}
\ No newline at end of file
+
+    @Insert({
+        "<script>",
+        "INSERT INTO request_logs (method, uri, query, ip, user_agent, status, duration_ms, user_id, request_id, created_at) VALUES ",
+        "<foreach collection='rows' item='r' separator=','>",
+        "(#{r.method}, #{r.uri}, #{r.query}, #{r.ip}, #{r.userAgent}, #{r.status}, #{r.durationMs}, #{r.userId}, #{r.requestId}, #{r.createdAt})",
+        "</foreach>",
+        "</script>"
+    })
+    /**
+     * 多行批量写入请求日志。
+     * 参数：
+     * - rows：待写入记录（非空；单批条数由调用方控制，避免超过 max_allowed_packet）。
+     * 返回：
+     * - 受影响行数。
+     */
+    int insertBatch(@Param("rows") List<RequestLog> rows);
+
+    /**
+     * 按条件流式读取请求日志，供导出使用。
+     * 说明：
+     * - fetchSize = Integer.MIN_VALUE 使 MySQL 驱动逐行流式返回，而非一次性缓冲整个结果集；
+     * - 返回的 Cursor 只能在打开它的事务内迭代，调用方需在 @Transactional 方法中使用并关闭。
+     */
+    @Select("SELECT * FROM request_logs ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<RequestLog> selectCursor(@Param(Constants.WRAPPER) Wrapper<RequestLog> wrapper);
+}
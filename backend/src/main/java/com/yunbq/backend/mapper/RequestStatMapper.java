@@ -0,0 +1,69 @@
+package com.yunbq.backend.mapper;
+
+import com.yunbq.backend.model.RequestStat;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 请求耗时分钟汇总 Mapper 接口（request_stats）
+ * 职责：
+ * - RequestStatsAggregator 按分钟批量写入汇总行；
+ * - 管理端按时间窗口读取汇总行，在内存中合并直方图求分位数，不扫描 request_logs 原始明细。
+ *
+ * 说明：
+ * - 同一 (分钟, 路由, 状态码) 可能存在多行（多实例或重启前后各写一行），读取方按行累加即可。
+ */
+@Mapper
+public interface RequestStatMapper {
+
+    @Insert({
+        "<script>",
+        "INSERT INTO request_stats (bucket_start, route, status, cnt, sum_ms, max_ms, hist) VALUES ",
+        "<foreach collection='rows' item='r' separator=','>",
+        "(#{r.bucketStart}, #{r.route}, #{r.status}, #{r.cnt}, #{r.sumMs}, #{r.maxMs}, #{r.hist})",
+        "</foreach>",
+        "</script>"
+    })
+    /**
+     * 多行批量写入分钟汇总。
+     * 参数：
+     * - rows：待写入汇总行（非空）。
+     */
+    int insertBatch(@Param("rows") List<RequestStat> rows);
+
+    /**
+     * 流式读取窗口内的汇总行（逐行交给调用方合并，不整体装入 List）。
+     * 参数：
+     * - from / to：分钟范围 [from, to)；
+     * - route：可选，路由模板模糊匹配；
+     * - status：可选，精确状态码。
+     * 说明：
+     * - Cursor 只能在打开它的事务/SqlSession 内迭代，调用方需标注 @Transactional(readOnly = true) 并及时关闭。
+     */
+    @Select({
+        "<script>",
+        "SELECT bucket_start, route, status, cnt, sum_ms, max_ms, hist FROM request_stats",
+        " WHERE bucket_start &gt;= #{from} AND bucket_start &lt; #{to}",
+        "<if test='route != null'> AND route LIKE CONCAT('%', #{route}, '%')</if>",
+        "<if test='status != null'> AND status = #{status}</if>",
+        "</script>"
+    })
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<RequestStat> selectRangeCursor(@Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to,
+                                          @Param("route") String route,
+                                          @Param("status") Integer status);
+
+    /** 分批删除早于 cutoff 的汇总行（保留清理）。 */
+    @Delete("DELETE FROM request_stats WHERE bucket_start < #{cutoff} LIMIT #{limit}")
+    int deleteBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -1,6 +1,8 @@
 package com.yunbq.backend.model;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
@@ -24,4 +26,10 @@ public class Note {
     private Boolean isPublic; // 新增：公开/私有
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // 反范式计数：点赞/收藏数量，仅由 NoteMapper 的原子增减语句与对账任务维护；
+    // 插入/按实体更新时一律跳过，避免 updateById 用旧值覆盖并发写入的计数。
+    @TableField(insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
+    private Long likeCount;
+    @TableField(insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
+    private Long favoriteCount;
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.yunbq.backend.model;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 便签标签索引行（note_tags）
+ * 说明：
+ * - shiyan.tags 仍保留逗号分隔的原始展示串；本表为其规范化拆分结果，用于按标签精确筛选与标签聚合统计；
+ * - 复合主键 (note_id, tag)，由 NoteService 在创建/更新/导入时整体重建。
+ */
+@Data
+@TableName("note_tags")
+public class NoteTag {
+    private Long noteId;
+    private String tag;
+}
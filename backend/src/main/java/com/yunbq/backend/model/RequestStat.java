@@ -0,0 +1,26 @@
+package com.yunbq.backend.model;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 请求耗时分钟汇总实体。
+ * 字段设计与表 request_stats 对齐：每行是一个进程在一分钟内某路由模板 + 状态码的请求数、耗时合计/最大值与耗时直方图。
+ */
+@Data
+@TableName("request_stats")
+public class RequestStat {
+    private Long id;
+    /** 所在分钟（秒与纳秒为 0） */
+    private LocalDateTime bucketStart;
+    /** 方法 + 路由模板，如 "GET /api/notes/{id}"；未匹配到处理器的请求为 "GET UNMATCHED" */
+    private String route;
+    private Integer status;
+    private Long cnt;
+    private Long sumMs;
+    private Long maxMs;
+    /** LatencyHistogram 稀疏编码 */
+    private String hist;
+}
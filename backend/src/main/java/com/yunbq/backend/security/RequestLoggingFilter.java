@@ -1,6 +1,7 @@
 package com.yunbq.backend.security;
 
 import com.yunbq.backend.util.AuthUtil;
+import com.yunbq.backend.util.RequestIds;
 import org.slf4j.MDC;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -11,16 +12,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 
 import java.io.IOException;
 
 /**
  * 请求级别日志过滤器（OncePerRequestFilter）
  * 作用与设计：
- * - 生成并贯穿唯一的 `requestId`，通过响应头 `X-Request-Id` 暴露给前端；
- * - 在进入控制器前记录请求基线信息（方法、URI、查询串、用户ID等）；
- * - 在安全链路与控制器处理完成后记录响应状态码与耗时，用于快速定位是否被 401/403 拦截；
- * - 将关键指标持久化（ip、ua、status、cost、uid、requestId），便于后台管理页检索分析。
+ * - 生成并贯穿唯一的 `requestId`（{@link RequestIds}，按时间有序），通过响应头 `X-Request-Id` 暴露给前端；
+ * - 在进入控制器前记录请求基线信息（方法、URI、查询串、用户ID等，DEBUG 级别）；
+ * - 在安全链路与控制器处理完成后记录响应状态码与耗时（INFO，每请求一行），用于快速定位是否被 401/403 拦截；
+ * - 耗时使用 System.nanoTime 单调计时；仅用于调试的请求/响应头只在 DEBUG 开启时读取；
+ * - 将关键指标持久化（ip、ua、status、cost、uid、requestId），便于后台管理页检索分析；
+ * - 同时按路由模板/状态码/分钟计入耗时直方图（RequestStatsAggregator），不受请求日志采样影响。
  * 过滤器顺序：在 `SecurityConfig` 中注册为位于 `SecurityContextHolderFilter` 之前，
  * 以便将 `requestId` 提前放入请求属性与 MDC，后续过滤器与控制器均可使用该标识。
  * 使用建议：
@@ -33,14 +37,19 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
 
     // 说明：通过构造注入日志服务，将请求的关键指标持久化到数据库。
     private final com.yunbq.backend.service.LogService logService;
+    // 说明：按路由模板/状态码/分钟聚合耗时直方图，供管理端查询分位数（不依赖原始日志）。
+    private final com.yunbq.backend.service.RequestStatsAggregator statsAggregator;
 
     /**
      * 构造函数：注入日志服务用于持久化请求指标。
      * @param logService 日志服务（数据库持久化）
+     * @param statsAggregator 请求耗时分钟汇总
      */
     @Autowired
-    public RequestLoggingFilter(com.yunbq.backend.service.LogService logService) {
+    public RequestLoggingFilter(com.yunbq.backend.service.LogService logService,
+                                com.yunbq.backend.service.RequestStatsAggregator statsAggregator) {
         this.logService = logService;
+        this.statsAggregator = statsAggregator;
     }
 
     @Override
@@ -51,7 +60,7 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
      * - response：HTTP 响应对象；
      * - filterChain：过滤器链，需在处理完毕后继续调用。
      * 行为与边界：
-     * - 若请求属性已包含 `requestId`（上游代理/网关生成），则复用；否则生成新的唯一ID（如 UUID）；
+     * - 为每个请求生成新的唯一ID（按时间有序的 13 位字符串）；
      * - 将 `requestId` 放入 `MDC`，便于后续日志链路追踪；
      * - 在响应或异常场景结束时清理 `MDC`，防止泄漏到其他线程或请求。
      * 异常策略：
@@ -67,7 +76,8 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
         // - response：当前 HTTP 响应
         // - filterChain：过滤器链，调用后进入安全链路与控制器
         // 生成本次请求的唯一标识，用于贯穿日志与返回响应头，方便跨系统排查。
-        final String requestId = java.util.UUID.randomUUID().toString();
+        // 使用按时间有序的 64 位 ID（RequestIds）：一次 CAS，避免 UUID.randomUUID() 的 SecureRandom 争用。
+        final String requestId = RequestIds.next();
         request.setAttribute("requestId", requestId);
         response.setHeader("X-Request-Id", requestId);
         // 将 requestId 放入 MDC，便于控制台日志自动携带该标识。
@@ -75,23 +85,20 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
         final String method = request.getMethod();
         final String uri = request.getRequestURI();
         final String query = request.getQueryString();
-        // 补充采集并打印 CORS 相关请求头，便于定位 403 来源：
-        // - Origin：跨域的实际来源（协议+域名+端口），CORS 主要基于该值判断放行；
-        // - Access-Control-Request-Method：预检请求声明的实际方法（如 PATCH/DELETE 等）；
-        // - Access-Control-Request-Headers：预检请求声明的实际将要携带的非简单头（如 Authorization, X-Requested-With）。
-        final String origin = request.getHeader("Origin");
-        final String acrMethod = request.getHeader("Access-Control-Request-Method");
-        final String acrHeaders = request.getHeader("Access-Control-Request-Headers");
-        // 注意：此处不要过早读取用户ID，避免在 JWT 过滤器设置上下文之前读取到 null。
-        // 在 filterChain.doFilter 之后再读取一次，确保认证完成后能拿到正确的 userId。
-        Long uidBefore = AuthUtil.currentUserId();
 
-        // 进入链路前记录请求基线信息。
-        log.info("[RequestLoggingFilter] Incoming request: method={}, uri={}, query={}, uid={}",
-                method, uri, query, uidBefore);
-        // 额外打印 CORS 相关头，结合响应头可快速判断是否因跨域被拒绝。
-        log.debug("[RequestLoggingFilter] CORS headers: Origin={}, ACR-Method={}, ACR-Headers={}",
-                origin, acrMethod, acrHeaders);
+        // 进入链路前记录请求基线信息（DEBUG）；级别关闭时不读取用户与 CORS 相关请求头。
+        // 注意：此处读取到的用户ID通常为 null（JWT 过滤器尚未设置上下文），出站时再读取一次。
+        if (log.isDebugEnabled()) {
+            // 补充采集并打印 CORS 相关请求头，便于定位 403 来源：
+            // - Origin：跨域的实际来源（协议+域名+端口），CORS 主要基于该值判断放行；
+            // - Access-Control-Request-Method：预检请求声明的实际方法（如 PATCH/DELETE 等）；
+            // - Access-Control-Request-Headers：预检请求声明的实际将要携带的非简单头（如 Authorization, X-Requested-With）。
+            log.debug("[RequestLoggingFilter] Incoming request: method={}, uri={}, query={}, uid={}",
+                    method, uri, query, AuthUtil.currentUserId());
+            log.debug("[RequestLoggingFilter] CORS headers: Origin={}, ACR-Method={}, ACR-Headers={}",
+                    request.getHeader("Origin"), request.getHeader("Access-Control-Request-Method"),
+                    request.getHeader("Access-Control-Request-Headers"));
+        }
 
         // 采集入参以便持久化：客户端 IP 与 UA。
         // 说明：在经过 CDN/反向代理（如 Cloudflare、Nginx）时，`request.getRemoteAddr()` 通常是“最近一跳”的代理 IP，
@@ -103,7 +110,8 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
         final String ip = clientIp(request);
         final String ua = request.getHeader("User-Agent");
 
-        long start = System.currentTimeMillis();
+        // 单调时钟计时：不受系统时间回拨/校时影响
+        final long start = System.nanoTime();
         // 放行，交由后续安全链路与控制器处理。
         try {
             filterChain.doFilter(request, response);
@@ -111,36 +119,38 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
             // 无论链路是否异常，都需要清理 MDC，避免串请求污染。
             MDC.remove("requestId");
         }
-        long cost = (int)(System.currentTimeMillis() - start);
+        final int cost = (int) ((System.nanoTime() - start) / 1_000_000L);
 
         // 记录响应状态码，帮助快速确认是否到达控制器（通常 2xx/4xx 来自控制器），
         // 或在安全链路阶段被拦截（如 401 未认证、403 权限不足）。
         int status = response.getStatus();
         // 在认证过滤器运行后再次获取用户ID，记录到请求日志中。
         Long uidAfter = AuthUtil.currentUserId();
-        log.info("[RequestLoggingFilter] Response: method={}, uri={}, status={}, uid={}",
-                method, uri, status, uidAfter);
-        // 若启用 CORS，响应应包含 `Access-Control-Allow-Origin` 与（在允许凭据时）`Access-Control-Allow-Credentials`。
-        final String allowOrigin = response.getHeader("Access-Control-Allow-Origin");
-        final String allowCreds = response.getHeader("Access-Control-Allow-Credentials");
-        log.debug("[RequestLoggingFilter] CORS response: Allow-Origin={}, Allow-Credentials={}", allowOrigin, allowCreds);
+        if (log.isInfoEnabled()) {
+            log.info("[RequestLoggingFilter] Response: method={}, uri={}, status={}, uid={}, costMs={}",
+                    method, uri, status, uidAfter, cost);
+        }
+        if (log.isDebugEnabled()) {
+            // 若启用 CORS，响应应包含 `Access-Control-Allow-Origin` 与（在允许凭据时）`Access-Control-Allow-Credentials`。
+            log.debug("[RequestLoggingFilter] CORS response: Allow-Origin={}, Allow-Credentials={}",
+                    response.getHeader("Access-Control-Allow-Origin"), response.getHeader("Access-Control-Allow-Credentials"));
+            // 额外打印与“真实客户端 IP 推断”相关的请求头，便于运维定位“为何总是记录到代理 IP”。
+            log.debug("[RequestLoggingFilter] IP headers: CF-Connecting-IP={}, X-Forwarded-For={}, X-Real-IP={}, remoteAddr={}, resolvedIp={}",
+                    request.getHeader("CF-Connecting-IP"), request.getHeader("X-Forwarded-For"),
+                    request.getHeader("X-Real-IP"), request.getRemoteAddr(), ip);
+        }
 
-        // 额外打印与“真实客户端 IP 推断”相关的请求头，便于运维定位“为何总是记录到代理 IP”。
-        // 注意：仅在 DEBUG 级别输出，避免生产日志过于冗长。
+        // 计入分钟汇总：路由取 Spring MVC 匹配到的模板（如 /api/notes/{id}），未进入 DispatcherServlet 或未匹配时为 null。
         try {
-            String cfConnectingIp = request.getHeader("CF-Connecting-IP");
-            String xForwardedFor = request.getHeader("X-Forwarded-For");
-            String xRealIp = request.getHeader("X-Real-IP");
-            String remoteAddr = request.getRemoteAddr();
-            log.debug("[RequestLoggingFilter] IP headers: CF-Connecting-IP={}, X-Forwarded-For={}, X-Real-IP={}, remoteAddr={}, resolvedIp={}",
-                    cfConnectingIp, xForwardedFor, xRealIp, remoteAddr, ip);
-        } catch (Exception ignored) {
-            // 忽略打印头部信息失败的情况（极少发生），不影响正常业务与日志持久化
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            statsAggregator.record(method, pattern != null ? pattern.toString() : null, status, cost);
+        } catch (Exception e) {
+            log.warn("aggregate request stats failed: uri={} msg={}", uri, e.getMessage());
         }
 
         // 将请求指标持久化到数据库，便于后续在管理后台检索与分析。
         try {
-            logService.logRequest(method, uri, query, ip, ua, status, (int) cost, uidAfter, requestId);
+            logService.logRequest(method, uri, query, ip, ua, status, cost, uidAfter, requestId);
         } catch (Exception e) {
             // 说明：日志写入失败不影响正常请求流程，仅记录到控制台避免中断业务。
             log.warn("persist request log failed: uri={} msg={}", uri, e.getMessage());
@@ -101,6 +101,9 @@ public class SecurityConfig {
                 // 注意：该匹配需置于公开放行规则之前，避免被更宽的放行规则覆盖。
                 .requestMatchers("/api/navigation/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                // 指标端点（/actuator/metrics、/actuator/prometheus）包含接口与数据库耗时分布，仅管理员可读；
+                // Prometheus 抓取需携带管理员令牌，或通过 management.server.port 仅在内网暴露
+                .requestMatchers("/actuator/metrics/**", "/actuator/prometheus").hasRole("ADMIN")
                 // —— 导航系统公开接口放行 ——
                 // 说明：导航页面需要在未登录时也能浏览分类与站点，因此放行以下方法：
                 // - GET：页面数据获取
@@ -1,5 +1,6 @@
 package com.yunbq.backend.service;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
@@ -43,6 +44,7 @@ public class CaptchaService {
      * @return {@link Captcha} 记录，包含唯一标识 {@code id} 与 PNG Base64 的 {@code dataUrl}。
      * @implNote 有效期默认 180 秒；验证码内容使用无歧义字符集，大小写不敏感（校验时统一转换为小写）。
      */
+    @Timed("yunbq.captcha.render")
     public Captcha generate() {
         String code = randomCode(5);
         String id = UUID.randomUUID().toString();
@@ -60,6 +62,7 @@ public class CaptchaService {
      * @return 校验通过返回 {@code true}；未生成、已过期或不匹配返回 {@code false}。
      * @implNote 一次性使用：验证成功后立即移除；若已过期也会清理存储。
      */
+    @Timed("yunbq.captcha.verify")
     public boolean verify(String id, String input) {
         if (id == null || input == null) return false;
         CaptchaEntry entry = store.get(id);
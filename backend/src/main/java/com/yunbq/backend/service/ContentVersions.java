@@ -0,0 +1,99 @@
+package com.yunbq.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内容版本号（ContentVersions）
+ * 职责：
+ * - 为便签列表、导航分类、导航站点维护按集合的版本计数器，写操作成功后递增；
+ * - 生成条件 GET 使用的强 ETag：版本号未变时控制层直接返回 304，不查询数据库、不序列化响应体。
+ *
+ * 一致性：
+ * - 递增在事务提交后执行：若提交前递增，并发读可能以新版本号缓存到提交前的旧数据；
+ * - ETag 含进程启动标识，重启后客户端持有的旧 ETag 自然失效；
+ * - 计数器只在本实例内可见，多实例部署时其他实例的写入无法感知：ETag 额外混入时间片
+ *   （http.etag.max-stale-seconds），陈旧窗口不超过该值，与本地缓存依赖 TTL 收敛的策略一致；配置 0 关闭时间片。
+ */
+@Component
+public class ContentVersions {
+
+    /** 便签列表（便签增删改、导入、点赞/收藏、作者资料变更） */
+    public static final String NOTES = "notes";
+    /** 导航分类 */
+    public static final String NAV_CATEGORIES = "nav_categories";
+    /** 导航站点（含点击数） */
+    public static final String NAV_SITES = "nav_sites";
+
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    // 进程启动标识：区分重启前后的版本号
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final long maxStaleMillis;
+
+    public ContentVersions(@Value("${http.etag.max-stale-seconds:60}") long maxStaleSeconds) {
+        this.maxStaleMillis = Math.max(0, maxStaleSeconds) * 1000L;
+    }
+
+    /** 当前版本号。 */
+    public long current(String name) {
+        return counter(name).get();
+    }
+
+    /** 在当前事务提交后递增版本号；无事务时立即递增。 */
+    public void bump(String name) {
+        AtomicLong c = counter(name);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    c.incrementAndGet();
+                }
+            });
+        } else {
+            c.incrementAndGet();
+        }
+    }
+
+    /**
+     * 生成强 ETag（已加引号）。
+     * 参数：
+     * - name：集合名称；
+     * - variant：同一集合下区分响应的维度（如当前用户 ID 与查询参数），按 toString 参与计算。
+     * 返回：
+     * - 形如 {@code "notes-<epoch>-<version>-<slice>-<hash>"} 的字符串。
+     * 说明：
+     * - 必须在读取数据之前取版本号：读与写交错时宁可返回“旧 ETag + 新数据”（下次多一次 200），
+     *   也不能返回“新 ETag + 旧数据”（之后一直 304 旧内容）。
+     */
+    public String etag(String name, Object... variant) {
+        return etagAt(name, current(name), variant);
+    }
+
+    /**
+     * 以指定版本号生成强 ETag（格式同 {@link #etag}）。
+     * 用于响应数据来自某个已知版本的快照时（如 NavigationSnapshot），使 ETag 与数据版本严格一致。
+     */
+    public String etagAt(String name, long version, Object... variant) {
+        long slice = maxStaleMillis > 0 ? System.currentTimeMillis() / maxStaleMillis : 0;
+        long h = 1125899906842597L;
+        for (Object v : variant) {
+            String s = String.valueOf(v);
+            for (int i = 0; i < s.length(); i++) {
+                h = 31 * h + s.charAt(i);
+            }
+            h = 31 * h + 0x1F;
+        }
+        return "\"" + name + "-" + epoch + "-" + version + "-" + Long.toString(slice, 36)
+                + "-" + Long.toHexString(h) + "\"";
+    }
+
+    private AtomicLong counter(String name) {
+        return versions.computeIfAbsent(name, k -> new AtomicLong());
+    }
+}
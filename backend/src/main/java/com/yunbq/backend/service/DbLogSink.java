@@ -0,0 +1,55 @@
+package com.yunbq.backend.service;
+
+import com.yunbq.backend.mapper.AuditLogMapper;
+import com.yunbq.backend.mapper.AuthLogMapper;
+import com.yunbq.backend.mapper.ErrorLogMapper;
+import com.yunbq.backend.mapper.RequestLogMapper;
+import com.yunbq.backend.model.AuditLog;
+import com.yunbq.backend.model.AuthLog;
+import com.yunbq.backend.model.ErrorLog;
+import com.yunbq.backend.model.RequestLog;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 数据库日志落地（db）
+ * 说明：
+ * - 请求日志整批走多行 INSERT（{@link RequestLogMapper#insertBatch}）；
+ * - 审计/认证/错误日志量小且通常单条到达，逐条 insert。
+ */
+@Component
+public class DbLogSink implements LogSink {
+
+    private final AuditLogMapper auditLogMapper;
+    private final RequestLogMapper requestLogMapper;
+    private final AuthLogMapper authLogMapper;
+    private final ErrorLogMapper errorLogMapper;
+
+    public DbLogSink(AuditLogMapper auditLogMapper,
+                     RequestLogMapper requestLogMapper,
+                     AuthLogMapper authLogMapper,
+                     ErrorLogMapper errorLogMapper) {
+        this.auditLogMapper = auditLogMapper;
+        this.requestLogMapper = requestLogMapper;
+        this.authLogMapper = authLogMapper;
+        this.errorLogMapper = errorLogMapper;
+    }
+
+    @Override
+    public String name() {
+        return "db";
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void write(Type type, List<?> records) {
+        if (records == null || records.isEmpty()) return;
+        switch (type) {
+            case REQUEST -> requestLogMapper.insertBatch((List<RequestLog>) records);
+            case AUDIT -> records.forEach(r -> auditLogMapper.insert((AuditLog) r));
+            case AUTH -> records.forEach(r -> authLogMapper.insert((AuthLog) r));
+            case ERROR -> records.forEach(r -> errorLogMapper.insert((ErrorLog) r));
+        }
+    }
+}
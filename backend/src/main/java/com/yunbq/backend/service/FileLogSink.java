@@ -0,0 +1,238 @@
+package com.yunbq.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunbq.backend.config.LogProperties;
+import com.yunbq.backend.dto.PageResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地分段文件日志落地（file）
+ * 职责：
+ * - 按类型、按小时分段追加写入 NDJSON：{@code <logdb.file-dir>/<type>/<type>-yyyyMMddHH.ndjson}，每行一条实体 JSON；
+ * - 为管理端提供最近分段的倒序分页读取（{@link #readRecent}），以及按保留天数删除过期分段（{@link #purgeBefore}）。
+ *
+ * 设计要点：
+ * - 整批序列化到内存后一次 {@link FileChannel#write} 追加，同一类型的写入串行化在各自分段上，不同类型互不阻塞；
+ * - 不逐批 fsync：落地时效与操作系统页缓存一致，进程崩溃不丢数据，主机掉电可能丢失最近几秒；
+ * - 读取只扫描最近 logdb.file-query-max-segments 个分段，且命中窗口（offset + size）上限 {@link #MAX_WINDOW}，
+ *   防止深翻页或全量导出把整段日志读入内存；分段末行可能正在写入，解析失败的行直接跳过；
+ * - 文件中的记录没有数据库自增 ID（id 为 null）。
+ */
+@Component
+public class FileLogSink implements LogSink {
+    private static final Logger log = LoggerFactory.getLogger(FileLogSink.class);
+
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("yyyyMMddHH");
+    private static final String SUFFIX = ".ndjson";
+    /** 单次读取保留的最大命中条数（offset + size） */
+    public static final int MAX_WINDOW = 10000;
+
+    /** 当前打开的分段 */
+    private static final class Segment {
+        String hour;
+        FileChannel channel;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path root;
+    private final int queryMaxSegments;
+    private final Map<Type, Segment> segments = new EnumMap<>(Type.class);
+
+    public FileLogSink(ObjectMapper objectMapper, LogProperties logProperties) {
+        this.objectMapper = objectMapper;
+        this.root = Paths.get(logProperties.getFileDir()).toAbsolutePath().normalize();
+        this.queryMaxSegments = Math.max(1, logProperties.getFileQueryMaxSegments());
+        for (Type t : Type.values()) {
+            segments.put(t, new Segment());
+        }
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void write(Type type, List<?> records) {
+        if (records == null || records.isEmpty()) return;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(records.size() * 256);
+        try {
+            for (Object r : records) {
+                buf.write(objectMapper.writeValueAsBytes(r));
+                buf.write('\n');
+            }
+            ByteBuffer bb = ByteBuffer.wrap(buf.toByteArray());
+            Segment seg = segments.get(type);
+            synchronized (seg) {
+                FileChannel ch = channel(type, seg, LocalDateTime.now().format(HOUR));
+                while (bb.hasRemaining()) {
+                    ch.write(bb);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("write " + type.key() + " log segment failed", e);
+        }
+    }
+
+    /**
+     * 倒序分页读取最近分段中的日志。
+     * 参数：
+     * - type / cls：日志类型与实体类；
+     * - filter：过滤条件（与数据库查询的过滤语义一致）；
+     * - page / size：页码从 1 开始；offset + size 超过 {@link #MAX_WINDOW} 时超出部分返回空。
+     * 返回：
+     * - 按写入时间倒序的分页结果；total 为扫描范围内的命中总数。
+     */
+    public <T> PageResult<T> readRecent(Type type, Class<T> cls, Predicate<T> filter, int page, int size) {
+        int p = Math.max(1, page);
+        int s = Math.max(1, size);
+        long offset = (long) (p - 1) * s;
+        long window = Math.min((long) MAX_WINDOW, offset + s);
+        long total = 0;
+        List<T> out = new ArrayList<>();
+        for (Path f : recentSegments(type)) {
+            int need = (int) Math.max(0, window - total);
+            ArrayDeque<T> tail = new ArrayDeque<>();
+            long matched = 0;
+            try (BufferedReader br = Files.newBufferedReader(f, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    T v;
+                    try {
+                        v = objectMapper.readValue(line, cls);
+                    } catch (JsonProcessingException e) {
+                        continue; // 正在写入或损坏的行
+                    }
+                    if (filter != null && !filter.test(v)) continue;
+                    matched++;
+                    if (need > 0) {
+                        if (tail.size() == need) tail.pollFirst();
+                        tail.addLast(v);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Read log segment {} failed: {}", f, e.getMessage());
+                continue;
+            }
+            // 分段内按写入顺序，倒序后依次对应全局名次 total, total+1, ...
+            long rank = total;
+            Iterator<T> it = tail.descendingIterator();
+            while (it.hasNext()) {
+                T v = it.next();
+                if (rank >= offset && rank < window) out.add(v);
+                rank++;
+            }
+            total += matched;
+        }
+        return new PageResult<>(out, total, p, s);
+    }
+
+    /**
+     * 删除早于截止时间的分段（整段都早于 cutoff 才删除）。
+     * 返回：
+     * - 删除的分段数。
+     */
+    public int purgeBefore(Type type, LocalDateTime cutoff) {
+        String cutoffHour = cutoff.format(HOUR);
+        int deleted = 0;
+        for (Path f : listSegments(type)) {
+            if (hourOf(type, f).compareTo(cutoffHour) < 0) {
+                try {
+                    if (Files.deleteIfExists(f)) deleted++;
+                } catch (IOException e) {
+                    log.warn("Delete log segment {} failed: {}", f, e.getMessage());
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /** 应用关闭时关闭打开的分段。 */
+    @PreDestroy
+    public void close() {
+        for (Segment seg : segments.values()) {
+            synchronized (seg) {
+                closeQuietly(seg);
+            }
+        }
+    }
+
+    private FileChannel channel(Type type, Segment seg, String hour) throws IOException {
+        if (seg.channel != null && seg.channel.isOpen() && hour.equals(seg.hour)) {
+            return seg.channel;
+        }
+        closeQuietly(seg);
+        Path dir = root.resolve(type.key());
+        Files.createDirectories(dir);
+        seg.channel = FileChannel.open(dir.resolve(type.key() + "-" + hour + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        seg.hour = hour;
+        return seg.channel;
+    }
+
+    private void closeQuietly(Segment seg) {
+        if (seg.channel == null) return;
+        try {
+            seg.channel.close();
+        } catch (IOException e) {
+            log.warn("Close log segment failed: {}", e.getMessage());
+        }
+        seg.channel = null;
+        seg.hour = null;
+    }
+
+    private List<Path> recentSegments(Type type) {
+        List<Path> files = listSegments(type);
+        files.sort(Collections.reverseOrder());
+        return files.size() > queryMaxSegments ? files.subList(0, queryMaxSegments) : files;
+    }
+
+    private List<Path> listSegments(Type type) {
+        Path dir = root.resolve(type.key());
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        String prefix = type.key() + "-";
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(f -> {
+                String n = f.getFileName().toString();
+                return n.startsWith(prefix) && n.endsWith(SUFFIX);
+            }).collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            log.warn("List log segments in {} failed: {}", dir, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private static String hourOf(Type type, Path f) {
+        String n = f.getFileName().toString();
+        return n.substring(type.key().length() + 1, n.length() - SUFFIX.length());
+    }
+}
@@ -0,0 +1,83 @@
+package com.yunbq.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunbq.backend.util.CsvWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 日志流式导出器（LogExporter）
+ * 职责：
+ * - 将任意可迭代的日志记录（通常是 MyBatis {@code Cursor}）逐行写为 CSV 或 JSON 数组，直接写入响应输出流；
+ * - CSV：UTF-8 BOM（兼容 Excel）+ 表头 + 按 {@link Column} 取值的数据行；JSON：实体数组，字段与分页接口一致。
+ *
+ * 设计要点：
+ * - CSV 字段经 {@link CsvWriter} 直接转义写出；不在内存中拼接整份导出：每行写入固定大小的缓冲，每 {@value #FLUSH_EVERY} 行刷出一次，堆占用与导出行数无关；
+ * - 不关闭调用方传入的输出流（gzip 等包装由控制层负责 finish/close）。
+ */
+@Component
+public class LogExporter {
+
+    /** 导出列：CSV 表头与取值函数（null 输出为空字段） */
+    public record Column<T>(String header, Function<T, Object> value) {
+    }
+
+    private static final int FLUSH_EVERY = 500;
+
+    private final ObjectMapper objectMapper;
+
+    public LogExporter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 流式写出记录。
+     * 参数：
+     * - rows：记录序列（游标或列表），按迭代顺序输出；
+     * - columns：CSV 列定义（JSON 时忽略，直接序列化实体）；
+     * - json：true 输出 JSON 数组，false 输出 CSV；
+     * - out：目标输出流（不关闭）。
+     * 返回：
+     * - 写出的行数。
+     */
+    public <T> long write(Iterable<T> rows, List<Column<T>> columns, boolean json, OutputStream out) throws IOException {
+        return json ? writeJson(rows, out) : writeCsv(rows, columns, out);
+    }
+
+    private <T> long writeCsv(Iterable<T> rows, List<Column<T>> columns, OutputStream out) throws IOException {
+        CsvWriter w = CsvWriter.utf8(out).bom();
+        for (Column<T> c : columns) {
+            w.field(c.header());
+        }
+        w.endRow();
+        long n = 0;
+        for (T row : rows) {
+            for (Column<T> c : columns) {
+                w.field(c.value().apply(row));
+            }
+            w.endRow();
+            if (++n % FLUSH_EVERY == 0) w.flush();
+        }
+        w.flush();
+        return n;
+    }
+
+    private <T> long writeJson(Iterable<T> rows, OutputStream out) throws IOException {
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(out);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gen.writeStartArray();
+        long n = 0;
+        for (T row : rows) {
+            gen.writeObject(row);
+            if (++n % FLUSH_EVERY == 0) gen.flush();
+        }
+        gen.writeEndArray();
+        gen.flush();
+        return n;
+    }
+}
@@ -0,0 +1,175 @@
+package com.yunbq.backend.service;
+
+import com.yunbq.backend.config.LogProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志表按天分区管理（LogPartitionManager）
+ * 职责：
+ * - logdb.partitioning-enabled 开启时，将 request_logs / auth_logs / error_logs / audit_logs 转换为
+ *   {@code PARTITION BY RANGE (TO_DAYS(created_at))} 的按天分区表（{@link #ensurePartitioned}，由 DbMigrationRunner 启动时调用）；
+ * - 每次保留清理前从 pmax 拆出未来 logdb.partition-ahead-days 天的分区（{@link #rotate}）；
+ * - 保留清理时整段删除已全部过期的分区（{@link #dropExpired}），代替大范围 DELETE。
+ *
+ * 分区布局：
+ * - p_hist：转换前的历史数据（上界为转换当天）；
+ * - pYYYYMMDD：当天数据，上界为次日 TO_DAYS；
+ * - pmax：MAXVALUE 兜底，避免未来分区未及时创建时写入失败。
+ *
+ * 注意：
+ * - MySQL 要求分区列出现在每个唯一键中，转换时主键由 (id) 改为 (id, created_at)；按 id 查询仍走主键前缀；
+ * - 大表转换需要重建整表，建议在低峰期首次开启；转换失败只记录告警，不阻塞启动，保留清理回退为分批删除；
+ * - 表名仅来自 {@link #TABLES} 白名单，不接受外部输入。
+ */
+@Component
+public class LogPartitionManager {
+    private static final Logger log = LoggerFactory.getLogger(LogPartitionManager.class);
+
+    /** 参与分区的日志表 */
+    public static final List<String> TABLES = List.of("request_logs", "auth_logs", "error_logs", "audit_logs");
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    // MySQL TO_DAYS('1970-01-01')
+    private static final long TO_DAYS_EPOCH = 719528L;
+
+    private final JdbcTemplate jdbc;
+    private final LogProperties props;
+
+    public LogPartitionManager(JdbcTemplate jdbc, LogProperties props) {
+        this.jdbc = jdbc;
+        this.props = props;
+    }
+
+    /**
+     * 启动时调用：按需转换为分区表并预建未来分区。
+     * 说明：已分区的表即使关闭开关也继续预建，避免新数据全部落入 pmax；失败只告警，不阻塞启动。
+     */
+    public void prepareAll() {
+        for (String t : TABLES) {
+            try {
+                ensurePartitioned(t);
+                rotate(t);
+            } catch (Exception e) {
+                log.warn("[LogPartition] prepare {} failed: {}", t, e.getMessage());
+            }
+        }
+    }
+
+    /** 指定表当前是否已分区。 */
+    public boolean isPartitioned(String table) {
+        Integer cnt = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.partitions WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL",
+                Integer.class, checked(table));
+        return cnt != null && cnt > 0;
+    }
+
+    /**
+     * 开关开启且表未分区时，转换为按天分区（幂等）。
+     * 说明：一条 ALTER 同时调整主键并建立 p_hist、今天起 partition-ahead-days 天的日分区与 pmax。
+     */
+    public void ensurePartitioned(String table) {
+        if (!props.isPartitioningEnabled() || isPartitioned(table)) return;
+        LocalDate today = LocalDate.now();
+        List<String> parts = new ArrayList<>();
+        parts.add("PARTITION p_hist VALUES LESS THAN (" + toDays(today) + ")");
+        parts.addAll(dayPartitions(today, today.plusDays(aheadDays())));
+        parts.add("PARTITION pmax VALUES LESS THAN MAXVALUE");
+        long t0 = System.currentTimeMillis();
+        jdbc.execute("ALTER TABLE " + table + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)"
+                + " PARTITION BY RANGE (TO_DAYS(created_at)) (" + String.join(", ", parts) + ")");
+        log.info("[LogPartition] {} converted to daily partitions in {} ms", table, System.currentTimeMillis() - t0);
+    }
+
+    /**
+     * 预建未来的日分区：把 [当前最大上界, 今天 + partition-ahead-days] 内缺失的日子从 pmax 中拆出。
+     * 返回：
+     * - 新建的分区数；表未分区时返回 0。
+     */
+    public int rotate(String table) {
+        List<String[]> parts = partitions(table);
+        if (parts.isEmpty()) return 0;
+        long maxBound = Long.MIN_VALUE;
+        boolean hasMax = false;
+        for (String[] p : parts) {
+            if ("MAXVALUE".equalsIgnoreCase(p[1])) {
+                hasMax = true;
+            } else {
+                maxBound = Math.max(maxBound, Long.parseLong(p[1].trim()));
+            }
+        }
+        LocalDate last = LocalDate.now().plusDays(aheadDays());
+        LocalDate from = maxBound == Long.MIN_VALUE ? LocalDate.now() : fromDays(maxBound);
+        if (from.isAfter(last)) return 0;
+        List<String> created = dayPartitions(from, last);
+        if (hasMax) {
+            created.add("PARTITION pmax VALUES LESS THAN MAXVALUE");
+            jdbc.execute("ALTER TABLE " + table + " REORGANIZE PARTITION pmax INTO (" + String.join(", ", created) + ")");
+            return created.size() - 1;
+        }
+        jdbc.execute("ALTER TABLE " + table + " ADD PARTITION (" + String.join(", ", created) + ")");
+        return created.size();
+    }
+
+    /**
+     * 删除全部数据都早于 cutoff 当天零点的分区（上界 ≤ TO_DAYS(cutoff 日期)）。
+     * 返回：
+     * - 删除的分区数；表未分区时返回 0。剩余的不足一天的过期行由调用方分批删除。
+     */
+    public int dropExpired(String table, LocalDateTime cutoff) {
+        long cutoffDays = toDays(cutoff.toLocalDate());
+        List<String> expired = new ArrayList<>();
+        for (String[] p : partitions(table)) {
+            if (!"MAXVALUE".equalsIgnoreCase(p[1]) && Long.parseLong(p[1].trim()) <= cutoffDays) {
+                expired.add(p[0]);
+            }
+        }
+        if (expired.isEmpty()) return 0;
+        jdbc.execute("ALTER TABLE " + table + " DROP PARTITION " + String.join(", ", expired));
+        return expired.size();
+    }
+
+    /** 分区名与上界描述（TO_DAYS 数值或 MAXVALUE），按分区顺序。 */
+    private List<String[]> partitions(String table) {
+        return jdbc.query(
+                "SELECT partition_name, partition_description FROM information_schema.partitions"
+                        + " WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL"
+                        + " ORDER BY partition_ordinal_position",
+                (rs, rowNum) -> new String[]{ rs.getString(1), rs.getString(2) },
+                checked(table));
+    }
+
+    /** [from, to] 每天一个分区：pYYYYMMDD，上界为次日。 */
+    private static List<String> dayPartitions(LocalDate from, LocalDate to) {
+        List<String> out = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            out.add("PARTITION p" + d.format(DAY) + " VALUES LESS THAN (" + toDays(d.plusDays(1)) + ")");
+        }
+        return out;
+    }
+
+    private int aheadDays() {
+        return Math.max(1, props.getPartitionAheadDays());
+    }
+
+    private static long toDays(LocalDate d) {
+        return d.toEpochDay() + TO_DAYS_EPOCH;
+    }
+
+    private static LocalDate fromDays(long toDays) {
+        return LocalDate.ofEpochDay(toDays - TO_DAYS_EPOCH);
+    }
+
+    private static String checked(String table) {
+        if (!TABLES.contains(table)) throw new IllegalArgumentException("not a log table: " + table);
+        return table;
+    }
+}
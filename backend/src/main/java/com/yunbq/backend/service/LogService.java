@@ -3,16 +3,27 @@ package com.yunbq.backend.service;
 import com.yunbq.backend.mapper.*;
 import com.yunbq.backend.model.*;
 import com.yunbq.backend.config.LogProperties;
+import com.yunbq.backend.dto.PageResult;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * 日志统一写入服务。
  * 作用：集中管理各类日志（审计、请求、认证、错误）的入库逻辑，便于维护与复用。
  * 统一入口便于在过滤器、切面、异常处理等位置直接调用。
+ * 落地：各类日志经 {@link LogSinks} 写入数据库表或本地分段文件（logdb.<type>-sink）；
+ * 导出经 {@link LogExporter} 流式写出；列表与导出在文件落地时读取最近的分段（{@link FileLogSink#readRecent}）。
  */
 @Service
 public class LogService {
@@ -22,6 +33,10 @@ public class LogService {
     private final AuthLogMapper authLogMapper;
     private final ErrorLogMapper errorLogMapper;
     private final LogProperties logProperties;
+    private final RequestLogWriter requestLogWriter;
+    private final LogSinks sinks;
+    private final FileLogSink fileSink;
+    private final LogExporter exporter;
 
     /**
      * 通过构造函数注入 Mapper 与日志配置。
@@ -31,12 +46,20 @@ public class LogService {
                       RequestLogMapper requestLogMapper,
                       AuthLogMapper authLogMapper,
                       ErrorLogMapper errorLogMapper,
-                      LogProperties logProperties) {
+                      LogProperties logProperties,
+                      RequestLogWriter requestLogWriter,
+                      LogSinks sinks,
+                      FileLogSink fileSink,
+                      LogExporter exporter) {
         this.auditLogMapper = auditLogMapper;
         this.requestLogMapper = requestLogMapper;
         this.authLogMapper = authLogMapper;
         this.errorLogMapper = errorLogMapper;
         this.logProperties = logProperties;
+        this.requestLogWriter = requestLogWriter;
+        this.sinks = sinks;
+        this.fileSink = fileSink;
+        this.exporter = exporter;
     }
 
     /**
@@ -65,7 +88,7 @@ public class LogService {
         log.setLevel(level != null ? level : "INFO");
         log.setMessage(message);
         log.setCreatedAt(LocalDateTime.now());
-        auditLogMapper.insert(log);
+        sinks.write(LogSink.Type.AUDIT, List.of(log));
     }
 
     /**
@@ -77,6 +100,7 @@ public class LogService {
      * <p>
      * 开关控制：`logdb.request-enabled`；采样：`logdb.request-sampling-percent`。
      * 当采样比例小于 100 时，采用简单百分比随机采样，减少数据库压力。
+     * 命中后交给 {@link RequestLogWriter} 攒批写入：本方法在请求线程执行，只做一次无锁入队。
      *
      * @param method     HTTP 方法，如 GET/POST。
      * @param uri        请求路径（不含查询串）。
@@ -88,7 +112,6 @@ public class LogService {
      * @param userId     关联用户 ID，可为 {@code null}。
      * @param requestId  请求唯一标识，用于与其他日志串联。
      */
-    @Async("logTaskExecutor")
     public void logRequest(String method, String uri, String query,
                            String ip, String userAgent,
                            int status, int durationMs,
@@ -116,7 +139,7 @@ public class LogService {
         rl.setUserId(userId);
         rl.setRequestId(requestId);
         rl.setCreatedAt(LocalDateTime.now());
-        requestLogMapper.insert(rl);
+        requestLogWriter.submit(rl);
     }
 
     /**
@@ -145,7 +168,7 @@ public class LogService {
         al.setUserAgent(userAgent);
         al.setRequestId(requestId);
         al.setCreatedAt(LocalDateTime.now());
-        authLogMapper.insert(al);
+        sinks.write(LogSink.Type.AUTH, List.of(al));
     }
 
     /**
@@ -173,7 +196,7 @@ public class LogService {
         al.setUserAgent(userAgent);
         al.setRequestId(requestId);
         al.setCreatedAt(LocalDateTime.now());
-        authLogMapper.insert(al);
+        sinks.write(LogSink.Type.AUTH, List.of(al));
     }
 
     /**
@@ -202,7 +225,7 @@ public class LogService {
         el.setStackTrace(stackTraceToString(e));
         el.setRequestId(requestId);
         el.setCreatedAt(LocalDateTime.now());
-        errorLogMapper.insert(el);
+        sinks.write(LogSink.Type.ERROR, List.of(el));
     }
 
     /**
@@ -219,169 +242,209 @@ public class LogService {
     }
 
     // ===========================
-    // 日志导出相关方法（同步查询与CSV构建）
-    // 说明：导出接口调用这些方法获取数据并生成CSV文本，与分页接口的过滤逻辑保持一致。
+    // 日志导出（流式）
+    // 说明：数据库落地时通过 MyBatis 游标逐行读取并直接写入输出流，内存占用与导出行数无关；
+    //      文件落地时读取最近分段（上限 FileLogSink.MAX_WINDOW 条）。过滤语义与分页接口一致，另支持时间范围。
     // ===========================
 
+    private static final List<LogExporter.Column<AuditLog>> AUDIT_COLUMNS = List.of(
+            new LogExporter.Column<>("id", AuditLog::getId),
+            new LogExporter.Column<>("userId", AuditLog::getUserId),
+            new LogExporter.Column<>("level", AuditLog::getLevel),
+            new LogExporter.Column<>("message", AuditLog::getMessage),
+            new LogExporter.Column<>("createdAt", AuditLog::getCreatedAt));
+
+    private static final List<LogExporter.Column<AuthLog>> AUTH_COLUMNS = List.of(
+            new LogExporter.Column<>("id", AuthLog::getId),
+            new LogExporter.Column<>("userId", AuthLog::getUserId),
+            new LogExporter.Column<>("username", AuthLog::getUsername),
+            new LogExporter.Column<>("success", it -> Boolean.TRUE.equals(it.getSuccess())),
+            new LogExporter.Column<>("reason", AuthLog::getReason),
+            new LogExporter.Column<>("ip", AuthLog::getIp),
+            new LogExporter.Column<>("userAgent", AuthLog::getUserAgent),
+            new LogExporter.Column<>("requestId", AuthLog::getRequestId),
+            new LogExporter.Column<>("createdAt", AuthLog::getCreatedAt));
+
+    private static final List<LogExporter.Column<RequestLog>> REQUEST_COLUMNS = List.of(
+            new LogExporter.Column<>("id", RequestLog::getId),
+            new LogExporter.Column<>("method", RequestLog::getMethod),
+            new LogExporter.Column<>("uri", RequestLog::getUri),
+            new LogExporter.Column<>("query", RequestLog::getQuery),
+            new LogExporter.Column<>("ip", RequestLog::getIp),
+            new LogExporter.Column<>("userAgent", RequestLog::getUserAgent),
+            new LogExporter.Column<>("status", RequestLog::getStatus),
+            new LogExporter.Column<>("durationMs", RequestLog::getDurationMs),
+            new LogExporter.Column<>("userId", RequestLog::getUserId),
+            new LogExporter.Column<>("requestId", RequestLog::getRequestId),
+            new LogExporter.Column<>("createdAt", RequestLog::getCreatedAt));
+
+    private static final List<LogExporter.Column<ErrorLog>> ERROR_COLUMNS = List.of(
+            new LogExporter.Column<>("id", ErrorLog::getId),
+            new LogExporter.Column<>("userId", ErrorLog::getUserId),
+            new LogExporter.Column<>("path", ErrorLog::getPath),
+            new LogExporter.Column<>("exception", ErrorLog::getException),
+            new LogExporter.Column<>("message", ErrorLog::getMessage),
+            new LogExporter.Column<>("stackTrace", ErrorLog::getStackTrace),
+            new LogExporter.Column<>("requestId", ErrorLog::getRequestId),
+            new LogExporter.Column<>("createdAt", ErrorLog::getCreatedAt));
+
     /**
-     * 获取审计日志列表（可按级别筛选），按时间倒序。
+     * 流式导出审计日志（可按级别筛选），按时间倒序。
      *
      * @param level 可选的审计级别过滤；为空则不过滤。
-     * @return 审计日志集合，时间倒序。
+     * @param from  起始时间（含），可空。
+     * @param to    截止时间（不含），可空。
+     * @param json  true 输出 JSON 数组，false 输出 CSV（表头：id,userId,level,message,createdAt）。
+     * @param out   响应输出流（由调用方负责关闭）。
+     * @return 导出行数。
      */
-    public java.util.List<AuditLog> listAuditLogs(String level) {
-        com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<AuditLog> qw = new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<>();
+    @Transactional(readOnly = true)
+    public long exportAuditLogs(String level, LocalDateTime from, LocalDateTime to, boolean json, OutputStream out) throws IOException {
+        if (sinks.isFile(LogSink.Type.AUDIT)) {
+            return exporter.write(fileSink.readRecent(LogSink.Type.AUDIT, AuditLog.class,
+                    auditFilter(level).and(within(AuditLog::getCreatedAt, from, to)), 1, FileLogSink.MAX_WINDOW).getItems(),
+                    AUDIT_COLUMNS, json, out);
+        }
+        QueryWrapper<AuditLog> qw = new QueryWrapper<>();
         if (level != null && !level.isBlank()) { qw.eq("level", level); }
-        qw.orderByDesc("created_at");
-        return auditLogMapper.selectList(qw);
-    }
-
-    /**
-     * 将审计日志导出为 CSV 文本。
-     *
-     * @param items 待导出的审计日志集合。
-     * @return CSV 文本，表头：id,userId,level,message,createdAt。
-     * @implNote 使用 {@link #csv(String)} 对字段进行转义，处理逗号、引号与换行。
-     */
-    public String exportAuditLogsToCsv(java.util.List<AuditLog> items) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("id,userId,level,message,createdAt\n");
-        for (AuditLog it : items) {
-            sb.append(csv(String.valueOf(it.getId()))).append(',')
-              .append(csv(String.valueOf(it.getUserId()))).append(',')
-              .append(csv(it.getLevel())).append(',')
-              .append(csv(it.getMessage())).append(',')
-              .append(csv(String.valueOf(it.getCreatedAt())))
-              .append('\n');
+        try (Cursor<AuditLog> cursor = auditLogMapper.selectCursor(withRange(qw, from, to))) {
+            return exporter.write(cursor, AUDIT_COLUMNS, json, out);
         }
-        return sb.toString();
     }
 
     /**
-     * 获取认证日志列表（可按成功/失败、用户名、requestId筛选），按时间倒序。
-     *
-     * @param success   过滤成功或失败；为空则不过滤。
-     * @param username  用户名模糊匹配；为空则不过滤。
-     * @param requestId 请求 ID 精确匹配；为空则不过滤。
-     * @return 认证日志集合，时间倒序。
+     * 流式导出认证日志（可按成功/失败、用户名、requestId 筛选），按时间倒序。
+     * CSV 表头：id,userId,username,success,reason,ip,userAgent,requestId,createdAt。
      */
-    public java.util.List<AuthLog> listAuthLogs(Boolean success, String username, String requestId) {
-        com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<AuthLog> qw = new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<>();
+    @Transactional(readOnly = true)
+    public long exportAuthLogs(Boolean success, String username, String requestId,
+                               LocalDateTime from, LocalDateTime to, boolean json, OutputStream out) throws IOException {
+        if (sinks.isFile(LogSink.Type.AUTH)) {
+            return exporter.write(fileSink.readRecent(LogSink.Type.AUTH, AuthLog.class,
+                    authFilter(success, username, requestId).and(within(AuthLog::getCreatedAt, from, to)), 1, FileLogSink.MAX_WINDOW).getItems(),
+                    AUTH_COLUMNS, json, out);
+        }
+        QueryWrapper<AuthLog> qw = new QueryWrapper<>();
         if (success != null) { qw.eq("success", success ? 1 : 0); }
         if (username != null && !username.isBlank()) { qw.like("username", username); }
         if (requestId != null && !requestId.isBlank()) { qw.eq("request_id", requestId); }
-        qw.orderByDesc("created_at");
-        return authLogMapper.selectList(qw);
-    }
-
-    /**
-     * 将认证日志导出为 CSV 文本。
-     *
-     * @param items 待导出的认证日志集合。
-     * @return CSV 文本，表头：id,userId,username,success,reason,ip,userAgent,requestId,createdAt。
-     */
-    public String exportAuthLogsToCsv(java.util.List<AuthLog> items) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("id,userId,username,success,reason,ip,userAgent,requestId,createdAt\n");
-        for (AuthLog it : items) {
-            sb.append(csv(String.valueOf(it.getId()))).append(',')
-              .append(csv(String.valueOf(it.getUserId()))).append(',')
-              .append(csv(it.getUsername())).append(',')
-              .append(csv(String.valueOf(Boolean.TRUE.equals(it.getSuccess())))).append(',')
-              .append(csv(it.getReason())).append(',')
-              .append(csv(it.getIp())).append(',')
-              .append(csv(it.getUserAgent())).append(',')
-              .append(csv(it.getRequestId())).append(',')
-              .append(csv(String.valueOf(it.getCreatedAt())))
-              .append('\n');
+        try (Cursor<AuthLog> cursor = authLogMapper.selectCursor(withRange(qw, from, to))) {
+            return exporter.write(cursor, AUTH_COLUMNS, json, out);
         }
-        return sb.toString();
     }
 
     /**
-     * 获取请求日志列表（可按 URI、状态码、requestId 筛选），按时间倒序。
-     *
-     * @param uri       URI 模糊匹配；为空则不过滤。
-     * @param status    状态码精确匹配；为空则不过滤。
-     * @param requestId 请求 ID 精确匹配；为空则不过滤。
-     * @return 请求日志集合，时间倒序。
+     * 流式导出请求日志（可按 URI、状态码、requestId 筛选），按时间倒序。
+     * CSV 表头：id,method,uri,query,ip,userAgent,status,durationMs,userId,requestId,createdAt。
      */
-    public java.util.List<RequestLog> listRequestLogs(String uri, Integer status, String requestId) {
-        com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<RequestLog> qw = new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<>();
+    @Transactional(readOnly = true)
+    public long exportRequestLogs(String uri, Integer status, String requestId,
+                                  LocalDateTime from, LocalDateTime to, boolean json, OutputStream out) throws IOException {
+        if (sinks.isFile(LogSink.Type.REQUEST)) {
+            return exporter.write(fileSink.readRecent(LogSink.Type.REQUEST, RequestLog.class,
+                    requestFilter(uri, status, requestId).and(within(RequestLog::getCreatedAt, from, to)), 1, FileLogSink.MAX_WINDOW).getItems(),
+                    REQUEST_COLUMNS, json, out);
+        }
+        QueryWrapper<RequestLog> qw = new QueryWrapper<>();
         if (uri != null && !uri.isBlank()) { qw.like("uri", uri); }
         if (status != null) { qw.eq("status", status); }
         if (requestId != null && !requestId.isBlank()) { qw.eq("request_id", requestId); }
-        qw.orderByDesc("created_at");
-        return requestLogMapper.selectList(qw);
-    }
-
-    /**
-     * 将请求日志导出为CSV文本。
-     * 表头：id,method,uri,query,ip,userAgent,status,durationMs,userId,requestId,createdAt
-     */
-    public String exportRequestLogsToCsv(java.util.List<RequestLog> items) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("id,method,uri,query,ip,userAgent,status,durationMs,userId,requestId,createdAt\n");
-        for (RequestLog it : items) {
-            sb.append(csv(String.valueOf(it.getId()))).append(',')
-              .append(csv(it.getMethod())).append(',')
-              .append(csv(it.getUri())).append(',')
-              .append(csv(it.getQuery())).append(',')
-              .append(csv(it.getIp())).append(',')
-              .append(csv(it.getUserAgent())).append(',')
-              .append(csv(String.valueOf(it.getStatus()))).append(',')
-              .append(csv(String.valueOf(it.getDurationMs()))).append(',')
-              .append(csv(String.valueOf(it.getUserId()))).append(',')
-              .append(csv(it.getRequestId())).append(',')
-              .append(csv(String.valueOf(it.getCreatedAt())))
-              .append('\n');
+        try (Cursor<RequestLog> cursor = requestLogMapper.selectCursor(withRange(qw, from, to))) {
+            return exporter.write(cursor, REQUEST_COLUMNS, json, out);
         }
-        return sb.toString();
     }
 
     /**
-     * 获取错误日志列表（可按异常类名、requestId筛选），按时间倒序。
+     * 流式导出错误日志（可按异常类名、requestId 筛选），按时间倒序。
+     * CSV 表头：id,userId,path,exception,message,stackTrace,requestId,createdAt。
      */
-    public java.util.List<ErrorLog> listErrorLogs(String exception, String requestId) {
-        com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<ErrorLog> qw = new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<>();
+    @Transactional(readOnly = true)
+    public long exportErrorLogs(String exception, String requestId,
+                                LocalDateTime from, LocalDateTime to, boolean json, OutputStream out) throws IOException {
+        if (sinks.isFile(LogSink.Type.ERROR)) {
+            return exporter.write(fileSink.readRecent(LogSink.Type.ERROR, ErrorLog.class,
+                    errorFilter(exception, requestId).and(within(ErrorLog::getCreatedAt, from, to)), 1, FileLogSink.MAX_WINDOW).getItems(),
+                    ERROR_COLUMNS, json, out);
+        }
+        QueryWrapper<ErrorLog> qw = new QueryWrapper<>();
         if (exception != null && !exception.isBlank()) { qw.like("exception", exception); }
         if (requestId != null && !requestId.isBlank()) { qw.eq("request_id", requestId); }
+        try (Cursor<ErrorLog> cursor = errorLogMapper.selectCursor(withRange(qw, from, to))) {
+            return exporter.write(cursor, ERROR_COLUMNS, json, out);
+        }
+    }
+
+    /** 追加时间范围 [from, to) 并按 created_at 倒序。 */
+    private static <T> QueryWrapper<T> withRange(QueryWrapper<T> qw, LocalDateTime from, LocalDateTime to) {
+        if (from != null) { qw.ge("created_at", from); }
+        if (to != null) { qw.lt("created_at", to); }
         qw.orderByDesc("created_at");
-        return errorLogMapper.selectList(qw);
+        return qw;
     }
 
-    /**
-     * 将错误日志导出为CSV文本。
-     * 表头：id,userId,path,exception,message,stackTrace,requestId,createdAt
-     */
-    public String exportErrorLogsToCsv(java.util.List<ErrorLog> items) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("id,userId,path,exception,message,stackTrace,requestId,createdAt\n");
-        for (ErrorLog it : items) {
-            sb.append(csv(String.valueOf(it.getId()))).append(',')
-              .append(csv(String.valueOf(it.getUserId()))).append(',')
-              .append(csv(it.getPath())).append(',')
-              .append(csv(it.getException())).append(',')
-              .append(csv(it.getMessage())).append(',')
-              .append(csv(it.getStackTrace())).append(',')
-              .append(csv(it.getRequestId())).append(',')
-              .append(csv(String.valueOf(it.getCreatedAt())))
-              .append('\n');
-        }
-        return sb.toString();
+    // ===========================
+    // 文件落地时的列表查询：读取最近分段，过滤语义与数据库查询一致
+    // ===========================
+
+    /** 指定类型是否写入本地分段文件（控制层据此选择查询数据库表或最近分段）。 */
+    public boolean isFileSink(LogSink.Type type) {
+        return sinks.isFile(type);
     }
 
-    /**
-     * CSV 字段安全转义工具方法。
-     * 规则：若包含逗号、双引号或换行，则使用双引号包裹，并将内部双引号替换为两个双引号。
-     */
-    private String csv(String s) {
-        if (s == null) return "";
-        boolean needQuote = s.contains(",") || s.contains("\n") || s.contains("\r") || s.contains("\"");
-        if (needQuote) {
-            return '"' + s.replace("\"", "\"\"") + '"';
-        } else {
-            return s;
-        }
+    /** 从最近分段分页读取审计日志（level 精确匹配）。 */
+    public PageResult<AuditLog> pageAuditLogsFromSegments(int page, int size, String level) {
+        return fileSink.readRecent(LogSink.Type.AUDIT, AuditLog.class, auditFilter(level), page, size);
+    }
+
+    /** 从最近分段分页读取请求日志（uri 包含、status 与 requestId 精确匹配）。 */
+    public PageResult<RequestLog> pageRequestLogsFromSegments(int page, int size, String uri, Integer status, String requestId) {
+        return fileSink.readRecent(LogSink.Type.REQUEST, RequestLog.class, requestFilter(uri, status, requestId), page, size);
+    }
+
+    /** 从最近分段分页读取认证日志（success 与 requestId 精确匹配、username 包含）。 */
+    public PageResult<AuthLog> pageAuthLogsFromSegments(int page, int size, Boolean success, String username, String requestId) {
+        return fileSink.readRecent(LogSink.Type.AUTH, AuthLog.class, authFilter(success, username, requestId), page, size);
+    }
+
+    /** 从最近分段分页读取错误日志（exception 包含、requestId 精确匹配）。 */
+    public PageResult<ErrorLog> pageErrorLogsFromSegments(int page, int size, String exception, String requestId) {
+        return fileSink.readRecent(LogSink.Type.ERROR, ErrorLog.class, errorFilter(exception, requestId), page, size);
+    }
+
+    private static Predicate<AuditLog> auditFilter(String level) {
+        boolean byLevel = level != null && !level.isBlank();
+        return it -> !byLevel || level.equals(it.getLevel());
+    }
+
+    private static Predicate<RequestLog> requestFilter(String uri, Integer status, String requestId) {
+        boolean byUri = uri != null && !uri.isBlank();
+        boolean byReq = requestId != null && !requestId.isBlank();
+        return it -> (!byUri || (it.getUri() != null && it.getUri().contains(uri)))
+                && (status == null || status.equals(it.getStatus()))
+                && (!byReq || requestId.equals(it.getRequestId()));
+    }
+
+    private static Predicate<AuthLog> authFilter(Boolean success, String username, String requestId) {
+        boolean byName = username != null && !username.isBlank();
+        boolean byReq = requestId != null && !requestId.isBlank();
+        return it -> (success == null || success.equals(Boolean.TRUE.equals(it.getSuccess())))
+                && (!byName || (it.getUsername() != null && it.getUsername().contains(username)))
+                && (!byReq || requestId.equals(it.getRequestId()));
+    }
+
+    private static Predicate<ErrorLog> errorFilter(String exception, String requestId) {
+        boolean byEx = exception != null && !exception.isBlank();
+        boolean byReq = requestId != null && !requestId.isBlank();
+        return it -> (!byEx || (it.getException() != null && it.getException().contains(exception)))
+                && (!byReq || requestId.equals(it.getRequestId()));
+    }
+
+    /** 时间范围 [from, to) 过滤（文件落地导出使用）。 */
+    private static <T> Predicate<T> within(Function<T, LocalDateTime> createdAt, LocalDateTime from, LocalDateTime to) {
+        return it -> {
+            LocalDateTime t = createdAt.apply(it);
+            if (t == null) return from == null && to == null;
+            return (from == null || !t.isBefore(from)) && (to == null || t.isBefore(to));
+        };
     }
-}
\ No newline at end of file
+}
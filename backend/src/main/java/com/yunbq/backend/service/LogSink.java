@@ -0,0 +1,45 @@
+package com.yunbq.backend.service;
+
+import java.util.List;
+
+/**
+ * 日志落地扩展点（LogSink）
+ * 职责：
+ * - 统一审计、请求、认证、错误四类日志的写入出口，{@link LogService} 与 {@link RequestLogWriter} 只面向该接口；
+ * - 每类日志使用哪种实现由 {@code logdb.<type>-sink} 决定（见 {@link LogSinks}）。
+ *
+ * 实现：
+ * - {@link DbLogSink}（db）：写入 MySQL 日志表，管理端按表分页查询；
+ * - {@link FileLogSink}（file）：按小时分段追加写入本地 NDJSON 文件，管理端读取最近的分段。
+ */
+public interface LogSink {
+
+    /** 日志类型：与实体及表一一对应 */
+    enum Type {
+        AUDIT("audit"), REQUEST("request"), AUTH("auth"), ERROR("error");
+
+        private final String key;
+
+        Type(String key) {
+            this.key = key;
+        }
+
+        /** 配置与文件目录中使用的小写名称 */
+        public String key() {
+            return key;
+        }
+    }
+
+    /** 实现名称（与配置值对应，如 db / file） */
+    String name();
+
+    /**
+     * 写入同一类型的一批日志。
+     * 参数：
+     * - type：日志类型；
+     * - records：对应实体（AuditLog / RequestLog / AuthLog / ErrorLog），非空。
+     * 说明：
+     * - 实现应尽量以一次 IO 完成整批写入；失败时抛出运行时异常，由调用方计数或记录。
+     */
+    void write(Type type, List<?> records);
+}
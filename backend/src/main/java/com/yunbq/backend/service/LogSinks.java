@@ -0,0 +1,66 @@
+package com.yunbq.backend.service;
+
+import com.yunbq.backend.config.LogProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 日志落地路由（LogSinks）
+ * 职责：
+ * - 按 logdb.audit-sink / request-sink / auth-sink / error-sink 为每类日志选择 {@link LogSink} 实现；
+ * - 未知的配置值回退到 db，并在启动时告警。
+ */
+@Component
+public class LogSinks {
+    private static final Logger log = LoggerFactory.getLogger(LogSinks.class);
+
+    private final Map<LogSink.Type, LogSink> routes = new EnumMap<>(LogSink.Type.class);
+
+    public LogSinks(List<LogSink> sinks, LogProperties props) {
+        Map<String, LogSink> byName = new HashMap<>();
+        for (LogSink s : sinks) {
+            byName.put(s.name(), s);
+        }
+        for (LogSink.Type t : LogSink.Type.values()) {
+            String configured = configured(props, t);
+            String key = configured == null ? "db" : configured.trim().toLowerCase(Locale.ROOT);
+            LogSink sink = byName.get(key);
+            if (sink == null) {
+                log.warn("Unknown log sink '{}' for logdb.{}-sink, falling back to db", configured, t.key());
+                sink = byName.get("db");
+            }
+            routes.put(t, sink);
+        }
+    }
+
+    /** 指定类型当前使用的落地实现。 */
+    public LogSink sinkFor(LogSink.Type type) {
+        return routes.get(type);
+    }
+
+    /** 写入一批同类型日志。 */
+    public void write(LogSink.Type type, List<?> records) {
+        routes.get(type).write(type, records);
+    }
+
+    /** 指定类型是否写入本地分段文件（此时管理端查询读取最近分段而非数据库表）。 */
+    public boolean isFile(LogSink.Type type) {
+        return routes.get(type) instanceof FileLogSink;
+    }
+
+    private static String configured(LogProperties props, LogSink.Type t) {
+        return switch (t) {
+            case AUDIT -> props.getAuditSink();
+            case REQUEST -> props.getRequestSink();
+            case AUTH -> props.getAuthSink();
+            case ERROR -> props.getErrorSink();
+        };
+    }
+}
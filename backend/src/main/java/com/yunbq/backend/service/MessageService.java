@@ -4,13 +4,12 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yunbq.backend.mapper.MessageMapper;
 import com.yunbq.backend.mapper.NoteMapper;
-import com.yunbq.backend.mapper.UserMapper;
 import com.yunbq.backend.model.Message;
 import com.yunbq.backend.model.Note;
-import com.yunbq.backend.model.User;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,7 +19,7 @@ import java.util.Map;
  * <p>
  * 职责：
  * - 创建行为消息（点赞/收藏）供作者接收；
- * - 提供分页查询（含便签、用户联表详情）；
+ * - 提供分页查询（联表便签摘要，触发者资料取自 {@link UserProfileCache}）；
  * - 标记消息已读与删除；
  * - 统计未读数与是否存在新消息。
  * <p>
@@ -32,12 +31,13 @@ import java.util.Map;
 public class MessageService {
     private final MessageMapper messageMapper;
     private final NoteMapper noteMapper;
-    private final UserMapper userMapper;
+    // 触发者公开资料缓存：列表渲染时补齐昵称/头像
+    private final UserProfileCache profileCache;
 
-    public MessageService(MessageMapper messageMapper, NoteMapper noteMapper, UserMapper userMapper) {
+    public MessageService(MessageMapper messageMapper, NoteMapper noteMapper, UserProfileCache profileCache) {
         this.messageMapper = messageMapper;
         this.noteMapper = noteMapper;
-        this.userMapper = userMapper;
+        this.profileCache = profileCache;
     }
 
     /**
@@ -52,7 +52,6 @@ public class MessageService {
         if (n == null) return;
         Long receiver = n.getUserId();
         if (receiver == null || receiver.equals(userId)) return; // 自己点赞自己的拾言不发消息
-        User actor = userMapper.selectById(userId);
         Message m = new Message();
         m.setType("like");
         m.setActorUserId(userId);
@@ -76,7 +75,6 @@ public class MessageService {
         if (n == null) return;
         Long receiver = n.getUserId();
         if (receiver == null || receiver.equals(userId)) return; // 自己收藏自己的拾言不发消息
-        User actor = userMapper.selectById(userId);
         Message m = new Message();
         m.setType("favorite");
         m.setActorUserId(userId);
@@ -100,6 +98,7 @@ public class MessageService {
     public Map<String, Object> list(Long uid, int page, int size, String type) {
         int offset = Math.max(0, (page - 1) * size);
         List<Map<String, Object>> items = messageMapper.listWithDetails(uid, type, offset, size);
+        fillActors(items);
         Long total = messageMapper.totalByType(uid, type);
         Map<String, Object> resp = new HashMap<>();
         resp.put("items", items);
@@ -107,6 +106,25 @@ public class MessageService {
         return resp;
     }
 
+    /**
+     * 按触发者 ID 批量补齐 actorUsername/actorNickname/actorAvatarUrl（字段与原联表查询一致）。
+     */
+    private void fillActors(List<Map<String, Object>> items) {
+        List<Long> actorIds = new ArrayList<>(items.size());
+        for (Map<String, Object> it : items) {
+            Object v = it.get("actorUserId");
+            if (v instanceof Number) actorIds.add(((Number) v).longValue());
+        }
+        Map<Long, UserProfileCache.Profile> actors = profileCache.getAll(actorIds);
+        for (Map<String, Object> it : items) {
+            Object v = it.get("actorUserId");
+            UserProfileCache.Profile p = (v instanceof Number) ? actors.get(((Number) v).longValue()) : null;
+            it.put("actorUsername", p == null ? null : p.username());
+            it.put("actorNickname", p == null ? null : p.nickname());
+            it.put("actorAvatarUrl", p == null ? null : p.avatarUrl());
+        }
+    }
+
     /**
      * 标记消息已读。
      *
@@ -5,11 +5,11 @@ import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yunbq.backend.mapper.NavigationCategoryMapper;
 import com.yunbq.backend.model.NavigationCategory;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.Cacheable;
+import com.yunbq.backend.util.CsvWriter;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
@@ -34,55 +34,49 @@ import java.util.Map;
 public class NavigationCategoryService {
     
     private final NavigationCategoryMapper categoryMapper;
-    // 注入 CacheManager：用于在分类写操作后执行精确的缓存清理
-    private final CacheManager cacheManager;
+    // 分类版本号：写操作在事务提交后递增（回滚不递增），驱动导航快照重建与分类列表 ETag
+    private final ContentVersions versions;
+    // 导航内存快照：公开读接口从快照返回，不访问数据库
+    private final NavigationSnapshot snapshot;
     
-    public NavigationCategoryService(NavigationCategoryMapper categoryMapper, CacheManager cacheManager) {
+    public NavigationCategoryService(NavigationCategoryMapper categoryMapper, ContentVersions versions, NavigationSnapshot snapshot) {
         this.categoryMapper = categoryMapper;
-        this.cacheManager = cacheManager;
+        this.versions = versions;
+        this.snapshot = snapshot;
     }
     
     /**
      * 获取所有启用的一级分类
-     * 返回仅包含根分类（`parent_id IS NULL`）且 `is_enabled=true` 的列表。
+     * 返回仅包含根分类（`parent_id IS NULL`）且 `is_enabled=true` 的列表，用于渲染导航栏。
+     * 数据来自导航内存快照（{@link NavigationSnapshot}），不访问数据库。
      *
      * 返回：
-     * - 一级分类列表。
+     * - 一级分类列表（只读）。
      */
-    /**
-     * 启用的一级分类（根分类）查询（带缓存）
-     * 缓存名：`categories_root`
-     * 说明：用于渲染导航栏的一级分类；读多写少场景下提升响应性能。
-     */
-    @Cacheable(cacheNames = "categories_root")
     public List<NavigationCategory> getRootCategories() {
-        return categoryMapper.selectRootCategories();
+        return snapshot.rootCategories();
     }
     
     /**
      * 根据父级ID获取子分类
+     * 数据来自导航内存快照，不访问数据库。
      * 参数：
      * - parentId：父级分类 ID（不可为 null）。
      * 返回：
-     * - 子分类列表（按排序与 ID 升序）。
+     * - 启用的子分类列表（按排序与 ID 升序，只读）。
      */
     public List<NavigationCategory> getSubCategories(Long parentId) {
-        return categoryMapper.selectByParentId(parentId);
+        return snapshot.subCategories(parentId);
     }
     
     /**
      * 获取所有启用的分类（包含一级和二级）
+     * 用于一次性加载完整导航树（/categories/all）；数据来自导航内存快照，不访问数据库。
      * 返回：
-     * - 启用状态为 true 的全部分类列表。
+     * - 启用状态为 true 的全部分类列表（只读）。
      */
-    /**
-     * 启用的全部分类（含一级与二级）查询（带缓存）
-     * 缓存名：`categories_enabled`
-     * 说明：用于一次性加载完整导航树（/categories/all）。
-     */
-    @Cacheable(cacheNames = "categories_enabled")
     public List<NavigationCategory> getAllEnabledCategories() {
-        return categoryMapper.selectAllEnabled();
+        return snapshot.enabledCategories();
     }
 
     /**
@@ -105,49 +99,30 @@ public class NavigationCategoryService {
     }
 
     /**
-     * 将分类列表导出为 CSV 字符串
+     * 将分类列表以 CSV 写出
      * 
      * CSV 格式约定：
      * - 第一行是表头，字段顺序与 NavigationCategory 属性一致（便于导入与比对）；
-     * - 文本字段统一进行转义：包含逗号、双引号、换行时使用双引号包裹，并将内部双引号替换为两个双引号；
+     * - 文本字段统一进行转义（见 {@link CsvWriter}），与站点导出保持一致；
      * - 空值输出为空字符串；
      * - 时间字段使用 toString()（ISO-8601），与站点导出保持一致，便于解析。
+     * BOM 与 flush 由调用方负责。
      */
-    public String exportCategoriesToCsv(List<NavigationCategory> categories) {
-        StringBuilder sb = new StringBuilder();
+    public void exportCategoriesToCsv(List<NavigationCategory> categories, CsvWriter csv) throws IOException {
         // 表头：与实体字段的 camelCase 保持一致
-        sb.append("id,parentId,name,icon,description,sortOrder,isEnabled,createdAt,updatedAt\n");
+        csv.header("id", "parentId", "name", "icon", "description", "sortOrder", "isEnabled", "createdAt", "updatedAt");
         for (NavigationCategory c : categories) {
-            sb.append(csv(c.getId())).append(',')
-              .append(csv(c.getParentId())).append(',')
-              .append(csv(c.getName())).append(',')
-              .append(csv(c.getIcon())).append(',')
-              .append(csv(c.getDescription())).append(',')
-              .append(csv(c.getSortOrder())).append(',')
-              .append(csv(c.getIsEnabled())).append(',')
-              .append(csv(c.getCreatedAt())).append(',')
-              .append(csv(c.getUpdatedAt())).append('\n');
-        }
-        return sb.toString();
-    }
-
-    /**
-     * CSV 字段转义工具
-     * 规则：
-     * - null 输出为空；
-     * - 将值转为字符串；
-     * - 若包含逗号、双引号、换行（\n/\r），则使用双引号包裹，并将内部双引号替换为两个双引号。
-     * 
-     * 与 NavigationSiteService 中的实现保持一致，确保导出格式统一。
-     */
-    private String csv(Object val) {
-        if (val == null) return "";
-        String str = String.valueOf(val);
-        String escaped = str.replace("\"", "\"\"");
-        if (str.contains(",") || str.contains("\"") || str.contains("\n") || str.contains("\r")) {
-            return "\"" + escaped + "\"";
+            csv.field(c.getId())
+               .field(c.getParentId())
+               .field(c.getName())
+               .field(c.getIcon())
+               .field(c.getDescription())
+               .field(c.getSortOrder())
+               .field(c.getIsEnabled())
+               .field(c.getCreatedAt())
+               .field(c.getUpdatedAt())
+               .endRow();
         }
-        return escaped;
     }
     
     /**
@@ -196,12 +171,13 @@ public class NavigationCategoryService {
     
     /**
      * 根据ID获取导航分类
+     * 数据来自导航内存快照（含未启用分类），不访问数据库。
      * 
      * @param id 分类ID
-     * @return 导航分类
+     * @return 导航分类（只读）；不存在时为 null
      */
     public NavigationCategory getById(Long id) {
-        return categoryMapper.selectById(id);
+        return snapshot.category(id);
     }
     
     /**
@@ -219,6 +195,7 @@ public class NavigationCategoryService {
      */
     @Transactional
     public NavigationCategory createCategory(NavigationCategory category) {
+        versions.bump(ContentVersions.NAV_CATEGORIES);
         // 设置创建时间和更新时间
         LocalDateTime now = LocalDateTime.now();
         category.setCreatedAt(now);
@@ -245,8 +222,6 @@ public class NavigationCategoryService {
         }
         
         categoryMapper.insert(category);
-        // 写操作后：清理分类相关缓存，确保导航栏数据刷新
-        clearCategoryCaches();
         return category;
     }
     
@@ -269,6 +244,7 @@ public class NavigationCategoryService {
      */
     @Transactional
     public NavigationCategory updateCategory(Long id, NavigationCategory category) {
+        versions.bump(ContentVersions.NAV_CATEGORIES);
         NavigationCategory existingCategory = categoryMapper.selectById(id);
         if (existingCategory == null) {
             throw new RuntimeException("导航分类不存在");
@@ -332,8 +308,6 @@ public class NavigationCategoryService {
         updateWrapper.set("updated_at", LocalDateTime.now());
         
         categoryMapper.update(null, updateWrapper);
-        // 写操作后：清理分类相关缓存
-        clearCategoryCaches();
         return categoryMapper.selectById(id);
     }
     
@@ -352,6 +326,7 @@ public class NavigationCategoryService {
      */
     @Transactional
     public void deleteCategory(Long id) {
+        versions.bump(ContentVersions.NAV_CATEGORIES);
         NavigationCategory category = categoryMapper.selectById(id);
         if (category == null) {
             throw new RuntimeException("导航分类不存在");
@@ -369,8 +344,6 @@ public class NavigationCategoryService {
         // 这里需要注入NavigationSiteMapper来检查
         
         categoryMapper.deleteById(id);
-        // 写操作后：清理分类相关缓存
-        clearCategoryCaches();
     }
     
     /**
@@ -386,6 +359,7 @@ public class NavigationCategoryService {
      */
     @Transactional
     public void updateCategoriesOrder(List<Long> categoryIds, Long parentId) {
+        versions.bump(ContentVersions.NAV_CATEGORIES);
         for (int i = 0; i < categoryIds.size(); i++) {
             Long categoryId = categoryIds.get(i);
             UpdateWrapper<NavigationCategory> updateWrapper = new UpdateWrapper<>();
@@ -399,8 +373,6 @@ public class NavigationCategoryService {
             updateWrapper.set("updated_at", LocalDateTime.now());
             categoryMapper.update(null, updateWrapper);
         }
-        // 排序调整后：清理分类相关缓存
-        clearCategoryCaches();
     }
     
     /**
@@ -416,6 +388,7 @@ public class NavigationCategoryService {
      */
     @Transactional
     public NavigationCategory toggleEnabled(Long id) {
+        versions.bump(ContentVersions.NAV_CATEGORIES);
         NavigationCategory category = categoryMapper.selectById(id);
         if (category == null) {
             throw new RuntimeException("导航分类不存在");
@@ -427,8 +400,6 @@ public class NavigationCategoryService {
         updateWrapper.set("updated_at", LocalDateTime.now());
         
         categoryMapper.update(null, updateWrapper);
-        // 状态切换后：清理分类相关缓存
-        clearCategoryCaches();
         return categoryMapper.selectById(id);
     }
 
@@ -492,6 +463,7 @@ public class NavigationCategoryService {
      */
     @Transactional
     public Map<String, Object> importCategories(List<NavigationCategory> categories) {
+        versions.bump(ContentVersions.NAV_CATEGORIES);
         int total = categories == null ? 0 : categories.size();
         int created = 0;
         int updated = 0;
@@ -554,8 +526,6 @@ public class NavigationCategoryService {
             }
         }
 
-        // 导入执行完成：清理分类相关缓存，确保前端获取到最新的导航结构
-        clearCategoryCaches();
 
         return Map.of(
             "total", total,
@@ -564,28 +534,4 @@ public class NavigationCategoryService {
             "errors", errors
         );
     }
-
-    // ==================== 缓存辅助方法 ====================
-    /**
-     * 清理与导航分类相关的缓存（统一入口）
-     * 包含：
-     * - categories_root：一级分类缓存（导航栏使用）
-     * - categories_enabled：启用的全部分类缓存（含一级与二级）
-     */
-    private void clearCategoryCaches() {
-        clearCache("categories_root");
-        clearCache("categories_enabled");
-    }
-
-    /**
-     * 清理指定名称的缓存
-     * 若缓存未初始化（尚未命中），安全跳过。
-     * @param cacheName 缓存名称
-     */
-    private void clearCache(String cacheName) {
-        var cache = cacheManager.getCache(cacheName);
-        if (cache != null) {
-            cache.clear();
-        }
-    }
-}
\ No newline at end of file
+}
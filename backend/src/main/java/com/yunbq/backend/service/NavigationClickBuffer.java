@@ -0,0 +1,173 @@
+package com.yunbq.backend.service;
+
+import com.yunbq.backend.mapper.NavigationSiteMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 导航站点点击计数缓冲（NavigationClickBuffer）
+ * 作用：
+ * - 原实现每次点击：selectById → UPDATE click_count + 1 → selectById → 清空 sites_popular / sites_featured，
+ *   热门站点的同一行被逐次加锁串行更新，且热门/推荐缓存几乎总是空的；
+ * - 现在点击只在内存中按站点 ID 累加（每个站点一个 LongAdder，请求线程不访问数据库），
+ *   定时任务每 navigation.clicks.flush-interval-ms 把增量合并为一条 {@code UPDATE ... CASE id} 批量写入；
+ * - 站点版本号（驱动导航快照重建与 ETag）不再按点击递增，而是在有点击落库后最多每 navigation.clicks.ranking-refresh-interval-ms 递增一次，
+ *   热门/推荐排行随快照重建刷新（见 NavigationSnapshot）。
+ *
+ * 一致性说明：
+ * - 落库为增量累加（click_count = click_count + n），多实例各自缓冲互不冲突；
+ * - 写入失败时增量加回缓冲，下次刷盘重试；应用关闭时执行一次最终刷盘；
+ * - 只接收已存在且启用的站点 ID（由 NavigationSiteService 按导航快照校验）；
+ * - 待写站点数上限 navigation.clicks.max-pending-sites，超出时新站点的点击丢弃并计数（兜底，防止缓冲无界增长）；
+ * - 连续两轮无点击的站点条目会被移除；移除瞬间恰好到达的点击可能丢失，点击数本身是近似统计，可以接受。
+ */
+@Component
+public class NavigationClickBuffer implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(NavigationClickBuffer.class);
+
+    private final NavigationSiteMapper siteMapper;
+    private final ContentVersions versions;
+    private final int batchSize;
+    private final int maxPendingSites;
+    private final long rankingRefreshIntervalMs;
+
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    // 上一轮已无点击的站点：本轮仍为 0 时移除（仅刷盘线程读写）
+    private Set<Long> idle = new HashSet<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    // 有点击落库但尚未递增站点版本号
+    private boolean rankingDirty;
+    private long lastRankingRefresh;
+
+    public NavigationClickBuffer(NavigationSiteMapper siteMapper,
+                                 ContentVersions versions,
+                                 @Value("${navigation.clicks.flush-batch-size:500}") int batchSize,
+                                 @Value("${navigation.clicks.max-pending-sites:50000}") int maxPendingSites,
+                                 @Value("${navigation.clicks.ranking-refresh-interval-ms:60000}") long rankingRefreshIntervalMs) {
+        this.siteMapper = siteMapper;
+        this.versions = versions;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPendingSites = Math.max(1, maxPendingSites);
+        this.rankingRefreshIntervalMs = Math.max(0L, rankingRefreshIntervalMs);
+    }
+
+    /**
+     * 记录一次点击（热路径，不访问数据库）。
+     * 返回：
+     * - true 已计入；false 待写站点数已达上限，本次点击被丢弃。
+     */
+    public boolean increment(Long siteId) {
+        if (siteId == null) return false;
+        LongAdder adder = pending.get(siteId);
+        if (adder == null) {
+            if (pending.size() >= maxPendingSites) {
+                dropped.increment();
+                return false;
+            }
+            adder = pending.computeIfAbsent(siteId, k -> new LongAdder());
+        }
+        adder.increment();
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * 定时刷盘：取出各站点增量，按 flush-batch-size 分批执行 UPDATE ... CASE。
+     * 同步执行，避免与关闭时的最终刷盘并发。
+     */
+    @Scheduled(fixedDelayString = "${navigation.clicks.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        Set<Long> nowIdle = new HashSet<>();
+        for (Map.Entry<Long, LongAdder> e : pending.entrySet()) {
+            long n = e.getValue().sumThenReset();
+            if (n > 0) {
+                deltas.put(e.getKey(), n);
+            } else if (idle.contains(e.getKey())) {
+                pending.remove(e.getKey(), e.getValue());
+            } else {
+                nowIdle.add(e.getKey());
+            }
+        }
+        idle = nowIdle;
+
+        if (!deltas.isEmpty()) {
+            List<Map.Entry<Long, Long>> all = new ArrayList<>(deltas.entrySet());
+            for (int i = 0; i < all.size(); i += batchSize) {
+                Map<Long, Long> chunk = new LinkedHashMap<>();
+                for (Map.Entry<Long, Long> e : all.subList(i, Math.min(all.size(), i + batchSize))) {
+                    chunk.put(e.getKey(), e.getValue());
+                }
+                try {
+                    siteMapper.addClickCounts(chunk);
+                    long sum = 0;
+                    for (long v : chunk.values()) sum += v;
+                    flushed.add(sum);
+                    rankingDirty = true;
+                } catch (Exception ex) {
+                    log.warn("[NavClicks] flush {} sites failed, will retry: {}", chunk.size(), ex.getMessage());
+                    chunk.forEach((id, n) -> pending.computeIfAbsent(id, k -> new LongAdder()).add(n));
+                }
+            }
+        }
+        refreshRankingIfDue();
+    }
+
+    /** 应用关闭时最终刷盘，尽量不丢失缓冲中的点击。 */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /** 当前待写站点数（近似）。 */
+    public int pendingSites() {
+        return pending.size();
+    }
+
+    /** 注册指标：yunbq.navigation.clicks{result=accepted|dropped|flushed} 与待写站点数。 */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("yunbq.navigation.clicks.pending.sites", pending, Map::size)
+                .register(registry);
+        clicksCounter(registry, "accepted", accepted);
+        clicksCounter(registry, "dropped", dropped);
+        clicksCounter(registry, "flushed", flushed);
+    }
+
+    private static void clicksCounter(MeterRegistry registry, String result, LongAdder adder) {
+        FunctionCounter.builder("yunbq.navigation.clicks", adder, LongAdder::sum)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * 点击落库后按间隔递增站点版本号，触发导航快照重建（热门/推荐排行与 ETag 随之更新），而非每次点击都重建。
+     */
+    private void refreshRankingIfDue() {
+        if (!rankingDirty) return;
+        long now = System.currentTimeMillis();
+        if (now - lastRankingRefresh < rankingRefreshIntervalMs) return;
+        versions.bump(ContentVersions.NAV_SITES);
+        rankingDirty = false;
+        lastRankingRefresh = now;
+    }
+}
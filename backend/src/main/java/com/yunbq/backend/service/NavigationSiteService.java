@@ -7,9 +7,12 @@ import com.yunbq.backend.mapper.NavigationSiteMapper;
 import com.yunbq.backend.mapper.NavigationCategoryMapper;
 import com.yunbq.backend.model.NavigationSite;
 import com.yunbq.backend.model.NavigationCategory;
+import com.yunbq.backend.util.CsvWriter;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
@@ -17,9 +20,6 @@ import java.util.Map;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 
 /**
  * 导航站点服务（NavigationSiteService）
@@ -41,13 +41,20 @@ public class NavigationSiteService {
     
     private final NavigationSiteMapper siteMapper;
     private final NavigationCategoryMapper categoryMapper;
-    // 注入 CacheManager 以在写操作后进行精确的缓存失效
-    private final CacheManager cacheManager;
+    // 站点版本号：写操作在事务提交后递增（回滚不递增），驱动导航快照重建与站点列表 ETag
+    private final ContentVersions versions;
+    // 点击计数缓冲：点击在内存中累加，定时批量落库
+    private final NavigationClickBuffer clickBuffer;
+    // 导航内存快照：公开读接口从快照返回，不访问数据库
+    private final NavigationSnapshot snapshot;
     
-    public NavigationSiteService(NavigationSiteMapper siteMapper, NavigationCategoryMapper categoryMapper, CacheManager cacheManager) {
+    public NavigationSiteService(NavigationSiteMapper siteMapper, NavigationCategoryMapper categoryMapper, ContentVersions versions,
+                                 NavigationClickBuffer clickBuffer, NavigationSnapshot snapshot) {
         this.siteMapper = siteMapper;
         this.categoryMapper = categoryMapper;
-        this.cacheManager = cacheManager;
+        this.versions = versions;
+        this.clickBuffer = clickBuffer;
+        this.snapshot = snapshot;
     }
 
     /**
@@ -70,149 +77,92 @@ public class NavigationSiteService {
     }
 
     /**
-     * 将站点列表导出为 CSV 字符串
+     * 将站点列表以 CSV 写出
      * CSV 格式约定：
      * - 第一行是表头，字段顺序与 NavigationSite 属性一致（便于导入与对齐）；
-     * - 文本字段统一进行转义：包含逗号、双引号、换行时使用双引号包裹，并将内部双引号替换为两个双引号；
+     * - 文本字段统一进行转义（见 {@link CsvWriter}）：包含逗号、双引号、换行时使用双引号包裹，并将内部双引号替换为两个双引号；
      * - 空值输出为空字符串；
      * - 时间字段使用 toString()（ISO-8601），便于后续解析。
      *
      * 参数：
-     * - sites：待导出的站点列表。
-     *
-     * 返回：
-     * - CSV 字符串。
+     * - sites：待导出的站点列表；
+     * - csv：目标写出器（BOM 与 flush 由调用方负责）。
      */
-    public String exportSitesToCsv(java.util.List<NavigationSite> sites) {
-        StringBuilder sb = new StringBuilder();
-        // 表头
-        sb.append("id,categoryId,name,url,description,icon,faviconUrl,tags,sortOrder,isEnabled,isFeatured,clickCount,userId,createdAt,updatedAt\n");
+    public void exportSitesToCsv(java.util.List<NavigationSite> sites, CsvWriter csv) throws IOException {
+        csv.header("id", "categoryId", "name", "url", "description", "icon", "faviconUrl", "tags",
+                "sortOrder", "isEnabled", "isFeatured", "clickCount", "userId", "createdAt", "updatedAt");
         for (NavigationSite s : sites) {
-            sb.append(csv(s.getId())).append(',')
-              .append(csv(s.getCategoryId())).append(',')
-              .append(csv(s.getName())).append(',')
-              .append(csv(s.getUrl())).append(',')
-              .append(csv(s.getDescription())).append(',')
-              .append(csv(s.getIcon())).append(',')
-              .append(csv(s.getFaviconUrl())).append(',')
-              .append(csv(s.getTags())).append(',')
-              .append(csv(s.getSortOrder())).append(',')
-              .append(csv(s.getIsEnabled())).append(',')
-              .append(csv(s.getIsFeatured())).append(',')
-              .append(csv(s.getClickCount())).append(',')
-              .append(csv(s.getUserId())).append(',')
-              .append(csv(s.getCreatedAt())).append(',')
-              .append(csv(s.getUpdatedAt())).append('\n');
-        }
-        return sb.toString();
-    }
-
-    /**
-     * CSV 字段转义工具
-     * 规则：
-     * - null 输出为空；
-     * - 将值转为字符串；
-     * - 若包含逗号、双引号、换行（\n/\r），则使用双引号包裹，并将内部双引号替换为两个双引号。
-     *
-     * 参数：
-     * - val：待转义的字段值。
-     *
-     * 返回：
-     * - 已转义的安全 CSV 字段字符串。
-     */
-    private String csv(Object val) {
-        if (val == null) return "";
-        String str = String.valueOf(val);
-        String escaped = str.replace("\"", "\"\"");
-        if (str.contains(",") || str.contains("\"") || str.contains("\n") || str.contains("\r")) {
-            return "\"" + escaped + "\"";
-        }
-        return escaped;
+            csv.field(s.getId())
+               .field(s.getCategoryId())
+               .field(s.getName())
+               .field(s.getUrl())
+               .field(s.getDescription())
+               .field(s.getIcon())
+               .field(s.getFaviconUrl())
+               .field(s.getTags())
+               .field(s.getSortOrder())
+               .field(s.getIsEnabled())
+               .field(s.getIsFeatured())
+               .field(s.getClickCount())
+               .field(s.getUserId())
+               .field(s.getCreatedAt())
+               .field(s.getUpdatedAt())
+               .endRow();
+        }
     }
     
     /**
      * 根据分类ID获取站点列表
+     * 数据来自导航内存快照（{@link NavigationSnapshot}），不访问数据库；写操作提交后快照整体重建。
      * 参数：
      * - categoryId：分类 ID。
      * 返回：
-     * - 站点列表（按排序权重升序）。
-     */
-    /**
-     * 分类站点列表查询（带缓存）
-     * 缓存键：`sites_by_category::categoryId`
-     * 生效范围：仅启用站点，按排序返回稳定顺序。
-     * 失效策略：在创建/更新/删除/启用状态切换/排序调整等写操作后精确失效。
+     * - 启用的站点列表（按排序权重、ID 升序，只读）。
      */
-    @Cacheable(cacheNames = "sites_by_category", key = "#categoryId")
     public List<NavigationSite> getSitesByCategory(Long categoryId) {
-        // 修复：Mapper 方法名与 Service 不一致
-        // 说明：NavigationSiteMapper 中定义的方法为 selectByCategoryId(Long categoryId)，
-        // 此处原本调用了不存在的 selectByCategory(...)，会导致编译失败或运行时异常。
-        // 调整为调用正确的方法名，保证查询按分类ID返回启用的站点并按排序权重升序。
-        return siteMapper.selectByCategoryId(categoryId);
+        return snapshot.sitesByCategory(categoryId);
     }
     
     /**
      * 获取推荐站点
+     * 数据来自导航内存快照；点击数变化随点击缓冲落库后的快照重建生效。
      * 参数：
      * - limit：返回数量上限。
      * 返回：
-     * - 推荐站点列表（按点击次数降序）。
-     */
-    /**
-     * 推荐站点查询（带缓存）
-     * 缓存键：`sites_featured::limit`
-     * 失效策略：在推荐状态切换与批量导入写操作后清理（全部或相关）。
+     * - 启用的推荐站点列表（按点击次数降序，只读）。
      */
-    @Cacheable(cacheNames = "sites_featured", key = "#limit")
     public List<NavigationSite> getFeaturedSites(int limit) {
-        // 修复：Mapper 方法名与 Service 不一致
-        // 说明：NavigationSiteMapper 中定义的方法为 selectFeaturedSites(int limit)，
-        // 此处原本调用了不存在的 selectFeatured(...)。
-        // 调整为调用正确的方法名，使推荐站点查询按点击次数降序并限制数量。
-        return siteMapper.selectFeaturedSites(limit);
+        return snapshot.featured(limit);
     }
     
     /**
      * 获取热门站点
+     * 数据来自导航内存快照；点击数变化随点击缓冲落库后的快照重建生效。
      * 参数：
      * - limit：返回数量上限。
      * 返回：
-     * - 热门站点列表（按点击次数降序）。
+     * - 启用站点列表（按点击次数降序，只读）。
      */
-    /**
-     * 热门站点查询（带缓存）
-     * 缓存键：`sites_popular::limit`
-     * 失效策略：在点击次数自增与批量导入写操作后清理（全部或相关）。
-     */
-    @Cacheable(cacheNames = "sites_popular", key = "#limit")
     public List<NavigationSite> getPopularSites(int limit) {
-        // 修复：Mapper 方法名与 Service 不一致
-        // 说明：NavigationSiteMapper 中定义的方法为 selectPopularSites(int limit)，
-        // 此处原本调用了不存在的 selectPopular(...)。
-        // 调整为调用正确的方法名，使热门站点查询按点击次数降序并限制数量。
-        return siteMapper.selectPopularSites(limit);
+        return snapshot.popular(limit);
     }
     
     /**
      * 根据标签搜索站点
      * 行为：
-     * - 拆分多标签，仅使用第一个非空标签进行查询；
-     * - 若 `limit>0`，对结果列表进行内存截断。
+     * - 拆分多标签，仅使用第一个非空标签进行匹配（name/description/tags 子串匹配，不区分大小写）；
+     * - 若 `limit>0`，最多返回 limit 条；
+     * - 数据来自导航内存快照，不访问数据库。
      *
      * 参数：
      * - tags：标签字符串（支持逗号/空白分隔多个关键词）；
      * - limit：返回数量上限。
      *
      * 返回：
-     * - 站点列表（可能已截断）。
+     * - 站点列表（按排序权重、ID 升序）。
      */
     public List<NavigationSite> searchByTags(String tags, int limit) {
-        // 兼容说明：Mapper 当前提供的是 searchByTag(String tag) 单标签查询，且不支持 limit 参数。
-        // 为与 Controller 的「多标签 + limit」接口契合，这里采用以下策略：
-        // 1) 拆分传入的 tags（逗号/空白分隔），仅使用第一个非空标签执行数据库查询；
-        // 2) 若传入了 limit>0，则对结果列表进行内存级截断，避免返回过多数据；
-        // 3) 后续如需支持多标签 AND/OR 组合与 SQL 分页，可在 Mapper 侧新增相应方法。
+        // 多标签 AND/OR 组合如有需要可在快照检索中扩展；当前与原接口一致只取第一个标签
         if (tags == null || tags.trim().isEmpty()) {
             return java.util.Collections.emptyList();
         }
@@ -224,11 +174,7 @@ public class NavigationSiteService {
         if (firstTag.isEmpty()) {
             return java.util.Collections.emptyList();
         }
-        List<NavigationSite> all = siteMapper.searchByTag(firstTag);
-        if (limit > 0 && all.size() > limit) {
-            return all.subList(0, limit);
-        }
-        return all;
+        return snapshot.searchByTag(firstTag, limit);
     }
     
     /**
@@ -300,13 +246,14 @@ public class NavigationSiteService {
     
     /**
      * 根据ID获取导航站点
+     * 数据来自导航内存快照（含未启用站点），不访问数据库。
      * 参数：
      * - id：站点 ID。
      * 返回：
-     * - 站点实体（可能为 null）。
+     * - 站点实体（只读，可能为 null）。
      */
     public NavigationSite getById(Long id) {
-        return siteMapper.selectById(id);
+        return snapshot.site(id);
     }
     
     /**
@@ -328,6 +275,7 @@ public class NavigationSiteService {
      */
     @Transactional
     public NavigationSite createSite(NavigationSite site, Long userId) {
+        versions.bump(ContentVersions.NAV_SITES);
         // === 重要校验：分类ID不能为空 ===
         // 问题背景：数据库表 navigation_sites 的字段 category_id 为 NOT NULL 且无默认值。
         // 当请求未提供 categoryId 时，MyBatis-Plus 在 insert 语句中会省略该列（默认 NOT_NULL 插入策略），
@@ -383,10 +331,6 @@ public class NavigationSiteService {
         }
         
         siteMapper.insert(site);
-        // 写操作后：精确失效分类缓存，保证新站点及时可见
-        evictCategoryCache(site.getCategoryId());
-        // 新站点默认不影响热门/推荐，但为简洁可依赖 60s 过期；如需更强一致性可清理：
-        // clearCache("sites_featured"); clearCache("sites_popular");
         return site;
     }
     
@@ -409,6 +353,7 @@ public class NavigationSiteService {
      */
     @Transactional
     public NavigationSite updateSite(Long id, NavigationSite site) {
+        versions.bump(ContentVersions.NAV_SITES);
         NavigationSite existingSite = siteMapper.selectById(id);
         if (existingSite == null) {
             throw new RuntimeException("导航站点不存在");
@@ -462,9 +407,6 @@ public class NavigationSiteService {
         
         siteMapper.update(null, updateWrapper);
         NavigationSite updated = siteMapper.selectById(id);
-        // 写操作后：精确失效分类缓存（老分类与新分类）
-        evictCategoryCache(existingSite.getCategoryId());
-        evictCategoryCache(updated.getCategoryId());
         return updated;
     }
 
@@ -516,6 +458,7 @@ public class NavigationSiteService {
      */
     @Transactional
     public Map<String, Object> importSites(List<NavigationSite> sites, Long userId) {
+        versions.bump(ContentVersions.NAV_SITES);
         int total = sites == null ? 0 : sites.size();
         int created = 0;
         int updated = 0;
@@ -590,10 +533,6 @@ public class NavigationSiteService {
             "updated", updated,
             "errors", errors
         );
-        // 批量导入后：由于涉及多分类及推荐/热门，统一清理相关缓存
-        clearCache("sites_by_category");
-        clearCache("sites_featured");
-        clearCache("sites_popular");
         return summary;
     }
 
@@ -604,35 +543,34 @@ public class NavigationSiteService {
      */
     @Transactional
     public void deleteSite(Long id) {
+        versions.bump(ContentVersions.NAV_SITES);
         NavigationSite site = siteMapper.selectById(id);
         if (site == null) {
             throw new RuntimeException("导航站点不存在");
         }
         
         siteMapper.deleteById(id);
-        // 删除后：失效所属分类缓存
-        evictCategoryCache(site.getCategoryId());
     }
     
     /**
      * 增加站点点击次数
-     * 
+     * 说明：
+     * - 点击只计入内存缓冲（NavigationClickBuffer），由定时任务批量累加到 click_count，请求线程不访问数据库；
+     * - 热门/推荐缓存与站点列表 ETag 由缓冲在落库后按间隔刷新，不再每次点击失效；
+     * - 入缓冲前按导航快照校验站点存在且已启用（内存查找，不访问数据库），
+     *   避免伪造 ID 占满缓冲的待写站点数上限、挤掉真实站点的点击。
+     *
      * @param id 站点ID
-     * @return 更新后的站点
+     * @return 是否已计入（待写站点数达到上限时为 false）
+     * @throws RuntimeException 站点不存在或未启用时抛出
      */
-    @Transactional
-    public NavigationSite incrementClickCount(Long id) {
-        NavigationSite site = siteMapper.selectById(id);
-        if (site == null) {
+    @Timed("yunbq.navigation.click")
+    public boolean incrementClickCount(Long id) {
+        NavigationSite site = snapshot.site(id);
+        if (site == null || !Boolean.TRUE.equals(site.getIsEnabled())) {
             throw new RuntimeException("导航站点不存在");
         }
-        
-        siteMapper.incrementClickCount(id);
-        NavigationSite updated = siteMapper.selectById(id);
-        // 点击数变动可能影响热门/推荐排序：清理相关缓存
-        clearCache("sites_popular");
-        clearCache("sites_featured");
-        return updated;
+        return clickBuffer.increment(id);
     }
     
     /**
@@ -643,6 +581,7 @@ public class NavigationSiteService {
      */
     @Transactional
     public void updateSitesOrder(List<Long> siteIds, Long categoryId) {
+        versions.bump(ContentVersions.NAV_SITES);
         for (int i = 0; i < siteIds.size(); i++) {
             Long siteId = siteIds.get(i);
             UpdateWrapper<NavigationSite> updateWrapper = new UpdateWrapper<>();
@@ -654,12 +593,6 @@ public class NavigationSiteService {
             updateWrapper.set("updated_at", LocalDateTime.now());
             siteMapper.update(null, updateWrapper);
         }
-        // 排序变动后：失效对应分类缓存（若未指定分类，考虑清理全部分类缓存）
-        if (categoryId != null) {
-            evictCategoryCache(categoryId);
-        } else {
-            clearCache("sites_by_category");
-        }
     }
     
     /**
@@ -670,6 +603,7 @@ public class NavigationSiteService {
      */
     @Transactional
     public NavigationSite toggleEnabled(Long id) {
+        versions.bump(ContentVersions.NAV_SITES);
         NavigationSite site = siteMapper.selectById(id);
         if (site == null) {
             throw new RuntimeException("导航站点不存在");
@@ -682,8 +616,6 @@ public class NavigationSiteService {
         
         siteMapper.update(null, updateWrapper);
         NavigationSite updated = siteMapper.selectById(id);
-        // 启用状态切换：影响分类列表，清理相应分类缓存
-        evictCategoryCache(updated.getCategoryId());
         return updated;
     }
     
@@ -695,6 +627,7 @@ public class NavigationSiteService {
      */
     @Transactional
     public NavigationSite toggleFeatured(Long id) {
+        versions.bump(ContentVersions.NAV_SITES);
         NavigationSite site = siteMapper.selectById(id);
         if (site == null) {
             throw new RuntimeException("导航站点不存在");
@@ -707,38 +640,13 @@ public class NavigationSiteService {
         
         siteMapper.update(null, updateWrapper);
         NavigationSite updated = siteMapper.selectById(id);
-        // 推荐状态切换：影响推荐缓存
-        clearCache("sites_featured");
         return updated;
     }
 
-    // ==================== 缓存工具方法 ====================
-
-    /**
-     * 精确清理分类缓存
-     * 参数：categoryId 非空时清理 `sites_by_category::categoryId`；为空不处理。
-     */
-    private void evictCategoryCache(Long categoryId) {
-        if (categoryId == null) return;
-        Cache cache = cacheManager.getCache("sites_by_category");
-        if (cache != null) {
-            cache.evict(categoryId);
-        }
-    }
-
-    /**
-     * 清空指定缓存名称的所有条目
-     * 使用场景：推荐/热门缓存在排序依据变更（点击数、推荐状态）后统一清理。
-     */
-    private void clearCache(String cacheName) {
-        Cache cache = cacheManager.getCache(cacheName);
-        if (cache != null) {
-            cache.clear();
-        }
-    }
-    
     /**
      * 搜索站点（支持名称、描述、标签搜索）
+     * 过滤与排序与原 SQL 一致：启用站点，name/description/tags 子串匹配（不区分大小写），
+     * 按点击次数降序、排序权重与 ID 升序；数据来自导航内存快照，不访问数据库。
      * 
      * @param keyword 搜索关键词
      * @param page 页码
@@ -746,23 +654,6 @@ public class NavigationSiteService {
      * @return 搜索结果
      */
     public Page<NavigationSite> searchSites(String keyword, int page, int size) {
-        QueryWrapper<NavigationSite> queryWrapper = new QueryWrapper<>();
-        
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            String trimmedKeyword = keyword.trim();
-            queryWrapper.and(wrapper -> wrapper
-                .like("name", trimmedKeyword)
-                .or().like("description", trimmedKeyword)
-                .or().like("tags", trimmedKeyword)
-            );
-        }
-        
-        // 只查询启用的站点
-        queryWrapper.eq("is_enabled", true);
-        
-        // 按点击次数降序，然后按排序权重升序
-        queryWrapper.orderByDesc("click_count").orderByAsc("sort_order", "id");
-        
-        return siteMapper.selectPage(Page.of(page, size), queryWrapper);
+        return snapshot.search(keyword, page, size);
     }
-}
\ No newline at end of file
+}
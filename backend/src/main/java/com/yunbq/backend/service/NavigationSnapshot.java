@@ -0,0 +1,439 @@
+package com.yunbq.backend.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunbq.backend.mapper.NavigationCategoryMapper;
+import com.yunbq.backend.mapper.NavigationSiteMapper;
+import com.yunbq.backend.model.NavigationCategory;
+import com.yunbq.backend.model.NavigationSite;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 导航数据内存快照（NavigationSnapshot）
+ * 职责：
+ * - 一次性加载全部分类与站点，构建不可变快照：根分类、按父级分组的子分类、启用分类树、按分类分组的启用站点、
+ *   推荐/热门排行、按 ID 索引的分类与站点、检索用的小写文本；
+ * - 公开的 /api/navigation/** 读接口（分类树、子分类、分类站点、推荐/热门、关键词/标签检索、按 ID 查询）全部从快照返回，不访问数据库。
+ *
+ * 刷新策略：
+ * - 快照记录构建时的分类/站点版本号（ContentVersions）；后台每 navigation.snapshot.check-interval-ms 比较版本号，
+ *   写操作提交后（版本号递增）整体重建并以 volatile 引用原子替换，读请求看到的总是完整的一版；
+ * - 另每 navigation.snapshot.refresh-interval-ms 无条件重建一次，收敛其他实例的写入（版本号只在本实例可见）；
+ * - 点击数由 NavigationClickBuffer 落库后递增站点版本号，热门/推荐排行随之重建；
+ * - 首次读取时同步构建；重建失败保留旧快照并告警。
+ *
+ * 设计要点：
+ * - 导航数据量小（百～千级），全量加载两条 SQL 的代价低于按接口/参数分键缓存的多次回源；
+ * - 版本号在加载数据之前读取：加载期间并发提交的写入只会让快照“数据新于版本号”，下一轮检查再次重建；
+ * - ETag 使用快照自身的版本号（{@link #etag}），不会出现“新 ETag + 旧快照”被客户端长期 304 的情况；
+ * - 检索保持原 SQL 语义：LIKE '%kw%' 为子串匹配且不区分大小写，这里对预先小写化的 name/description/tags 做子串扫描；
+ * - 快照中的实体为共享只读对象，调用方不得修改。
+ *
+ * 预序列化响应（{@link #json}）：
+ * - 公开接口的最终 JSON 字节（可选附带 gzip 版本）按“接口 + 参数”缓存在当前快照内，命中时控制层直接写出字节，
+ *   不再逐请求执行 Jackson 序列化；快照重建即整体失效，与数据严格同版本，无需单独的失效调用；
+ * - 每版快照最多缓存 navigation.response-cache.max-entries 条，超出后仍正常序列化返回但不再缓存；
+ *   键只由快照中存在的 ID 与归一化后的参数构成（控制层校验），不存在的 ID 不入缓存；
+ * - 使用 Spring 管理的 ObjectMapper，输出与 MVC 消息转换器一致。
+ */
+@Component
+public class NavigationSnapshot implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(NavigationSnapshot.class);
+
+    // MySQL 升序 NULL 在前、降序 NULL 在后
+    private static final Comparator<Integer> INT_NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<NavigationSite> SITE_ORDER =
+            Comparator.comparing(NavigationSite::getSortOrder, INT_NULLS_FIRST)
+                    .thenComparing(NavigationSite::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    private static final Comparator<NavigationSite> CLICK_ORDER =
+            Comparator.comparing(NavigationSite::getClickCount, Comparator.nullsLast(Comparator.<Long>reverseOrder()))
+                    .thenComparing(SITE_ORDER);
+    private static final Comparator<NavigationCategory> CATEGORY_ORDER =
+            Comparator.comparing(NavigationCategory::getSortOrder, INT_NULLS_FIRST)
+                    .thenComparing(NavigationCategory::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /** 检索项：站点与其小写化的 name/description/tags */
+    private record Searchable(NavigationSite site, String name, String description, String tags) {
+        boolean matches(String kw) {
+            return (name != null && name.contains(kw))
+                    || (description != null && description.contains(kw))
+                    || (tags != null && tags.contains(kw));
+        }
+    }
+
+    /** 不可变快照 */
+    private record Data(long categoryVersion,
+                        long siteVersion,
+                        long builtAt,
+                        List<NavigationCategory> rootCategories,
+                        List<NavigationCategory> enabledCategories,
+                        Map<Long, List<NavigationCategory>> childrenByParent,
+                        Map<Long, NavigationCategory> categoriesById,
+                        Map<Long, List<NavigationSite>> sitesByCategory,
+                        Map<Long, NavigationSite> sitesById,
+                        List<NavigationSite> featured,
+                        List<NavigationSite> popular,
+                        // 启用站点：按 sort_order, id 排序（标签检索）与按点击数排序（关键词检索）
+                        List<Searchable> bySortOrder,
+                        List<Searchable> byClicks,
+                        // 预序列化响应：随本版快照失效
+                        ConcurrentHashMap<String, JsonBody> responses) {
+    }
+
+    /**
+     * 预序列化的 JSON 响应体。
+     * - raw：UTF-8 JSON 字节；
+     * - gzip：gzip 压缩后的字节，未开启或小于 gzip-min-bytes 时为 null。
+     */
+    public record JsonBody(byte[] raw, byte[] gzip) {
+    }
+
+    private final NavigationCategoryMapper categoryMapper;
+    private final NavigationSiteMapper siteMapper;
+    private final ContentVersions versions;
+    private final ObjectMapper objectMapper;
+    private final long refreshIntervalMs;
+    private final int maxResponses;
+    private final boolean gzipEnabled;
+    private final int gzipMinBytes;
+
+    private volatile Data data;
+    private final LongAdder responseHits = new LongAdder();
+    private final LongAdder responseMisses = new LongAdder();
+
+    public NavigationSnapshot(NavigationCategoryMapper categoryMapper,
+                              NavigationSiteMapper siteMapper,
+                              ContentVersions versions,
+                              ObjectMapper objectMapper,
+                              @Value("${navigation.snapshot.refresh-interval-ms:60000}") long refreshIntervalMs,
+                              @Value("${navigation.response-cache.max-entries:2000}") int maxResponses,
+                              @Value("${navigation.response-cache.gzip-enabled:true}") boolean gzipEnabled,
+                              @Value("${navigation.response-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.categoryMapper = categoryMapper;
+        this.siteMapper = siteMapper;
+        this.versions = versions;
+        this.objectMapper = objectMapper;
+        this.refreshIntervalMs = Math.max(1000L, refreshIntervalMs);
+        this.maxResponses = Math.max(0, maxResponses);
+        this.gzipEnabled = gzipEnabled;
+        this.gzipMinBytes = Math.max(0, gzipMinBytes);
+    }
+
+    // ==================== 分类 ====================
+
+    /** 启用的一级分类（按 sort_order, id）。 */
+    public List<NavigationCategory> rootCategories() {
+        return current().rootCategories();
+    }
+
+    /** 启用的全部分类（按 COALESCE(parent_id, 0), sort_order, id）。 */
+    public List<NavigationCategory> enabledCategories() {
+        return current().enabledCategories();
+    }
+
+    /** 指定父级下启用的直接子分类；不存在时返回空列表。 */
+    public List<NavigationCategory> subCategories(Long parentId) {
+        return current().childrenByParent().getOrDefault(parentId, List.of());
+    }
+
+    /** 按 ID 查询分类（含未启用）；不存在返回 null。 */
+    public NavigationCategory category(Long id) {
+        return id == null ? null : current().categoriesById().get(id);
+    }
+
+    // ==================== 站点 ====================
+
+    /** 分类下启用的站点（按 sort_order, id）。 */
+    public List<NavigationSite> sitesByCategory(Long categoryId) {
+        return current().sitesByCategory().getOrDefault(categoryId, List.of());
+    }
+
+    /** 按 ID 查询站点（含未启用）；不存在返回 null。 */
+    public NavigationSite site(Long id) {
+        return id == null ? null : current().sitesById().get(id);
+    }
+
+    /** 启用的推荐站点前 limit 条（按点击数降序、sort_order 升序）。 */
+    public List<NavigationSite> featured(int limit) {
+        return head(current().featured(), limit);
+    }
+
+    /** 启用站点前 limit 条（按点击数降序、sort_order 升序）。 */
+    public List<NavigationSite> popular(int limit) {
+        return head(current().popular(), limit);
+    }
+
+    /**
+     * 标签检索：name/description/tags 任一包含 tag（不区分大小写）的启用站点，按 sort_order, id 排序。
+     * 参数：
+     * - limit：大于 0 时最多返回 limit 条。
+     */
+    public List<NavigationSite> searchByTag(String tag, int limit) {
+        String kw = tag.toLowerCase(Locale.ROOT);
+        int max = limit > 0 ? limit : Integer.MAX_VALUE;
+        List<NavigationSite> out = new ArrayList<>();
+        for (Searchable s : current().bySortOrder()) {
+            if (out.size() >= max) break;
+            if (s.matches(kw)) out.add(s.site());
+        }
+        return out;
+    }
+
+    /**
+     * 关键词分页检索：与原 SQL 相同的过滤与排序（启用站点，点击数降序、sort_order, id 升序）。
+     * 参数：
+     * - keyword：为空时不过滤；
+     * - page/size：分页语义与 MyBatis-Plus 一致（page ≤ 1 视为第一页，size < 0 不分页）。
+     */
+    public Page<NavigationSite> search(String keyword, int page, int size) {
+        String kw = keyword == null || keyword.trim().isEmpty() ? null : keyword.trim().toLowerCase(Locale.ROOT);
+        List<NavigationSite> matched = new ArrayList<>();
+        for (Searchable s : current().byClicks()) {
+            if (kw == null || s.matches(kw)) matched.add(s.site());
+        }
+        Page<NavigationSite> result = Page.of(page, size, matched.size());
+        if (size < 0) {
+            result.setRecords(matched);
+        } else {
+            long offset = page <= 1 ? 0 : (long) (page - 1) * size;
+            int from = (int) Math.min(matched.size(), offset);
+            int to = (int) Math.min(matched.size(), from + (long) size);
+            result.setRecords(new ArrayList<>(matched.subList(from, to)));
+        }
+        return result;
+    }
+
+    // ==================== 预序列化响应 ====================
+
+    /**
+     * 获取预序列化的 JSON 响应体。
+     * 参数：
+     * - key：接口 + 参数组成的缓存键（如 {@code "sites/category:12"}）；为 null 时不查找也不缓存，仅序列化；
+     * - loader：未命中时生成响应对象（应只读取快照数据）。
+     * 返回：
+     * - 响应体；loader 返回 null（如按 ID 未找到）时返回 null 且不缓存。
+     * 说明：
+     * - 未命中时 loader 可能读到比本版更新的快照，字节只会“新于”所属版本，不影响 ETag 正确性；
+     * - 调用方只应以快照中存在的 ID、归一化后的参数构造 key，否则传 null，避免任意参数占满缓存条目。
+     */
+    public JsonBody json(String key, Supplier<?> loader) {
+        Data d = current();
+        JsonBody body = key == null ? null : d.responses().get(key);
+        if (body != null) {
+            responseHits.increment();
+            return body;
+        }
+        responseMisses.increment();
+        Object value = loader.get();
+        if (value == null) return null;
+        body = serialize(value);
+        if (key != null && d.responses().size() < maxResponses) {
+            JsonBody prev = d.responses().putIfAbsent(key, body);
+            if (prev != null) body = prev;
+        }
+        return body;
+    }
+
+    private JsonBody serialize(Object value) {
+        try {
+            byte[] raw = objectMapper.writeValueAsBytes(value);
+            byte[] gz = null;
+            if (gzipEnabled && raw.length >= gzipMinBytes) {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream(raw.length / 4 + 64);
+                try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+                    out.write(raw);
+                }
+                gz = buf.toByteArray();
+            }
+            return new JsonBody(raw, gz);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("导航响应序列化失败: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new RuntimeException("导航响应压缩失败: " + e.getMessage());
+        }
+    }
+
+    // ==================== 版本与刷新 ====================
+
+    /**
+     * 以快照自身的版本号生成强 ETag（语义同 {@link ContentVersions#etag}）。
+     * 参数：
+     * - name：ContentVersions.NAV_CATEGORIES 或 NAV_SITES；
+     * - variant：同一集合下区分响应的维度。
+     */
+    public String etag(String name, Object... variant) {
+        Data d = current();
+        long v = ContentVersions.NAV_CATEGORIES.equals(name) ? d.categoryVersion() : d.siteVersion();
+        return versions.etagAt(name, v, variant);
+    }
+
+    /**
+     * 后台检查：版本号变化或距上次构建超过 refresh-interval-ms 时重建快照。
+     * 首次构建由读请求触发，尚未构建时这里不做处理，避免启动阶段抢先访问数据库。
+     */
+    @Scheduled(fixedDelayString = "${navigation.snapshot.check-interval-ms:1000}")
+    public void refreshIfStale() {
+        Data d = data;
+        if (d == null) return;
+        boolean changed = d.categoryVersion() != versions.current(ContentVersions.NAV_CATEGORIES)
+                || d.siteVersion() != versions.current(ContentVersions.NAV_SITES);
+        if (!changed && System.currentTimeMillis() - d.builtAt() < refreshIntervalMs) return;
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("[NavSnapshot] rebuild failed, keep previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    /** 立即重建快照（导入等批量写入后可主动调用）。 */
+    public synchronized void rebuild() {
+        data = build();
+    }
+
+    /** 注册快照规模、年龄与预序列化响应命中指标（yunbq.navigation.snapshot.*）。 */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("yunbq.navigation.snapshot.sites", this, s -> s.data == null ? 0 : s.data.sitesById().size())
+                .register(registry);
+        Gauge.builder("yunbq.navigation.snapshot.categories", this, s -> s.data == null ? 0 : s.data.categoriesById().size())
+                .register(registry);
+        Gauge.builder("yunbq.navigation.snapshot.age.seconds", this,
+                        s -> s.data == null ? 0 : (System.currentTimeMillis() - s.data.builtAt()) / 1000.0)
+                .register(registry);
+        Gauge.builder("yunbq.navigation.snapshot.responses", this, s -> s.data == null ? 0 : s.data.responses().size())
+                .register(registry);
+        FunctionCounter.builder("yunbq.navigation.snapshot.response.lookups", responseHits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("yunbq.navigation.snapshot.response.lookups", responseMisses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    private Data current() {
+        Data d = data;
+        if (d != null) return d;
+        synchronized (this) {
+            if (data == null) {
+                data = build();
+            }
+            return data;
+        }
+    }
+
+    private Data build() {
+        long start = System.currentTimeMillis();
+        // 先取版本号再读数据（见类注释）
+        long categoryVersion = versions.current(ContentVersions.NAV_CATEGORIES);
+        long siteVersion = versions.current(ContentVersions.NAV_SITES);
+        List<NavigationCategory> categories = categoryMapper.selectList(new QueryWrapper<>());
+        List<NavigationSite> sites = siteMapper.selectList(new QueryWrapper<>());
+
+        Map<Long, NavigationCategory> categoriesById = index(categories, NavigationCategory::getId);
+        List<NavigationCategory> enabledCategories = new ArrayList<>();
+        for (NavigationCategory c : categories) {
+            if (Boolean.TRUE.equals(c.getIsEnabled())) enabledCategories.add(c);
+        }
+        enabledCategories.sort(Comparator
+                .comparingLong((NavigationCategory c) -> c.getParentId() == null ? 0L : c.getParentId())
+                .thenComparing(CATEGORY_ORDER));
+        List<NavigationCategory> roots = new ArrayList<>();
+        Map<Long, List<NavigationCategory>> children = new HashMap<>();
+        for (NavigationCategory c : enabledCategories) {
+            if (c.getParentId() == null) {
+                roots.add(c);
+            } else {
+                children.computeIfAbsent(c.getParentId(), k -> new ArrayList<>()).add(c);
+            }
+        }
+        roots.sort(CATEGORY_ORDER);
+        children.values().forEach(l -> l.sort(CATEGORY_ORDER));
+
+        Map<Long, NavigationSite> sitesById = index(sites, NavigationSite::getId);
+        List<NavigationSite> enabled = new ArrayList<>();
+        for (NavigationSite s : sites) {
+            if (Boolean.TRUE.equals(s.getIsEnabled())) enabled.add(s);
+        }
+        enabled.sort(SITE_ORDER);
+        Map<Long, List<NavigationSite>> byCategory = new HashMap<>();
+        List<Searchable> bySortOrder = new ArrayList<>(enabled.size());
+        for (NavigationSite s : enabled) {
+            if (s.getCategoryId() != null) {
+                byCategory.computeIfAbsent(s.getCategoryId(), k -> new ArrayList<>()).add(s);
+            }
+            bySortOrder.add(new Searchable(s, lower(s.getName()), lower(s.getDescription()), lower(s.getTags())));
+        }
+        List<Searchable> byClicks = new ArrayList<>(bySortOrder);
+        byClicks.sort(Comparator.comparing(Searchable::site, CLICK_ORDER));
+        List<NavigationSite> popular = new ArrayList<>(enabled);
+        popular.sort(CLICK_ORDER);
+        List<NavigationSite> featured = new ArrayList<>();
+        for (NavigationSite s : popular) {
+            if (Boolean.TRUE.equals(s.getIsFeatured())) featured.add(s);
+        }
+
+        Data d = new Data(categoryVersion, siteVersion, System.currentTimeMillis(),
+                Collections.unmodifiableList(roots),
+                Collections.unmodifiableList(enabledCategories),
+                freeze(children),
+                Collections.unmodifiableMap(categoriesById),
+                freeze(byCategory),
+                Collections.unmodifiableMap(sitesById),
+                Collections.unmodifiableList(featured),
+                Collections.unmodifiableList(popular),
+                Collections.unmodifiableList(bySortOrder),
+                Collections.unmodifiableList(byClicks),
+                new ConcurrentHashMap<>());
+        log.debug("[NavSnapshot] built: {} categories, {} sites in {}ms (versions {}/{})",
+                categories.size(), sites.size(), System.currentTimeMillis() - start, categoryVersion, siteVersion);
+        return d;
+    }
+
+    private static <T> List<T> head(List<T> list, int limit) {
+        return list.subList(0, Math.max(0, Math.min(limit, list.size())));
+    }
+
+    private static <T> Map<Long, T> index(List<T> list, Function<T, Long> id) {
+        Map<Long, T> m = new HashMap<>(list.size() * 2);
+        for (T t : list) {
+            Long k = id.apply(t);
+            if (k != null) m.put(k, t);
+        }
+        return m;
+    }
+
+    private static <T> Map<Long, List<T>> freeze(Map<Long, List<T>> m) {
+        Map<Long, List<T>> out = new HashMap<>(m.size() * 2);
+        m.forEach((k, v) -> out.put(k, Collections.unmodifiableList(v)));
+        return Collections.unmodifiableMap(out);
+    }
+
+    private static String lower(String s) {
+        return s == null ? null : s.toLowerCase(Locale.ROOT);
+    }
+}
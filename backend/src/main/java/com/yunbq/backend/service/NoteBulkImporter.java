@@ -0,0 +1,278 @@
+package com.yunbq.backend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunbq.backend.dto.NoteRequest;
+import com.yunbq.backend.mapper.NoteMapper;
+import com.yunbq.backend.mapper.NoteTagMapper;
+import com.yunbq.backend.model.Note;
+import com.yunbq.backend.model.NoteTag;
+import com.yunbq.backend.util.HashtagParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拾言批量导入器（NoteBulkImporter）
+ * 职责：
+ * - 逐条校验与解析导入条目（内容非空、字段长度、标签拆分），校验失败的条目记录行级错误并跳过；
+ * - 校验通过的条目按块（notes.import.batch-size）多行 INSERT 写入 shiyan，并同步写入 note_tags；
+ * - 支持直接从请求体流式解析 JSON（`{ "items": [...] }` 或顶层数组），无需将整份备份反序列化为 List；
+ *   单条字段类型错误（如 "isPublic":"abc"）只记为该行失败，不中断整次导入。
+ *
+ * 设计要点：
+ * - 每块一个独立事务：单块失败只回滚该块，随后对该块逐条重试以定位具体出错行，其余块不受影响；
+ * - 原实现在循环中调用 this.create（自调用使 @Transactional 失效），每条一次往返；
+ *   现在每块两条语句（便签多行插入 + 标签多行插入），万级导入从分钟级降到秒级；
+ * - 字段语义与 {@link NoteService#create} 保持一致（content/tags 原样写入，archived/isPublic 缺省为 false）。
+ */
+@Component
+public class NoteBulkImporter {
+    private static final Logger log = LoggerFactory.getLogger(NoteBulkImporter.class);
+
+    /** 行级错误最多返回条数，避免超大导入时响应体膨胀 */
+    private static final int MAX_ERRORS = 200;
+    /** 与表结构列宽一致的长度上限 */
+    private static final int MAX_TAGS_LENGTH = 255;
+    private static final int MAX_COLOR_LENGTH = 16;
+    private static final int MAX_TAG_LENGTH = 64;
+
+    private final NoteMapper noteMapper;
+    private final NoteTagMapper tagMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate txTemplate;
+    private final int batchSize;
+
+    public NoteBulkImporter(NoteMapper noteMapper,
+                            NoteTagMapper tagMapper,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager txManager,
+                            @Value("${notes.import.batch-size:500}") int batchSize) {
+        this.noteMapper = noteMapper;
+        this.tagMapper = tagMapper;
+        this.objectMapper = objectMapper;
+        this.txTemplate = new TransactionTemplate(txManager);
+        this.batchSize = Math.max(1, Math.min(batchSize, 5000));
+    }
+
+    /**
+     * 导入已反序列化的条目列表。
+     * 返回：
+     * - 统计信息 Map：imported、failed、errors（可选）。
+     */
+    public Map<String, Object> importAll(Long userId, List<NoteRequest> items) {
+        Session session = new Session(userId);
+        if (items != null) {
+            for (NoteRequest req : items) {
+                session.accept(req);
+            }
+        }
+        return session.finish();
+    }
+
+    /**
+     * 从输入流流式导入：边解析边按块写入，内存中最多保留一块条目。
+     * 支持的请求体：
+     * - `{ "items": [ NoteRequest, ... ] }`（与 ImportNotesRequest 一致，其他字段忽略）；
+     * - `[ NoteRequest, ... ]`（顶层数组）。
+     *
+     * 返回：
+     * - 统计信息 Map：imported、failed、errors（可选）；
+     *   中途遇到 JSON 语法错误时停止解析，仍写入已缓冲的条目并返回部分结果，附加 aborted=true 与 message。
+     *
+     * 异常：
+     * - IllegalArgumentException：请求体不是上述结构，或首条数据之前即出现 JSON 语法错误（此时未写入任何数据）。
+     */
+    public Map<String, Object> importStream(Long userId, InputStream in) {
+        Session session = new Session(userId);
+        try (JsonParser p = objectMapper.getFactory().createParser(in)) {
+            JsonToken first = p.nextToken();
+            if (first == null) {
+                return session.finish();
+            }
+            if (first == JsonToken.START_OBJECT) {
+                boolean found = false;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.getCurrentName();
+                    JsonToken value = p.nextToken();
+                    if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                        readArray(p, session);
+                        found = true;
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+                if (!found) {
+                    return session.finish();
+                }
+            } else if (first == JsonToken.START_ARRAY) {
+                readArray(p, session);
+            } else {
+                throw new IllegalArgumentException("导入数据格式错误：应为 { items: [...] } 或数组");
+            }
+        } catch (IOException e) {
+            if (session.rowNo == 0) {
+                throw new IllegalArgumentException("导入数据解析失败：" + e.getMessage(), e);
+            }
+            // 语法错误之后的数据无法定位：停止解析，已解析的条目照常写入并返回部分结果
+            Map<String, Object> resp = session.finish();
+            resp.put("aborted", true);
+            resp.put("message", "第" + session.rowNo + "条之后 JSON 解析失败，后续数据未导入");
+            return resp;
+        }
+        return session.finish();
+    }
+
+    /**
+     * 逐个读取数组元素：先读为树（只有 JSON 语法错误才会抛出 IOException），
+     * 再转换为 NoteRequest，字段类型错误仅记为该行失败。
+     */
+    private void readArray(JsonParser p, Session session) throws IOException {
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                // 非对象元素：计为失败并跳过
+                p.skipChildren();
+                session.accept(null);
+                continue;
+            }
+            JsonNode node = p.readValueAsTree();
+            NoteRequest req;
+            try {
+                req = objectMapper.treeToValue(node, NoteRequest.class);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                session.rejectNext("字段格式错误，已跳过");
+                continue;
+            }
+            session.accept(req);
+        }
+    }
+
+    /** 单次导入的会话状态：行号、当前块与统计信息。 */
+    private final class Session {
+        final Long userId;
+        final List<Pending> chunk = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int rowNo = 0;
+        int ok = 0;
+        int fail = 0;
+
+        Session(Long userId) { this.userId = userId; }
+
+        void accept(NoteRequest req) {
+            rowNo++;
+            String err = validate(req);
+            if (err != null) {
+                reject(rowNo, err);
+                return;
+            }
+            chunk.add(new Pending(rowNo, toNote(userId, req)));
+            if (chunk.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /** 记录一条无法转换的条目（占用行号，计为失败）。 */
+        void rejectNext(String message) {
+            rowNo++;
+            reject(rowNo, message);
+        }
+
+        Map<String, Object> finish() {
+            flush();
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("imported", ok);
+            resp.put("failed", fail);
+            if (!errors.isEmpty()) resp.put("errors", errors);
+            return resp;
+        }
+
+        void reject(int row, String message) {
+            fail++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("第" + row + "条：" + message);
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) return;
+            List<Pending> batch = new ArrayList<>(chunk);
+            chunk.clear();
+            try {
+                txTemplate.executeWithoutResult(status -> insertChunk(batch));
+                ok += batch.size();
+            } catch (Exception e) {
+                // 整块失败：逐条重试以定位出错行（成功的行仍然写入）
+                log.warn("[NoteImport] chunk of {} failed, retrying row by row: {}", batch.size(), e.getMessage());
+                for (Pending pd : batch) {
+                    pd.note().setId(null);
+                    try {
+                        txTemplate.executeWithoutResult(status -> insertChunk(List.of(pd)));
+                        ok++;
+                    } catch (Exception rowErr) {
+                        // 不向前端暴露 SQL 细节，仅记录日志
+                        log.debug("[NoteImport] row {} failed: {}", pd.rowNo(), rowErr.getMessage());
+                        reject(pd.rowNo(), "写入失败，已跳过");
+                    }
+                }
+            }
+        }
+    }
+
+    /** 多行插入便签，回填自增 ID 后写入标签索引。 */
+    private void insertChunk(List<Pending> batch) {
+        List<Note> notes = new ArrayList<>(batch.size());
+        for (Pending pd : batch) notes.add(pd.note());
+        noteMapper.insertBatch(notes);
+        List<NoteTag> tagRows = new ArrayList<>();
+        for (Note n : notes) {
+            for (String t : HashtagParser.splitTags(n.getTags(), MAX_TAG_LENGTH)) {
+                NoteTag row = new NoteTag();
+                row.setNoteId(n.getId());
+                row.setTag(t);
+                tagRows.add(row);
+            }
+        }
+        if (!tagRows.isEmpty()) {
+            tagMapper.insertRows(tagRows);
+        }
+    }
+
+    private static String validate(NoteRequest req) {
+        if (req == null) return "数据格式错误，已跳过";
+        String content = req.getContent();
+        if (content == null || content.isBlank()) return "内容为空，已跳过";
+        if (req.getTags() != null && req.getTags().length() > MAX_TAGS_LENGTH) return "标签过长（最多 " + MAX_TAGS_LENGTH + " 字符）";
+        if (req.getColor() != null && req.getColor().length() > MAX_COLOR_LENGTH) return "颜色值非法";
+        return null;
+    }
+
+    private static Note toNote(Long userId, NoteRequest req) {
+        LocalDateTime now = LocalDateTime.now();
+        Note n = new Note();
+        n.setUserId(userId);
+        n.setContent(req.getContent());
+        n.setTags(req.getTags());
+        n.setColor(req.getColor());
+        n.setArchived(Boolean.TRUE.equals(req.getArchived()));
+        n.setIsPublic(Boolean.TRUE.equals(req.getIsPublic()));
+        n.setCreatedAt(now);
+        n.setUpdatedAt(now);
+        return n;
+    }
+
+    private record Pending(int rowNo, Note note) {}
+}
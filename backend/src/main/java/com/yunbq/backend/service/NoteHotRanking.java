@@ -0,0 +1,66 @@
+package com.yunbq.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunbq.backend.mapper.NoteScoreMapper;
+import com.yunbq.backend.model.Note;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 热门便签榜单（NoteHotRanking）
+ * 职责：
+ * - 从 note_scores 读取预计算的热门公开便签，结果放入本地 Caffeine 缓存（TTL：cache.notes.hot-ttl-seconds）；
+ * - 缓存只保存一份前 {@link #MAX_SIZE} 条的榜单，不同 size 的请求从同一份榜单截取，不按 size 分键。
+ *
+ * 设计要点：
+ * - 热度分由 {@link com.yunbq.backend.job.NoteHotScoreJob} 定期重算，请求路径上不做任何聚合；
+ * - 缓存内容不含用户态（likedByMe/favoritedByMe），由调用方按当前用户补齐；
+ * - 重算完成后主动失效，使新榜单尽快生效。
+ */
+@Component
+public class NoteHotRanking implements MeterBinder {
+    /** 热门榜单最大条数 */
+    public static final int MAX_SIZE = 50;
+    private static final String KEY = "top";
+
+    private final NoteScoreMapper scoreMapper;
+    private final Cache<String, List<Note>> cache;
+
+    public NoteHotRanking(NoteScoreMapper scoreMapper,
+                          @Value("${cache.notes.hot-ttl-seconds:60}") long hotTtlSeconds) {
+        this.scoreMapper = scoreMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, hotTtlSeconds)))
+                .recordStats()
+                .build();
+    }
+
+    /** 注册缓存命中率等指标（cache.gets{cache=note_hot_ranking} 等，由 Spring Boot 自动绑定 MeterBinder Bean）。 */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "note_hot_ranking");
+    }
+
+    /**
+     * 获取前 size 条热门便签（size 超过上限时按上限截断）。
+     */
+    public List<Note> top(int size) {
+        List<Note> all = cache.get(KEY, k -> Collections.unmodifiableList(scoreMapper.selectTop(MAX_SIZE)));
+        int n = Math.max(0, Math.min(size, all.size()));
+        return all.subList(0, n);
+    }
+
+    /** 失效榜单缓存（热度分重算后调用）。 */
+    public void invalidate() {
+        cache.invalidateAll();
+    }
+}
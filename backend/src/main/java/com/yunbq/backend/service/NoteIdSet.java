@@ -0,0 +1,64 @@
+package com.yunbq.backend.service;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 不可变的便签 ID 集合（紧凑表示），用于在内存中判断“我是否点赞/收藏”。
+ * 说明：
+ * - 根据 ID 分布自动选择更省内存的表示：
+ *   - 稠密（ID 跨度 / 8 小于 8 字节 × 个数）：以最小 ID 为基准的位图（BitSet），每个 ID 1 bit；
+ *   - 稀疏：升序 long[]，二分查找；
+ * - 构建后只读，可在多线程间安全共享；变化时整体替换（由缓存失效后重新加载）。
+ */
+final class NoteIdSet {
+    static final NoteIdSet EMPTY = new NoteIdSet(0L, null, new long[0]);
+
+    private final long base;
+    private final BitSet bits;
+    private final long[] sorted;
+
+    private NoteIdSet(long base, BitSet bits, long[] sorted) {
+        this.base = base;
+        this.bits = bits;
+        this.sorted = sorted;
+    }
+
+    /**
+     * 由升序 ID 列表构建集合（允许重复，null 忽略）。
+     */
+    static NoteIdSet of(List<Long> ascendingIds) {
+        if (ascendingIds == null || ascendingIds.isEmpty()) return EMPTY;
+        long[] arr = new long[ascendingIds.size()];
+        int n = 0;
+        for (Long id : ascendingIds) {
+            if (id == null) continue;
+            if (n > 0 && arr[n - 1] == id) continue;
+            arr[n++] = id;
+        }
+        if (n == 0) return EMPTY;
+        long min = arr[0];
+        long span = arr[n - 1] - min + 1;
+        if (span <= Integer.MAX_VALUE && span / 8 < 8L * n) {
+            BitSet bs = new BitSet((int) span);
+            for (int i = 0; i < n; i++) bs.set((int) (arr[i] - min));
+            return new NoteIdSet(min, bs, null);
+        }
+        long[] compact = (n == arr.length) ? arr : java.util.Arrays.copyOf(arr, n);
+        return new NoteIdSet(0L, null, compact);
+    }
+
+    boolean contains(Long id) {
+        if (id == null) return false;
+        if (bits != null) {
+            long off = id - base;
+            return off >= 0 && off < bits.length() && bits.get((int) off);
+        }
+        return java.util.Arrays.binarySearch(sorted, id) >= 0;
+    }
+
+    /** 估算占用字节数（用于缓存按容量淘汰）。 */
+    long estimatedBytes() {
+        return bits != null ? bits.size() / 8 + 32 : 8L * sorted.length + 32;
+    }
+}
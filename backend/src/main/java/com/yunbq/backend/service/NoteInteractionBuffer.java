@@ -0,0 +1,335 @@
+package com.yunbq.backend.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yunbq.backend.mapper.NoteFavoriteMapper;
+import com.yunbq.backend.mapper.NoteLikeMapper;
+import com.yunbq.backend.mapper.NoteMapper;
+import com.yunbq.backend.model.NoteFavorite;
+import com.yunbq.backend.model.NoteLike;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 点赞/收藏写后缓冲（write-behind）
+ * 作用：
+ * - 热门便签上用户频繁切换点赞/收藏时，每次切换都是一次完整事务，造成 note_likes/note_favorites 行锁争用；
+ * - 开启后切换只修改内存中的 (noteId, userId) → 目标状态 映射，来回切换会被合并（抵消为无操作），
+ *   由定时任务每 N 毫秒以多行 INSERT IGNORE / DELETE 批量刷盘，并按便签净增量原子调整计数列；
+ * - 读取计数时返回“库内计数 + 缓冲增量”，当前用户态优先取缓冲中的目标状态。
+ *
+ * 开关与参数：
+ * - notes.interaction.write-behind-enabled：默认关闭，关闭时 {@link NoteService} 走原有同步路径；
+ * - notes.interaction.flush-interval-ms：刷盘间隔；
+ * - notes.interaction.flush-batch-size：单条 SQL 的最大行数；
+ * - notes.interaction.max-pending：每类待写条目上限，达到后新的 (便签, 用户) 切换返回 null，由调用方走同步路径。
+ *
+ * 一致性说明：
+ * - 缓冲位于单实例内存，适用于单实例部署；多实例部署请保持关闭；
+ * - 每类一次刷盘（明细 INSERT IGNORE / DELETE 与计数列调整）在同一事务内执行：失败时整体回滚，
+ *   条目合并回缓冲等待下次重试，不会出现“部分便签计数已调整、重试时再调整一次”的漂移；
+ * - 计数与明细表的偶发偏差（如 INSERT IGNORE 命中已存在的行）由 NoteCounterReconciler 对账修复；
+ * - 应用关闭时执行一次最终刷盘。
+ */
+@Component
+public class NoteInteractionBuffer {
+    private static final Logger log = LoggerFactory.getLogger(NoteInteractionBuffer.class);
+
+    /** 缓冲种类：点赞 / 收藏 */
+    public enum Kind { LIKE, FAVORITE }
+
+    private final NoteMapper noteMapper;
+    private final NoteLikeMapper likeMapper;
+    private final NoteFavoriteMapper favoriteMapper;
+    private final MessageService messageService;
+    private final ViewerInteractionCache viewerCache;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxPending;
+    private final TransactionTemplate txTemplate;
+    private final Map<Kind, Lane> lanes = new EnumMap<>(Kind.class);
+
+    public NoteInteractionBuffer(NoteMapper noteMapper,
+                                 NoteLikeMapper likeMapper,
+                                 NoteFavoriteMapper favoriteMapper,
+                                 MessageService messageService,
+                                 ViewerInteractionCache viewerCache,
+                                 PlatformTransactionManager txManager,
+                                 @Value("${notes.interaction.write-behind-enabled:false}") boolean enabled,
+                                 @Value("${notes.interaction.flush-batch-size:500}") int batchSize,
+                                 @Value("${notes.interaction.max-pending:100000}") int maxPending) {
+        this.noteMapper = noteMapper;
+        this.likeMapper = likeMapper;
+        this.favoriteMapper = favoriteMapper;
+        this.messageService = messageService;
+        this.viewerCache = viewerCache;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPending = Math.max(1, maxPending);
+        this.txTemplate = new TransactionTemplate(txManager);
+        lanes.put(Kind.LIKE, new Lane());
+        lanes.put(Kind.FAVORITE, new Lane());
+    }
+
+    /** 是否启用写后缓冲。 */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录一次切换并返回切换后的有效计数。
+     * 行为：
+     * - 目标状态与当前有效状态一致时为无操作（幂等）；
+     * - 与缓冲中待写状态相反且回到库内原状态时，直接移除该条目（来回切换被合并）；
+     * - 仅在首次出现缓冲条目时查询一次库内状态（命中唯一索引）；
+     * - 待写条目已达 max-pending 且该 (便签, 用户) 不在缓冲中时不接收，返回 null。
+     *
+     * 参数：
+     * - kind：点赞或收藏；
+     * - noteId/userId：便签与用户；
+     * - desired：目标状态（true 点赞/收藏，false 取消）。
+     *
+     * 返回：
+     * - 有效计数（库内计数列 + 缓冲净增量）；缓冲已满时返回 null，调用方应改走同步写入。
+     */
+    public Long toggle(Kind kind, Long noteId, Long userId, boolean desired) {
+        Lane lane = lanes.get(kind);
+        Key key = new Key(noteId, userId);
+        // 已在缓冲/刷盘中的键必须继续走缓冲，否则同步写入可能被随后落库的旧目标状态覆盖
+        if (lane.pending.size() >= maxPending && !lane.pending.containsKey(key) && !lane.inflight.containsKey(key)) {
+            return null;
+        }
+        // 库内状态查询放在 compute 之外，避免在哈希桶锁内执行 SQL；条目被并发刷出时在锁内兜底再查
+        Boolean preState = lane.pending.containsKey(key) ? null : currentState(kind, lane, key);
+        lane.pending.compute(key, (k, e) -> {
+            if (e == null) {
+                boolean base = (preState != null) ? preState : currentState(kind, lane, k);
+                if (base == desired) return null;
+                lane.addDelta(noteId, desired ? 1 : -1);
+                return new Entry(base, desired, LocalDateTime.now());
+            }
+            if (e.desired == desired) return e;
+            lane.addDelta(noteId, desired ? 1 : -1);
+            return (desired == e.base) ? null : new Entry(e.base, desired, LocalDateTime.now());
+        });
+        return effectiveCount(kind, noteId);
+    }
+
+    /**
+     * 有效计数：库内计数列 + 缓冲净增量。
+     */
+    public long effectiveCount(Kind kind, Long noteId) {
+        Long base = (kind == Kind.LIKE) ? noteMapper.selectLikeCount(noteId) : noteMapper.selectFavoriteCount(noteId);
+        return Math.max(0L, (base == null ? 0L : base) + countDelta(kind, noteId));
+    }
+
+    /**
+     * 缓冲中尚未落库的计数净增量（未启用或无缓冲时为 0）。
+     */
+    public long countDelta(Kind kind, Long noteId) {
+        Long d = lanes.get(kind).deltas.get(noteId);
+        return d == null ? 0L : d;
+    }
+
+    /**
+     * 缓冲中的目标状态：存在待写或刷盘中的条目时返回其目标状态，否则返回 null（以库内为准）。
+     */
+    public Boolean pendingState(Kind kind, Long noteId, Long userId) {
+        if (userId == null) return null;
+        Lane lane = lanes.get(kind);
+        Key key = new Key(noteId, userId);
+        Entry e = lane.pending.get(key);
+        if (e == null) e = lane.inflight.get(key);
+        return e == null ? null : e.desired;
+    }
+
+    /**
+     * 定时刷盘：将两类缓冲分别批量写入数据库。
+     * 同步执行，避免与关闭时的最终刷盘并发。
+     */
+    @Scheduled(fixedDelayString = "${notes.interaction.flush-interval-ms:500}")
+    public synchronized void flush() {
+        if (!enabled) return;
+        for (Kind kind : Kind.values()) {
+            Lane lane = lanes.get(kind);
+            if (lane.pending.isEmpty()) continue;
+            flushLane(kind, lane);
+        }
+    }
+
+    /** 应用关闭时最终刷盘，尽量不丢失缓冲中的切换。 */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flushLane(Kind kind, Lane lane) {
+        // 1) 将待写条目原子地转入 inflight：刷盘期间的新切换以 inflight 目标状态作为基准
+        List<Map.Entry<Key, Entry>> drained = new ArrayList<>();
+        for (Key key : lane.pending.keySet()) {
+            lane.pending.computeIfPresent(key, (k, e) -> {
+                lane.inflight.put(k, e);
+                drained.add(Map.entry(k, e));
+                return null;
+            });
+        }
+        if (drained.isEmpty()) return;
+
+        List<Map.Entry<Key, Entry>> adds = new ArrayList<>();
+        List<Map.Entry<Key, Entry>> removes = new ArrayList<>();
+        Map<Long, Long> netByNote = new HashMap<>();
+        for (Map.Entry<Key, Entry> d : drained) {
+            (d.getValue().desired ? adds : removes).add(d);
+            netByNote.merge(d.getKey().noteId, d.getValue().desired ? 1L : -1L, Long::sum);
+        }
+
+        try {
+            // 2) 单事务内批量写入明细表并按便签净增量调整计数列：任一语句失败则明细与计数一并回滚
+            txTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < adds.size(); i += batchSize) {
+                    writeAdds(kind, adds.subList(i, Math.min(i + batchSize, adds.size())));
+                }
+                for (int i = 0; i < removes.size(); i += batchSize) {
+                    writeRemoves(kind, removes.subList(i, Math.min(i + batchSize, removes.size())));
+                }
+                for (Map.Entry<Long, Long> net : netByNote.entrySet()) {
+                    if (net.getValue() == 0) continue;
+                    if (kind == Kind.LIKE) noteMapper.adjustLikeCount(net.getKey(), net.getValue());
+                    else noteMapper.adjustFavoriteCount(net.getKey(), net.getValue());
+                }
+            });
+        } catch (Exception ex) {
+            // 3a) 失败：事务已整体回滚，合并回待写缓冲等待下次重试（增量未扣除，读数保持一致）
+            log.warn("[NoteInteractionBuffer] flush {} failed, requeue {} entries: {}", kind, drained.size(), ex.getMessage());
+            for (Map.Entry<Key, Entry> d : drained) {
+                Entry failed = d.getValue();
+                lane.pending.compute(d.getKey(), (k, cur) -> {
+                    lane.inflight.remove(k, failed);
+                    if (cur == null) return failed;
+                    return (cur.desired == failed.base) ? null : new Entry(failed.base, cur.desired, cur.createdAt);
+                });
+            }
+            return;
+        }
+
+        // 3b) 成功：扣除已落库的增量并移出 inflight；新增的点赞/收藏向作者发送消息
+        for (Map.Entry<Key, Entry> d : drained) {
+            Key k = d.getKey();
+            Entry e = d.getValue();
+            // 先失效用户集合再移出 inflight：此后重新加载读到的已是落库后的状态
+            viewerCache.invalidate(k.userId);
+            lane.addDelta(k.noteId, e.desired ? -1 : 1);
+            lane.inflight.remove(k, e);
+        }
+        for (Map.Entry<Key, Entry> d : adds) {
+            try {
+                if (kind == Kind.LIKE) messageService.createLikeMessage(d.getKey().userId, d.getKey().noteId);
+                else messageService.createFavoriteMessage(d.getKey().userId, d.getKey().noteId);
+            } catch (Exception ignored) {}
+        }
+        log.debug("[NoteInteractionBuffer] flushed {}: adds={} removes={}", kind, adds.size(), removes.size());
+    }
+
+    private void writeAdds(Kind kind, List<Map.Entry<Key, Entry>> chunk) {
+        if (kind == Kind.LIKE) {
+            List<NoteLike> rows = new ArrayList<>(chunk.size());
+            for (Map.Entry<Key, Entry> d : chunk) {
+                NoteLike l = new NoteLike();
+                l.setNoteId(d.getKey().noteId);
+                l.setUserId(d.getKey().userId);
+                l.setCreatedAt(d.getValue().createdAt);
+                rows.add(l);
+            }
+            likeMapper.insertIgnoreBatch(rows);
+        } else {
+            List<NoteFavorite> rows = new ArrayList<>(chunk.size());
+            for (Map.Entry<Key, Entry> d : chunk) {
+                NoteFavorite f = new NoteFavorite();
+                f.setNoteId(d.getKey().noteId);
+                f.setUserId(d.getKey().userId);
+                f.setCreatedAt(d.getValue().createdAt);
+                rows.add(f);
+            }
+            favoriteMapper.insertIgnoreBatch(rows);
+        }
+    }
+
+    private void writeRemoves(Kind kind, List<Map.Entry<Key, Entry>> chunk) {
+        if (kind == Kind.LIKE) {
+            List<NoteLike> rows = new ArrayList<>(chunk.size());
+            for (Map.Entry<Key, Entry> d : chunk) {
+                NoteLike l = new NoteLike();
+                l.setNoteId(d.getKey().noteId);
+                l.setUserId(d.getKey().userId);
+                rows.add(l);
+            }
+            likeMapper.deleteBatch(rows);
+        } else {
+            List<NoteFavorite> rows = new ArrayList<>(chunk.size());
+            for (Map.Entry<Key, Entry> d : chunk) {
+                NoteFavorite f = new NoteFavorite();
+                f.setNoteId(d.getKey().noteId);
+                f.setUserId(d.getKey().userId);
+                rows.add(f);
+            }
+            favoriteMapper.deleteBatch(rows);
+        }
+    }
+
+    /**
+     * 当前有效状态（不含 pending）：刷盘中的条目优先，否则查询库内是否存在记录。
+     */
+    private boolean currentState(Kind kind, Lane lane, Key key) {
+        Entry inflight = lane.inflight.get(key);
+        if (inflight != null) return inflight.desired;
+        if (kind == Kind.LIKE) {
+            return likeMapper.selectCount(new QueryWrapper<NoteLike>().eq("note_id", key.noteId).eq("user_id", key.userId)) > 0;
+        }
+        return favoriteMapper.selectCount(new QueryWrapper<NoteFavorite>().eq("note_id", key.noteId).eq("user_id", key.userId)) > 0;
+    }
+
+    /** 单类缓冲：待写条目、刷盘中条目与按便签聚合的计数净增量。 */
+    private static final class Lane {
+        final ConcurrentHashMap<Key, Entry> pending = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Key, Entry> inflight = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, Long> deltas = new ConcurrentHashMap<>();
+
+        /** 原子累加增量；归零时移除键，避免映射随便签数量无限增长。 */
+        void addDelta(Long noteId, long d) {
+            deltas.compute(noteId, (id, v) -> {
+                long next = (v == null ? 0L : v) + d;
+                return next == 0 ? null : next;
+            });
+        }
+    }
+
+    /** 缓冲键：(noteId, userId)。 */
+    private record Key(Long noteId, Long userId) {}
+
+    /**
+     * 缓冲条目：base 为进入缓冲时的库内状态，desired 为最新目标状态，createdAt 用于写入明细表。
+     */
+    private static final class Entry {
+        final boolean base;
+        final boolean desired;
+        final LocalDateTime createdAt;
+        Entry(boolean base, boolean desired, LocalDateTime createdAt) {
+            this.base = base;
+            this.desired = desired;
+            this.createdAt = createdAt;
+        }
+    }
+}
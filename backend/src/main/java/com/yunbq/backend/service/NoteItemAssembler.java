@@ -0,0 +1,105 @@
+package com.yunbq.backend.service;
+
+import com.yunbq.backend.dto.NoteItem;
+import com.yunbq.backend.mapper.NoteMapper;
+import com.yunbq.backend.model.Note;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 便签列表项组装器（NoteItemAssembler）
+ * 职责：
+ * - 将一页 {@link Note} 实体转换为前端使用的 {@link NoteItem}；
+ * - 补充作者昵称/头像、点赞/收藏数量与当前用户态（likedByMe/favoritedByMe）。
+ * - 点赞/收藏数量来自 shiyan 上的反范式计数列（随实体一并查出），不再按页聚合；
+ *   启用写后缓冲时再叠加 {@link NoteInteractionBuffer} 中尚未落库的增量与用户态；
+ * - 作者昵称/头像来自 {@link UserProfileCache}（按页批量取，未命中时一条 IN 查询），列表不再联表 users；
+ * - 登录用户的 likedByMe/favoritedByMe 优先由 {@link ViewerInteractionCache} 的内存集合判断。
+ *
+ * 设计要点：
+ * - 原 list/listFavorited/listLiked 各自执行 5 次附加查询（作者、两类计数、两类用户态），且代码三处复制；
+ *   现在缓存全部命中时一页列表只有分页查询本身；仅当用户态集合不可用（关闭或交互数超限）时
+ *   才由 {@link NoteMapper#selectViewerFlags} 追加一次 EXISTS 查询；
+ * - 作者名优先昵称，昵称为空时回退用户名；头像为相对路径，前端负责拼接完整 URL 与默认头像兜底。
+ */
+@Component
+public class NoteItemAssembler {
+    private final NoteMapper noteMapper;
+    // 写后缓冲：叠加尚未落库的计数增量与当前用户的目标状态
+    private final NoteInteractionBuffer interactionBuffer;
+    // 按用户的点赞/收藏 ID 集合：命中时用户态在内存中判断，不再执行 EXISTS 查询
+    private final ViewerInteractionCache viewerCache;
+    // 作者公开资料缓存：昵称/用户名/头像
+    private final UserProfileCache profileCache;
+
+    public NoteItemAssembler(NoteMapper noteMapper, NoteInteractionBuffer interactionBuffer, ViewerInteractionCache viewerCache,
+                             UserProfileCache profileCache) {
+        this.noteMapper = noteMapper;
+        this.interactionBuffer = interactionBuffer;
+        this.viewerCache = viewerCache;
+        this.profileCache = profileCache;
+    }
+
+    /**
+     * 组装一页便签列表项。
+     * 参数：
+     * - viewerId：当前用户 ID，匿名为 null（用户态标记均为 false）；
+     * - records：已按目标顺序排好的便签实体。
+     * 返回：
+     * - 与 records 顺序一致的 {@link NoteItem} 列表。
+     */
+    public List<NoteItem> assemble(Long viewerId, List<Note> records) {
+        if (records == null || records.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, UserProfileCache.Profile> authors = profileCache.getAll(
+                records.stream().map(Note::getUserId).collect(Collectors.toList()));
+        ViewerInteractionCache.Interactions vi = viewerCache.get(viewerId);
+        Map<Long, Map<String, Object>> flags = new HashMap<>();
+        if (vi == null && viewerId != null) {
+            List<Long> ids = records.stream().map(Note::getId).collect(Collectors.toList());
+            for (Map<String, Object> m : noteMapper.selectViewerFlags(ids, viewerId)) {
+                flags.put(((Number) m.get("noteId")).longValue(), m);
+            }
+        }
+
+        return records.stream().map(n -> {
+            Map<String, Object> d = flags.getOrDefault(n.getId(), Collections.emptyMap());
+            UserProfileCache.Profile author = authors.get(n.getUserId());
+            NoteItem it = new NoteItem();
+            it.setId(n.getId());
+            it.setUserId(n.getUserId());
+            it.setAuthorName(author == null ? null : author.displayName());
+            it.setAvatarUrl(author == null ? null : author.avatarUrl());
+            it.setContent(n.getContent());
+            it.setTags(n.getTags());
+            it.setColor(n.getColor());
+            it.setArchived(n.getArchived());
+            it.setIsPublic(n.getIsPublic());
+            it.setCreatedAt(n.getCreatedAt());
+            it.setUpdatedAt(n.getUpdatedAt());
+            long likeBase = n.getLikeCount() == null ? 0L : n.getLikeCount();
+            long favoriteBase = n.getFavoriteCount() == null ? 0L : n.getFavoriteCount();
+            it.setLikeCount(Math.max(0L, likeBase + interactionBuffer.countDelta(NoteInteractionBuffer.Kind.LIKE, n.getId())));
+            Boolean likedBuffered = interactionBuffer.pendingState(NoteInteractionBuffer.Kind.LIKE, n.getId(), viewerId);
+            it.setLikedByMe(likedBuffered != null ? likedBuffered
+                    : (vi != null ? vi.likes(n.getId()) : longOf(d.get("likedByMe")) > 0));
+            it.setFavoriteCount(Math.max(0L, favoriteBase + interactionBuffer.countDelta(NoteInteractionBuffer.Kind.FAVORITE, n.getId())));
+            Boolean favoritedBuffered = interactionBuffer.pendingState(NoteInteractionBuffer.Kind.FAVORITE, n.getId(), viewerId);
+            it.setFavoritedByMe(favoritedBuffered != null ? favoritedBuffered
+                    : (vi != null ? vi.favorites(n.getId()) : longOf(d.get("favoritedByMe")) > 0));
+            return it;
+        }).collect(Collectors.toList());
+    }
+
+    private static long longOf(Object v) {
+        if (v instanceof Number) return ((Number) v).longValue();
+        if (v instanceof Boolean) return ((Boolean) v) ? 1L : 0L;
+        return 0L;
+    }
+}
@@ -0,0 +1,222 @@
+package com.yunbq.backend.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yunbq.backend.model.Note;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 便签全文检索支持（NoteSearchSupport）
+ * 职责：
+ * - 将关键词 q 转换为 shiyan 上的检索条件：优先使用 FULLTEXT(content, tags) WITH PARSER ngram 索引，
+ *   不可用时回退为原 `content LIKE %q% OR tags LIKE %q%`；
+ * - 提供相关度排序所需的 BOOLEAN MODE 查询串；
+ * - 生成带 &lt;mark&gt; 标记的内容摘要（highlight），供前端展示命中位置。
+ *
+ * 设计要点：
+ * - ngram 解析器按 ngram_token_size（默认 2）切分中文，短于该长度的词无法命中索引，此类关键词走 LIKE；
+ * - 每个关键词以短语形式 `+"词"` 参与 BOOLEAN MODE 匹配：多个关键词需同时命中，语义与原 LIKE 子串匹配一致；
+ * - 索引是否存在在首次检索时探测一次并缓存（索引由 DbMigrationRunner 在启动时创建）；
+ *   探测的表名由 DbMigrationRunner 通过 {@link #useTable} 传入，与建索引的表一致（旧库可能仍为 notes）；
+ * - 停用词：ngram 分词下含 InnoDB 默认停用词（a、i、in、is 等）的词元会被整体丢弃，短语 MATCH 会漏掉 LIKE 能命中的便签。
+ *   索引应在关闭停用词时创建并带注释 {@link #FULLTEXT_MARKER}；探测到未带标记的旧索引时，含停用词的关键词回退 LIKE；
+ * - 可见性规则不在此处处理，由调用方的 QueryWrapper 组合。
+ */
+@Component
+public class NoteSearchSupport {
+    private static final Logger log = LoggerFactory.getLogger(NoteSearchSupport.class);
+
+    /** 全文索引名称：与 schema.sql / DbMigrationRunner 保持一致 */
+    public static final String FULLTEXT_INDEX = "ft_shiyan_content_tags";
+    /** 全文索引注释：标记索引在关闭停用词（innodb_ft_enable_stopword=OFF）时创建 */
+    public static final String FULLTEXT_MARKER = "stopwords=off";
+    /** InnoDB 默认停用词表（INNODB_FT_DEFAULT_STOPWORD）；ngram 词元包含其中任一词即被丢弃 */
+    private static final String[] DEFAULT_STOPWORDS = {
+        "a", "about", "an", "are", "as", "at", "be", "by", "com", "de", "en", "for", "from", "how", "i",
+        "in", "is", "it", "la", "of", "on", "or", "that", "the", "this", "to", "was", "what", "when",
+        "where", "who", "will", "with", "und", "www"
+    };
+    /** 摘要窗口：命中位置前后各保留的字符数 */
+    private static final int SNIPPET_RADIUS = 40;
+
+    private final JdbcTemplate jdbc;
+    private final boolean fulltextEnabled;
+    private final int minTokenLength;
+    // 索引可用性探测结果：null 表示尚未探测
+    private volatile Boolean fulltextAvailable;
+    // 索引是否在关闭停用词时创建（带 FULLTEXT_MARKER 注释）；与 fulltextAvailable 一同探测
+    private volatile boolean stopwordFree;
+    // 全文索引所在的便签表：默认 shiyan，由 DbMigrationRunner 按实际表名设置
+    private volatile String table = "shiyan";
+
+    public NoteSearchSupport(JdbcTemplate jdbc,
+                             @Value("${notes.search.fulltext-enabled:true}") boolean fulltextEnabled,
+                             @Value("${notes.search.min-token-length:2}") int minTokenLength) {
+        this.jdbc = jdbc;
+        this.fulltextEnabled = fulltextEnabled;
+        this.minTokenLength = Math.max(1, minTokenLength);
+    }
+
+    /**
+     * 将关键词转换为 BOOLEAN MODE 查询串；无法使用全文索引时返回 null。
+     * 说明：
+     * - 去除 BOOLEAN MODE 运算符（+ - &lt; &gt; ( ) ~ * " @），按空白拆分关键词；
+     * - 任一关键词短于 minTokenLength 时整体回退 LIKE，避免出现“部分词被忽略”的宽松匹配；
+     * - 索引未标记为无停用词时，任一关键词包含默认停用词也整体回退 LIKE（否则该词的词元不在索引中，MATCH 漏检）。
+     */
+    public String booleanQuery(String q) {
+        if (q == null || q.isBlank() || !isFulltextUsable()) return null;
+        List<String> terms = terms(q);
+        if (terms.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        for (String t : terms) {
+            if (t.codePointCount(0, t.length()) < minTokenLength) return null;
+            if (!stopwordFree && containsStopword(t)) return null;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append("+\"").append(t).append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 向查询条件追加关键词匹配。
+     * 参数：
+     * - qw：已包含可见范围的查询条件；
+     * - q：原始关键词（可为空，空则不追加）。
+     * 返回：
+     * - 实际使用的 BOOLEAN MODE 查询串；走 LIKE 回退或未追加条件时返回 null（调用方据此决定是否按相关度排序）。
+     */
+    public String applyMatch(QueryWrapper<Note> qw, String q) {
+        if (q == null || q.isBlank()) return null;
+        String against = booleanQuery(q);
+        if (against != null) {
+            qw.apply("MATCH(content, tags) AGAINST({0} IN BOOLEAN MODE)", against);
+        } else {
+            qw.and(w -> w.like("content", q).or().like("tags", q));
+        }
+        return against;
+    }
+
+    /**
+     * 生成命中摘要：截取第一个命中关键词附近的内容，HTML 转义后以 &lt;mark&gt; 包裹所有命中片段。
+     * 返回：
+     * - 摘要字符串；q 为空或内容中没有命中（例如仅标签命中）时返回 null。
+     */
+    public String highlight(String content, String q) {
+        if (content == null || content.isEmpty() || q == null || q.isBlank()) return null;
+        List<String> terms = terms(q);
+        if (terms.isEmpty()) return null;
+        int first = -1;
+        for (String t : terms) {
+            int idx = indexOfIgnoreCase(content, t);
+            if (idx >= 0 && (first < 0 || idx < first)) first = idx;
+        }
+        if (first < 0) return null;
+
+        int start = Math.max(0, first - SNIPPET_RADIUS);
+        int end = Math.min(content.length(), first + SNIPPET_RADIUS * 2);
+
+        StringBuilder out = new StringBuilder(end - start + 32);
+        if (start > 0) out.append('…');
+        int i = start;
+        while (i < end) {
+            int hitLen = 0;
+            for (String t : terms) {
+                if (t.length() > hitLen && i + t.length() <= end && content.regionMatches(true, i, t, 0, t.length())) {
+                    hitLen = t.length();
+                }
+            }
+            if (hitLen > 0) {
+                out.append("<mark>");
+                escapeHtml(out, content, i, i + hitLen);
+                out.append("</mark>");
+                i += hitLen;
+            } else {
+                escapeHtml(out, content, i, i + 1);
+                i++;
+            }
+        }
+        if (end < content.length()) out.append('…');
+        return out.toString();
+    }
+
+    /**
+     * 设置全文索引所在的便签表并清除探测结果（DbMigrationRunner 建索引后调用），下次检索按新表重新探测。
+     */
+    public void useTable(String table) {
+        this.table = table;
+        this.fulltextAvailable = null;
+    }
+
+    /** 全文检索是否可用：配置开启且索引已存在（首次调用时探测）。 */
+    public boolean isFulltextUsable() {
+        if (!fulltextEnabled) return false;
+        Boolean avail = fulltextAvailable;
+        if (avail == null) {
+            try {
+                List<String> comments = jdbc.queryForList(
+                    "SELECT index_comment FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                    String.class,
+                    table, FULLTEXT_INDEX
+                );
+                avail = !comments.isEmpty();
+                stopwordFree = avail && FULLTEXT_MARKER.equals(comments.get(0));
+            } catch (Exception e) {
+                avail = false;
+            }
+            if (!avail) {
+                log.warn("[NoteSearch] fulltext index {} not found, falling back to LIKE", FULLTEXT_INDEX);
+            } else if (!stopwordFree) {
+                log.warn("[NoteSearch] fulltext index {} was built with stopwords, terms containing stopwords fall back to LIKE", FULLTEXT_INDEX);
+            }
+            fulltextAvailable = avail;
+        }
+        return avail;
+    }
+
+    private static List<String> terms(String q) {
+        String cleaned = q.replaceAll("[+\\-<>()~*\"@]", " ").trim();
+        List<String> terms = new ArrayList<>();
+        if (cleaned.isEmpty()) return terms;
+        for (String t : cleaned.split("\\s+")) {
+            if (!t.isEmpty()) terms.add(t);
+        }
+        return terms;
+    }
+
+    private static boolean containsStopword(String term) {
+        String t = term.toLowerCase(Locale.ROOT);
+        for (String w : DEFAULT_STOPWORDS) {
+            if (t.contains(w)) return true;
+        }
+        return false;
+    }
+
+    private static int indexOfIgnoreCase(String s, String t) {
+        for (int i = 0, last = s.length() - t.length(); i <= last; i++) {
+            if (s.regionMatches(true, i, t, 0, t.length())) return i;
+        }
+        return -1;
+    }
+
+    private static void escapeHtml(StringBuilder out, String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '&': out.append("&amp;"); break;
+                case '"': out.append("&quot;"); break;
+                case '\'': out.append("&#39;"); break;
+                default: out.append(c);
+            }
+        }
+    }
+}
@@ -1,29 +1,41 @@
 package com.yunbq.backend.service;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunbq.backend.dto.CursorPageResult;
 import com.yunbq.backend.dto.NoteRequest;
 import com.yunbq.backend.dto.NoteItem;
-import org.springframework.util.StringUtils;
 import com.yunbq.backend.mapper.NoteMapper;
 import com.yunbq.backend.mapper.NoteLikeMapper;
 import com.yunbq.backend.mapper.NoteFavoriteMapper;
-import com.yunbq.backend.mapper.UserMapper;
+import com.yunbq.backend.mapper.NoteTagMapper;
 import com.yunbq.backend.model.Note;
 import com.yunbq.backend.model.NoteLike;
 import com.yunbq.backend.model.NoteFavorite;
-import com.yunbq.backend.model.User;
+import com.yunbq.backend.util.HashtagParser;
+import io.micrometer.core.annotation.Timed;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
-import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,44 +43,86 @@ import java.util.stream.Collectors;
  * 拾言服务（NoteService）
  * 职责：
  * - 管理便签的增删改查与分页检索；
- * - 原“最近/热门”聚合视图已下线（对应控制器路由 /recent 与 /hot 已移除）。
+ * - 原“最近”聚合视图已下线（对应控制器路由 /recent 已移除）；“热门”改为读取预计算热度分（/hot）。
  * - 处理点赞与收藏交互，并在成功时通过 {@link MessageService} 生成行为消息通知作者；
- * - 支持批量导入简单的 NoteRequest 列表。
+ *   可选启用 {@link NoteInteractionBuffer} 写后缓冲，合并频繁切换并批量落库；
+ * - 支持批量导入 NoteRequest 列表（分块多行写入，见 {@link NoteBulkImporter}）与流式导出（NDJSON/JSON）；
+ * - 关键词检索委托 {@link NoteSearchSupport}：FULLTEXT(ngram) 匹配 + 相关度排序 + 命中摘要；
+ * - 维护 note_tags 规范化标签索引：支持按标签精确筛选与标签云（分面）统计。
  *
  * 设计要点：
  * - 缓存失效：便签的新增/更新/删除、点赞/收藏变化均会影响热门/最近列表，需要按粒度失效对应缓存键空间；
  * - 权限与可见性：公开便签任何登录用户可互动；私有便签仅作者可互动（点赞/收藏）；
  * - 查询范围：登录态下默认返回“我的全部”与“他人公开”的合并视图，支持参数限定仅公开或仅私有；
  * - 头像与作者名：为前端提供作者昵称与头像相对路径，前端负责拼接完整 URL 并兜底默认头像；
- * - JPA/Mapper：使用 MyBatis-Plus 的 QueryWrapper 与 Page 实现分页与聚合统计。
+ * - JPA/Mapper：使用 MyBatis-Plus 的 QueryWrapper 与 Page 实现分页与聚合统计；
+ * - 指标：列表与点赞/收藏切换以 @Timed 计时（yunbq.notes.list / yunbq.notes.interaction，见 MetricsConfig）。
  */
 public class NoteService {
     private final NoteMapper noteMapper;
     private final NoteLikeMapper likeMapper;
     private final NoteFavoriteMapper favoriteMapper;
-    private final UserMapper userMapper;
+    // 标签索引：note_tags(note_id, tag)，与 shiyan.tags 在写入时同步
+    private final NoteTagMapper tagMapper;
+    // 列表项组装器：一次查询补齐作者信息、点赞/收藏计数与当前用户态
+    private final NoteItemAssembler itemAssembler;
     // 已移除：NoteCacheService（热门/最近缓存）。
     // 消息服务：在点赞/收藏成功后生成行为消息，通知作者
     private final MessageService messageService;
+    // 点赞/收藏写后缓冲：开启时切换只写内存并由定时任务批量刷盘
+    private final NoteInteractionBuffer interactionBuffer;
+    // 关键词检索：FULLTEXT ngram 索引优先，不可用时回退 LIKE
+    private final NoteSearchSupport searchSupport;
+    // 批量导入：分块多行 INSERT，支持流式解析请求体
+    private final NoteBulkImporter bulkImporter;
+    // 按用户的点赞/收藏 ID 集合缓存：本实例内切换后失效
+    private final ViewerInteractionCache viewerCache;
+    // 热门榜单：预计算热度分 + 本地缓存
+    private final NoteHotRanking hotRanking;
+    // 导出序列化：使用 Spring 管理的 ObjectMapper（已注册 JavaTimeModule，时间格式与接口一致）
+    private final ObjectMapper objectMapper;
+    // 列表版本号：写操作提交后递增，供 GET /api/notes 生成 ETag
+    private final ContentVersions versions;
+    // “我点赞的/我收藏的”列表的数据来源（联表查询 + 记录字段访问）
+    private final InteractionSource<NoteLike> likedSource;
+    private final InteractionSource<NoteFavorite> favoritedSource;
+
+    /** 游标分页单页上限：避免客户端传入过大的 size 造成单次扫描过多行 */
+    private static final int MAX_CURSOR_PAGE_SIZE = 50;
+    /** 单个标签的最大长度（与 note_tags.tag 列宽一致），超长标签不进入索引 */
+    private static final int MAX_TAG_LENGTH = 64;
 
     /**
      * 构造函数：通过 Spring 注入依赖。
      * 新增参数 messageService 用于在点赞/收藏成功后写入消息。
      */
-    public NoteService(NoteMapper noteMapper, NoteLikeMapper likeMapper, NoteFavoriteMapper favoriteMapper, UserMapper userMapper, MessageService messageService) {
+    public NoteService(NoteMapper noteMapper, NoteLikeMapper likeMapper, NoteFavoriteMapper favoriteMapper, NoteTagMapper tagMapper, NoteItemAssembler itemAssembler, MessageService messageService, NoteInteractionBuffer interactionBuffer, NoteSearchSupport searchSupport,
+                       NoteBulkImporter bulkImporter, ViewerInteractionCache viewerCache,
+                       NoteHotRanking hotRanking, ObjectMapper objectMapper, ContentVersions versions) {
         this.noteMapper = noteMapper;
         this.likeMapper = likeMapper;
         this.favoriteMapper = favoriteMapper;
-        this.userMapper = userMapper;
+        this.tagMapper = tagMapper;
+        this.itemAssembler = itemAssembler;
         this.messageService = messageService;
+        this.interactionBuffer = interactionBuffer;
+        this.searchSupport = searchSupport;
+        this.bulkImporter = bulkImporter;
+        this.viewerCache = viewerCache;
+        this.hotRanking = hotRanking;
+        this.objectMapper = objectMapper;
+        this.versions = versions;
+        this.likedSource = new InteractionSource<>(likeMapper::selectByUserJoined, likeMapper::countByUserJoined,
+                NoteLike::getNoteId, NoteLike::getCreatedAt, NoteLike::getId);
+        this.favoritedSource = new InteractionSource<>(favoriteMapper::selectByUserJoined, favoriteMapper::countByUserJoined,
+                NoteFavorite::getNoteId, NoteFavorite::getCreatedAt, NoteFavorite::getId);
     }
 
     @Transactional
     /**
      * 创建便签
      * 行为：
-     * - 将请求体中的内容与标签进行最小解析与标准化（如从内容中解析 #标签），
-     * - 写入数据库并设置创建/更新时间；
+     * - 内容与标签原样写入数据库（标签索引 note_tags 按逗号拆分同步），并设置创建/更新时间；
      * - 在成功后失效热门与最近相关缓存键。
      *
      * 参数：
@@ -82,8 +136,7 @@ public class NoteService {
      * - 运行时异常：在不可预期错误时可能抛出，调用方应在控制层统一处理。
      */
     public Note create(Long userId, NoteRequest req) {
-        // 兼容：若未显式提供 tags，则从 content 中解析 #标签（逗号分隔），并清理内容
-        Parsed ct = parseFromContent(req.getContent(), req.getTags());
+        // content/tags 原样写入（与批量导入 NoteBulkImporter 一致），不从内容中解析 #标签
         Note n = new Note();
         n.setUserId(userId);
         // 移除 title 引用
@@ -95,7 +148,12 @@ public class NoteService {
         n.setCreatedAt(LocalDateTime.now());
         n.setUpdatedAt(LocalDateTime.now());
         noteMapper.insert(n);
+        syncTags(n.getId(), n.getTags());
+        // 计数列由数据库默认值初始化为 0，这里同步到返回实体
+        n.setLikeCount(0L);
+        n.setFavoriteCount(0L);
         // 便签新增：已移除热门/最近缓存失效调用
+        versions.bump(ContentVersions.NOTES);
         return n;
     }
 
@@ -124,17 +182,19 @@ public class NoteService {
         if (n == null || !n.getUserId().equals(userId)) {
             throw new RuntimeException("笔记不存在或无权限");
         }
-        Parsed ct = parseFromContent(req.getContent(), req.getTags());
+        HashtagParser.Parsed ct = HashtagParser.parse(req.getContent(), req.getTags());
         String oldTags = (n.getTags() == null) ? "" : n.getTags();
-        String finalTags = (ct.tags == null || ct.tags.isBlank()) ? oldTags : ct.tags;
-        n.setContent(ct.content);
+        String finalTags = (ct.tags() == null || ct.tags().isBlank()) ? oldTags : ct.tags();
+        n.setContent(ct.content());
         n.setTags(finalTags);
         n.setColor(req.getColor());
         n.setArchived(Boolean.TRUE.equals(req.getArchived()));
         n.setIsPublic(Boolean.TRUE.equals(req.getIsPublic()));
         n.setUpdatedAt(LocalDateTime.now());
         noteMapper.updateById(n);
+        syncTags(n.getId(), finalTags);
         // 便签更新：已移除热门/最近缓存失效调用
+        versions.bump(ContentVersions.NOTES);
         return n;
     }
 
@@ -159,7 +219,10 @@ public class NoteService {
             throw new RuntimeException("笔记不存在或无权限");
         }
         noteMapper.deleteById(id);
+        // 外键已 ON DELETE CASCADE；显式删除以兼容外键未建成功的历史库
+        tagMapper.deleteByNoteId(id);
         // 便签删除：已移除热门/最近缓存失效调用
+        versions.bump(ContentVersions.NOTES);
     }
 
     /**
@@ -167,12 +230,14 @@ public class NoteService {
      * 说明：
      * - 未登录用户仅可见公开便签；登录用户默认可见“他人公开 + 我的全部”；
      * - 支持使用 mineOnly、isPublic、archived、q 进行范围与筛选；
-     * - 结果包含作者昵称与头像相对路径，以及点赞/收藏统计与当前用户态标记。
+     * - 结果包含作者昵称与头像相对路径，以及点赞/收藏统计与当前用户态标记；
+     * - 带关键词且全文索引可用时按相关度倒序（同分按更新时间），并为每项附带命中摘要 highlight。
      *
      * 参数：
      * - userId：当前用户 ID，未登录可为 null；
      * - page/size：分页参数；
      * - q：关键词（匹配 content 与 tags）；
+     * - tag：标签精确筛选（命中 note_tags 索引），可为空；
      * - archived：是否归档筛选；
      * - isPublic：可见性筛选（true 仅公开；false 仅我的私有；null 为默认行为）；
      * - mineOnly：是否仅我的便签。
@@ -180,12 +245,84 @@ public class NoteService {
      * 返回：
      * - MyBatis-Plus {@link Page} 包装的 {@link NoteItem} 列表与分页信息。
      */
-    public Page<NoteItem> list(Long userId, int page, int size, String q, Boolean archived, Boolean isPublic, Boolean mineOnly) {
+    @Timed(value = "yunbq.notes.list", histogram = true)
+    public Page<NoteItem> list(Long userId, int page, int size, String q, String tag, Boolean archived, Boolean isPublic, Boolean mineOnly) {
         QueryWrapper<Note> qw = new QueryWrapper<>();
+        String against = applyListScope(qw, userId, q, tag, archived, isPublic, mineOnly);
+        Page<Note> np;
+        if (against != null) {
+            np = noteMapper.selectSearchPage(Page.of(page, size), qw, against);
+        } else {
+            qw.orderByDesc("updated_at");
+            np = noteMapper.selectPage(Page.of(page, size), qw);
+        }
+        List<NoteItem> items = withHighlight(itemAssembler.assemble(userId, np.getRecords()), q);
 
-        // 范围控制：
-        // - 未登录：仅公开便签
-        // - 已登录：默认 公开便签 + 我的全部便签；若 mineOnly=true，则仅我的便签
+        Page<NoteItem> ip = Page.of(np.getCurrent(), np.getSize());
+        ip.setTotal(np.getTotal());
+        ip.setRecords(items);
+        return ip;
+    }
+
+    /**
+     * 游标分页检索便签列表（Keyset Pagination）
+     * 说明：
+     * - 可见范围与筛选条件与 {@link #list} 完全一致；
+     * - 排序固定为 `updated_at DESC, id DESC`，以 (updated_at, id) 作为游标定位，
+     *   SQL 形如 `WHERE ... AND (updated_at < ? OR (updated_at = ? AND id < ?)) LIMIT size+1`，
+     *   借助复合索引 (is_public, updated_at, id) / (user_id, updated_at, id) 避免深分页的 offset 扫描；
+     * - 多取 1 条用于判断 hasMore，不再每次执行 COUNT(*)；仅当 withTotal=true 时才额外统计总数。
+     *
+     * 参数：
+     * - userId：当前用户 ID，未登录可为 null；
+     * - cursor：上一页返回的 nextCursor，空串或 null 表示第一页；
+     * - size：每页条数（1~50）；
+     * - q/tag/archived/isPublic/mineOnly：同 {@link #list}；
+     * - withTotal：是否附带总数。
+     *
+     * 返回：
+     * - {@link CursorPageResult} 包装的 {@link NoteItem} 列表与下一页游标。
+     *
+     * 异常：
+     * - IllegalArgumentException：游标格式非法时抛出，控制层转换为 400。
+     */
+    @Timed(value = "yunbq.notes.list", histogram = true)
+    public CursorPageResult<NoteItem> listByCursor(Long userId, String cursor, int size, String q, String tag, Boolean archived,
+                                                   Boolean isPublic, Boolean mineOnly, boolean withTotal) {
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        FeedCursor after = FeedCursor.decode(cursor);
+
+        QueryWrapper<Note> qw = new QueryWrapper<>();
+        applyListScope(qw, userId, q, tag, archived, isPublic, mineOnly);
+        Long total = withTotal ? noteMapper.selectCount(qw) : null;
+
+        if (after != null) {
+            qw.and(w -> w.lt("updated_at", after.updatedAt)
+                    .or(o -> o.eq("updated_at", after.updatedAt).lt("id", after.id)));
+        }
+        qw.orderByDesc("updated_at", "id");
+        qw.last("LIMIT " + (limit + 1));
+        List<Note> rows = noteMapper.selectList(qw);
+
+        boolean hasMore = rows.size() > limit;
+        List<Note> records = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Note last = records.get(records.size() - 1);
+            nextCursor = FeedCursor.encode(last.getUpdatedAt(), last.getId());
+        }
+        return new CursorPageResult<>(withHighlight(itemAssembler.assemble(userId, records), q), nextCursor, hasMore, limit, total);
+    }
+
+    /**
+     * 组装列表查询的可见范围与筛选条件（供 offset 分页与游标分页共用）。
+     * 范围控制：
+     * - 未登录：仅公开便签；
+     * - 已登录：默认 公开便签 + 我的全部便签；若 mineOnly=true，则仅我的便签。
+     * 返回：
+     * - 关键词走全文索引时的 BOOLEAN MODE 查询串，否则为 null。
+     */
+    private String applyListScope(QueryWrapper<Note> qw, Long userId, String q, String tag, Boolean archived, Boolean isPublic, Boolean mineOnly) {
         boolean onlyMine = Boolean.TRUE.equals(mineOnly);
         if (userId == null) {
             qw.eq("is_public", true);
@@ -208,86 +345,25 @@ public class NoteService {
             }
         }
 
-        if (q != null && !q.isBlank()) {
-            qw.and(w -> w.like("content", q).or().like("tags", q));
+        String against = searchSupport.applyMatch(qw, q);
+        if (tag != null && !tag.isBlank()) {
+            // 标签精确匹配：走 note_tags (tag, note_id) 索引，替代 tags LIKE '%tag%'
+            String t = tag.trim().replaceFirst("^#", "");
+            qw.apply("EXISTS (SELECT 1 FROM note_tags nt WHERE nt.note_id = shiyan.id AND nt.tag = {0})", t);
         }
         if (archived != null) {
             qw.eq("archived", archived);
         }
-        qw.orderByDesc("updated_at");
-        Page<Note> np = noteMapper.selectPage(Page.of(page, size), qw);
-        List<Note> records = np.getRecords();
-        List<Long> ids = records.stream().map(Note::getId).collect(Collectors.toList());
-        // 作者昵称映射
-        Map<Long, String> authorNameMap = new HashMap<>();
-        // 新增：作者头像映射（user_id -> avatar_url）。
-        // 说明：数据库中存的是相对路径（如 "/uploads/avatars/xxx.jpg"），
-        // 前端会使用 avatarFullUrl(base 去掉 /api 前缀) 拼接为完整 URL。
-        Map<Long, String> avatarUrlMap = new HashMap<>();
-        List<Long> authorIds = records.stream().map(Note::getUserId).distinct().collect(Collectors.toList());
-        if (!authorIds.isEmpty()) {
-            List<User> users = userMapper.selectBatchIds(authorIds);
-            for (User u : users) {
-                String name = Optional.ofNullable(u.getNickname()).filter(s -> !s.isBlank()).orElse(u.getUsername());
-                authorNameMap.put(u.getId(), name);
-                avatarUrlMap.put(u.getId(), u.getAvatarUrl());
-            }
+        return against;
+    }
+
+    /** 带关键词检索时为列表项补充命中摘要。 */
+    private List<NoteItem> withHighlight(List<NoteItem> items, String q) {
+        if (q == null || q.isBlank()) return items;
+        for (NoteItem it : items) {
+            it.setHighlight(searchSupport.highlight(it.getContent(), q));
         }
-    
-        Map<Long, Long> likeCountMap = new HashMap<>();
-        Map<Long, Long> favoriteCountMap = new HashMap<>();
-        final Set<Long> likedSet;
-        final Set<Long> favoritedSet;
-        if (!ids.isEmpty()) {
-            List<Map<String,Object>> likeCounts = likeMapper.countByNoteIds(ids);
-            for (Map<String,Object> m : likeCounts) {
-                Long nid = ((Number)m.get("noteId")).longValue();
-                Long cnt = ((Number)m.get("cnt")).longValue();
-                likeCountMap.put(nid, cnt);
-            }
-            List<Long> likedIds = likeMapper.findLikedNoteIdsByUser(userId, ids);
-            likedSet = likedIds.stream().collect(Collectors.toSet());
-
-            List<Map<String,Object>> favCounts = favoriteMapper.countByNoteIds(ids);
-            for (Map<String,Object> m : favCounts) {
-                Long nid = ((Number)m.get("noteId")).longValue();
-                Long cnt = ((Number)m.get("cnt")).longValue();
-                favoriteCountMap.put(nid, cnt);
-            }
-            // 仅在“我的便签”列表中，根据当前用户的收藏记录计算收藏态
-            List<Long> favoritedIds = favoriteMapper.findFavoritedNoteIdsByUser(userId, ids);
-            favoritedSet = favoritedIds.stream().collect(java.util.stream.Collectors.toSet());
-        } else {
-            likedSet = Set.of();
-            favoritedSet = Set.of();
-        }
-    
-        List<NoteItem> items = records.stream().map(n -> {
-            NoteItem it = new NoteItem();
-            it.setId(n.getId());
-            it.setUserId(n.getUserId());
-            it.setAuthorName(authorNameMap.get(n.getUserId()));
-            // 注入作者头像相对路径（可能为 null）；前端负责拼完整 URL 与兜底默认头像。
-            it.setAvatarUrl(avatarUrlMap.get(n.getUserId()));
-            // 移除 title 映射
-            it.setContent(n.getContent());
-            it.setTags(n.getTags());
-            it.setColor(n.getColor());
-            it.setArchived(n.getArchived());
-            it.setIsPublic(n.getIsPublic());
-            it.setCreatedAt(n.getCreatedAt());
-            it.setUpdatedAt(n.getUpdatedAt());
-            it.setLikeCount(likeCountMap.getOrDefault(n.getId(), 0L));
-            it.setLikedByMe(likedSet.contains(n.getId()));
-            it.setFavoriteCount(favoriteCountMap.getOrDefault(n.getId(), 0L));
-            it.setFavoritedByMe(favoritedSet.contains(n.getId()));
-            return it;
-        }).collect(Collectors.toList());
-    
-        Page<NoteItem> ip = Page.of(np.getCurrent(), np.getSize());
-        ip.setTotal(np.getTotal());
-        ip.setRecords(items);
-        return ip;
+        return items;
     }
 
     /**
@@ -309,26 +385,32 @@ public class NoteService {
     /**
      * 热门公开便签
      * 行为：
-     * - 仅公开且未归档，先取最近 days 天内的候选集合（最多 300 条），
-     * - 计算综合热度分（收藏权重 1.0，点赞权重 0.5，时效加权 0.2~1.0）并排序截断；
-     * - 结果写入热门缓存，不含用户态；登录用户补充 likedByMe/favoritedByMe。
+     * - 榜单来自 note_scores 预计算热度分（{@link com.yunbq.backend.job.NoteHotScoreJob} 定期重算：
+     *   收藏权重 1.0、点赞权重 0.5，按互动时间指数衰减），经 {@link NoteHotRanking} 本地缓存；
+     * - 请求路径不做聚合，仅截取缓存榜单并按当前用户补充 likedByMe/favoritedByMe。
      *
      * 参数：
      * - userId：当前用户 ID，可为 null；
-     * - size：返回条数，<=0 使用默认 10；
-     * - days：候选范围的时间窗口天数，<=0 使用默认 30。
+     * - size：返回条数，<=0 使用默认 10，最大 {@link NoteHotRanking#MAX_SIZE}。
      *
      * 返回：
      * - {@link Page} 包装的 {@link NoteItem} 列表（当前页固定为 1）。
      */
-    // 已移除：hotPublic（热门公开拾言）。对应控制器路由 /api/notes/hot 已删除。
+    public Page<NoteItem> hotPublic(Long userId, int size) {
+        int limit = size <= 0 ? 10 : Math.min(size, NoteHotRanking.MAX_SIZE);
+        List<Note> records = hotRanking.top(limit);
+        Page<NoteItem> ip = Page.of(1, limit);
+        ip.setTotal(records.size());
+        ip.setRecords(itemAssembler.assemble(userId, records));
+        return ip;
+    }
 
     /**
      * 批量导入拾言
      * 说明：
      * - 入参为当前用户ID与 NoteRequest 列表（来源于前端解析的 CSV/JSON 数据）；
-     * - 对每项进行最小校验：content 为空则计为失败并跳过；
-     * - 其余字段（tags/color/archived/isPublic）按已有 create 逻辑写入；
+     * - 委托 {@link NoteBulkImporter}：先逐条校验（content 为空等计为失败并跳过），
+     *   再按块多行 INSERT 写入并同步标签索引，每块独立事务；
      * - 返回导入统计信息：imported（成功条数）、failed（失败条数）、errors（可选错误消息列表）。
      *
      * 参数：
@@ -338,46 +420,84 @@ public class NoteService {
      * 返回：
      * - 统计信息 Map：imported、failed、errors（可选）。
      */
-    @Transactional
     public Map<String, Object> importNotes(Long userId, List<NoteRequest> items) {
         if (items == null || items.isEmpty()) {
             return Map.of("imported", 0, "failed", 0);
         }
-        int ok = 0;
-        int fail = 0;
-        List<String> errors = new java.util.ArrayList<>();
-        for (int i = 0; i < items.size(); i++) {
-            NoteRequest req = items.get(i);
-            // 最小校验：content 非空（去除空格）
-            String content = (req == null) ? null : req.getContent();
-            if (!StringUtils.hasText(content)) {
-                fail++;
-                errors.add("第" + (i + 1) + "条：内容为空，已跳过");
-                continue;
-            }
-            try {
-                // 直接复用 create 逻辑（包含标签解析与缓存失效处理）
-                this.create(userId, req);
-                ok++;
-            } catch (Exception e) {
-                fail++;
-                // 记录简要错误信息（不暴露堆栈），便于前端提示
-                errors.add("第" + (i + 1) + "条：" + (e.getMessage() == null ? "导入失败" : e.getMessage()));
+        Map<String, Object> resp = bulkImporter.importAll(userId, items);
+        versions.bump(ContentVersions.NOTES);
+        return resp;
+    }
+
+    /**
+     * 流式批量导入拾言：直接解析请求体 JSON（{ items: [...] } 或数组），边解析边分块写入。
+     * 异常：
+     * - IllegalArgumentException：请求体结构错误，或首条数据之前即出现 JSON 语法错误；
+     *   中途语法错误返回部分结果（aborted=true），见 {@link NoteBulkImporter#importStream}。
+     */
+    public Map<String, Object> importNotes(Long userId, InputStream body) {
+        try {
+            return bulkImporter.importStream(userId, body);
+        } finally {
+            // 解析失败前已写入的块不回滚，同样需要使列表 ETag 失效
+            versions.bump(ContentVersions.NOTES);
+        }
+    }
+    /**
+     * 导出当前用户的全部便签（流式）
+     * 行为：
+     * - 通过 MyBatis 游标逐行读取（驱动层流式结果集），每行序列化后立即写入输出流；
+     * - ndjson=true 时每行一个 JSON 对象（application/x-ndjson），否则输出 JSON 数组；
+     * - 每行字段：id/content/tags/color/archived/isPublic/createdAt/updatedAt/likeCount/favoriteCount；
+     * - 堆内存占用与便签数量无关，仅取决于单行大小与输出缓冲。
+     *
+     * 参数：
+     * - userId：当前用户 ID；
+     * - ndjson：输出格式；
+     * - out：响应输出流（由调用方负责关闭）。
+     *
+     * 异常：
+     * - IOException：客户端断开或写出失败时抛出，事务随之结束并释放游标。
+     */
+    @Transactional(readOnly = true)
+    public void exportNotes(Long userId, boolean ndjson, OutputStream out) throws IOException {
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(out);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gen.setRootValueSeparator(null);
+        if (!ndjson) gen.writeStartArray();
+        int rows = 0;
+        try (Cursor<Note> cursor = noteMapper.selectCursorByUser(userId)) {
+            for (Note n : cursor) {
+                gen.writeStartObject();
+                gen.writeNumberField("id", n.getId());
+                gen.writeStringField("content", n.getContent());
+                gen.writeStringField("tags", n.getTags());
+                gen.writeStringField("color", n.getColor());
+                gen.writeBooleanField("archived", Boolean.TRUE.equals(n.getArchived()));
+                gen.writeBooleanField("isPublic", Boolean.TRUE.equals(n.getIsPublic()));
+                gen.writeFieldName("createdAt");
+                gen.writeObject(n.getCreatedAt());
+                gen.writeFieldName("updatedAt");
+                gen.writeObject(n.getUpdatedAt());
+                gen.writeNumberField("likeCount", countOrZero(n.getLikeCount()));
+                gen.writeNumberField("favoriteCount", countOrZero(n.getFavoriteCount()));
+                gen.writeEndObject();
+                if (ndjson) gen.writeRaw('\n');
+                // 定期刷出，避免在生成器缓冲中积压
+                if (++rows % 200 == 0) gen.flush();
             }
         }
-        Map<String, Object> resp = new HashMap<>();
-        resp.put("imported", ok);
-        resp.put("failed", fail);
-        if (!errors.isEmpty()) resp.put("errors", errors);
-        return resp;
+        if (!ndjson) gen.writeEndArray();
+        gen.flush();
     }
+
     // 点赞相关
     @Transactional
     /**
      * 点赞便签
      * 行为：
      * - 私有便签仅作者可点赞；公开便签任何登录用户可点赞；
-     * - 若未点赞则插入一条点赞记录，并向作者发送“收到的赞”消息（避免自赞发消息）；
+     * - 若未点赞则插入一条点赞记录并原子递增 like_count，同时向作者发送“收到的赞”消息（避免自赞发消息）；
      * - 点赞变化影响热门，失效热门缓存。
      *
      * 参数：
@@ -390,6 +510,7 @@ public class NoteService {
      * 异常：
      * - RuntimeException：便签不存在或私有便签非作者操作时抛出。
      */
+    @Timed(value = "yunbq.notes.interaction", histogram = true)
     public Map<String, Object> like(Long userId, Long noteId) {
         Note n = noteMapper.selectById(noteId);
         if (n == null) throw new RuntimeException("笔记不存在");
@@ -397,19 +518,25 @@ public class NoteService {
         if (!Boolean.TRUE.equals(n.getIsPublic()) && !n.getUserId().equals(userId)) {
             throw new RuntimeException("私有便签仅作者可操作");
         }
-        QueryWrapper<NoteLike> qw = new QueryWrapper<>();
-        qw.eq("note_id", noteId).eq("user_id", userId);
-        Long exists = likeMapper.selectCount(qw);
-        if (exists == null || exists == 0) {
-            NoteLike l = new NoteLike();
-            l.setNoteId(noteId);
-            l.setUserId(userId);
-            l.setCreatedAt(LocalDateTime.now());
-            likeMapper.insert(l);
+        if (interactionBuffer.isEnabled()) {
+            // 写后缓冲模式：仅记录目标状态，消息在刷盘成功后发送
+            Long buffered = interactionBuffer.toggle(NoteInteractionBuffer.Kind.LIKE, noteId, userId, true);
+            if (buffered != null) {
+                versions.bump(ContentVersions.NOTES);
+                return Map.of("count", buffered, "likedByMe", true);
+            }
+            // 缓冲已满：改走同步写入
+        }
+        // INSERT IGNORE 依赖唯一索引保证幂等：仅在真正新增时同步调整反范式计数并发送消息
+        if (likeMapper.insertIgnore(noteId, userId, LocalDateTime.now()) > 0) {
+            noteMapper.adjustLikeCount(noteId, 1);
+            viewerCache.invalidateAfterCommit(userId);
+            versions.bump(ContentVersions.NOTES);
             // 点赞成功后，向作者发送一条“收到的赞”消息（避免自赞发消息）
             try { if (messageService != null) messageService.createLikeMessage(userId, noteId); } catch (Exception ignored) {}
         }
-        long count = likeMapper.selectCount(new QueryWrapper<NoteLike>().eq("note_id", noteId));
+        // 叠加缓冲中其他用户尚未落库的增量（缓冲已满改走同步路径时）；未启用缓冲时为 0
+        long count = Math.max(0L, countOrZero(noteMapper.selectLikeCount(noteId)) + interactionBuffer.countDelta(NoteInteractionBuffer.Kind.LIKE, noteId));
         // 点赞变化：已移除热门缓存的失效调用
         return Map.of("count", count, "likedByMe", true);
     }
@@ -425,14 +552,28 @@ public class NoteService {
      * 返回：
      * - Map：{"count": 总点赞数, "likedByMe": false}
      */
+    @Timed(value = "yunbq.notes.interaction", histogram = true)
     public Map<String, Object> unlike(Long userId, Long noteId) {
         Note n = noteMapper.selectById(noteId);
         if (n == null) throw new RuntimeException("笔记不存在");
         if (!Boolean.TRUE.equals(n.getIsPublic()) && !n.getUserId().equals(userId)) {
             throw new RuntimeException("私有便签仅作者可操作");
         }
-        likeMapper.delete(new QueryWrapper<NoteLike>().eq("note_id", noteId).eq("user_id", userId));
-        long count = likeMapper.selectCount(new QueryWrapper<NoteLike>().eq("note_id", noteId));
+        if (interactionBuffer.isEnabled()) {
+            Long buffered = interactionBuffer.toggle(NoteInteractionBuffer.Kind.LIKE, noteId, userId, false);
+            if (buffered != null) {
+                versions.bump(ContentVersions.NOTES);
+                return Map.of("count", buffered, "likedByMe", false);
+            }
+            // 缓冲已满：改走同步写入
+        }
+        if (likeMapper.deleteByNoteAndUser(noteId, userId) > 0) {
+            noteMapper.adjustLikeCount(noteId, -1);
+            viewerCache.invalidateAfterCommit(userId);
+            versions.bump(ContentVersions.NOTES);
+        }
+        // 叠加缓冲中其他用户尚未落库的增量（缓冲已满改走同步路径时）；未启用缓冲时为 0
+        long count = Math.max(0L, countOrZero(noteMapper.selectLikeCount(noteId)) + interactionBuffer.countDelta(NoteInteractionBuffer.Kind.LIKE, noteId));
         // 取消点赞：已移除热门缓存的失效调用
         return Map.of("count", count, "likedByMe", false);
     }
@@ -440,7 +581,7 @@ public class NoteService {
     /**
      * 点赞信息查询
      * 行为：
-     * - 返回便签的总点赞数与当前用户是否已点赞。
+     * - 返回便签的总点赞数（读取反范式计数列）与当前用户是否已点赞。
      *
      * 参数：
      * - userId：当前用户 ID；
@@ -452,8 +593,10 @@ public class NoteService {
     public Map<String, Object> likeInfo(Long userId, Long noteId) {
         Note n = noteMapper.selectById(noteId);
         if (n == null) throw new RuntimeException("笔记不存在");
-        long count = likeMapper.selectCount(new QueryWrapper<NoteLike>().eq("note_id", noteId));
-        boolean likedByMe = likeMapper.selectCount(new QueryWrapper<NoteLike>().eq("note_id", noteId).eq("user_id", userId)) > 0;
+        long count = countOrZero(n.getLikeCount()) + interactionBuffer.countDelta(NoteInteractionBuffer.Kind.LIKE, noteId);
+        Boolean buffered = interactionBuffer.pendingState(NoteInteractionBuffer.Kind.LIKE, noteId, userId);
+        boolean likedByMe = (buffered != null) ? buffered
+                : likeMapper.selectCount(new QueryWrapper<NoteLike>().eq("note_id", noteId).eq("user_id", userId)) > 0;
         return Map.of("count", count, "likedByMe", likedByMe);
     }
 
@@ -463,12 +606,13 @@ public class NoteService {
      * 收藏便签
      * 行为：
      * - 私有便签仅作者可收藏；公开便签任何登录用户可收藏；
-     * - 若未收藏则插入一条收藏记录，并向作者发送“收到的收藏”消息（避免自藏发消息）；
+     * - 若未收藏则插入一条收藏记录并原子递增 favorite_count，同时向作者发送“收到的收藏”消息（避免自藏发消息）；
      * - 收藏变化影响热门，失效热门缓存。
      *
      * 返回：
      * - Map：{"count": 总收藏数, "favoritedByMe": true}
      */
+    @Timed(value = "yunbq.notes.interaction", histogram = true)
     public Map<String, Object> favorite(Long userId, Long noteId) {
         Note n = noteMapper.selectById(noteId);
         if (n == null) throw new RuntimeException("笔记不存在");
@@ -476,19 +620,24 @@ public class NoteService {
         if (!Boolean.TRUE.equals(n.getIsPublic()) && !n.getUserId().equals(userId)) {
             throw new RuntimeException("私有便签仅作者可操作");
         }
-        QueryWrapper<NoteFavorite> qw = new QueryWrapper<>();
-        qw.eq("note_id", noteId).eq("user_id", userId);
-        Long exists = favoriteMapper.selectCount(qw);
-        if (exists == null || exists == 0) {
-            NoteFavorite f = new NoteFavorite();
-            f.setNoteId(noteId);
-            f.setUserId(userId);
-            f.setCreatedAt(LocalDateTime.now());
-            favoriteMapper.insert(f);
+        if (interactionBuffer.isEnabled()) {
+            // 写后缓冲模式：仅记录目标状态，消息在刷盘成功后发送
+            Long buffered = interactionBuffer.toggle(NoteInteractionBuffer.Kind.FAVORITE, noteId, userId, true);
+            if (buffered != null) {
+                versions.bump(ContentVersions.NOTES);
+                return Map.of("count", buffered, "favoritedByMe", true);
+            }
+            // 缓冲已满：改走同步写入
+        }
+        if (favoriteMapper.insertIgnore(noteId, userId, LocalDateTime.now()) > 0) {
+            noteMapper.adjustFavoriteCount(noteId, 1);
+            viewerCache.invalidateAfterCommit(userId);
+            versions.bump(ContentVersions.NOTES);
             // 收藏成功后，向作者发送一条“收到的收藏”消息（避免自藏发消息）
             try { if (messageService != null) messageService.createFavoriteMessage(userId, noteId); } catch (Exception ignored) {}
         }
-        long count = favoriteMapper.selectCount(new QueryWrapper<NoteFavorite>().eq("note_id", noteId));
+        // 叠加缓冲中其他用户尚未落库的增量（缓冲已满改走同步路径时）；未启用缓冲时为 0
+        long count = Math.max(0L, countOrZero(noteMapper.selectFavoriteCount(noteId)) + interactionBuffer.countDelta(NoteInteractionBuffer.Kind.FAVORITE, noteId));
         // 收藏变化：已移除热门缓存的失效调用
         return Map.of("count", count, "favoritedByMe", true);
     }
@@ -504,14 +653,28 @@ public class NoteService {
      * 返回：
      * - Map：{"count": 总收藏数, "favoritedByMe": false}
      */
+    @Timed(value = "yunbq.notes.interaction", histogram = true)
     public Map<String, Object> unfavorite(Long userId, Long noteId) {
         Note n = noteMapper.selectById(noteId);
         if (n == null) throw new RuntimeException("笔记不存在");
         if (!Boolean.TRUE.equals(n.getIsPublic()) && !n.getUserId().equals(userId)) {
             throw new RuntimeException("私有便签仅作者可操作");
         }
-        favoriteMapper.delete(new QueryWrapper<NoteFavorite>().eq("note_id", noteId).eq("user_id", userId));
-        long count = favoriteMapper.selectCount(new QueryWrapper<NoteFavorite>().eq("note_id", noteId));
+        if (interactionBuffer.isEnabled()) {
+            Long buffered = interactionBuffer.toggle(NoteInteractionBuffer.Kind.FAVORITE, noteId, userId, false);
+            if (buffered != null) {
+                versions.bump(ContentVersions.NOTES);
+                return Map.of("count", buffered, "favoritedByMe", false);
+            }
+            // 缓冲已满：改走同步写入
+        }
+        if (favoriteMapper.deleteByNoteAndUser(noteId, userId) > 0) {
+            noteMapper.adjustFavoriteCount(noteId, -1);
+            viewerCache.invalidateAfterCommit(userId);
+            versions.bump(ContentVersions.NOTES);
+        }
+        // 叠加缓冲中其他用户尚未落库的增量（缓冲已满改走同步路径时）；未启用缓冲时为 0
+        long count = Math.max(0L, countOrZero(noteMapper.selectFavoriteCount(noteId)) + interactionBuffer.countDelta(NoteInteractionBuffer.Kind.FAVORITE, noteId));
         // 取消收藏：已移除热门缓存的失效调用
         return Map.of("count", count, "favoritedByMe", false);
     }
@@ -519,7 +682,7 @@ public class NoteService {
     /**
      * 收藏信息查询
      * 行为：
-     * - 返回便签的总收藏数与当前用户是否已收藏。
+     * - 返回便签的总收藏数（读取反范式计数列）与当前用户是否已收藏。
      *
      * 参数：
      * - userId：当前用户 ID；
@@ -531,307 +694,220 @@ public class NoteService {
     public Map<String, Object> favoriteInfo(Long userId, Long noteId) {
         Note n = noteMapper.selectById(noteId);
         if (n == null) throw new RuntimeException("笔记不存在");
-        long count = favoriteMapper.selectCount(new QueryWrapper<NoteFavorite>().eq("note_id", noteId));
-        boolean favoritedByMe = favoriteMapper.selectCount(new QueryWrapper<NoteFavorite>().eq("note_id", noteId).eq("user_id", userId)) > 0;
+        long count = countOrZero(n.getFavoriteCount()) + interactionBuffer.countDelta(NoteInteractionBuffer.Kind.FAVORITE, noteId);
+        Boolean buffered = interactionBuffer.pendingState(NoteInteractionBuffer.Kind.FAVORITE, noteId, userId);
+        boolean favoritedByMe = (buffered != null) ? buffered
+                : favoriteMapper.selectCount(new QueryWrapper<NoteFavorite>().eq("note_id", noteId).eq("user_id", userId)) > 0;
         return Map.of("count", count, "favoritedByMe", favoritedByMe);
     }
 
     /**
      * 分页检索“我收藏的便签”
      * 行为：
-     * - 先取当前用户收藏的 noteId 集合，再按条件筛选便签并分页；
+     * - 以 note_favorites 联表 shiyan 按收藏时间倒序分页（最近收藏在前），SQL 规模只与页大小相关；
      * - 返回作者信息、统计数据与当前用户态（likedByMe/favoritedByMe）。
      *
      * 参数：
-     * - userId：当前用户 ID；
-     * - page/size：分页参数；
+     * - userId：当前用户 ID，未登录返回空页；
+     * - page/size：分页参数（size 上限 50）；
      * - q：关键词搜索（content/tags）。
      *
      * 返回：
      * - {@link Page} 包装的 {@link NoteItem} 列表与分页信息。
      */
     public Page<NoteItem> listFavorited(Long userId, int page, int size, String q) {
-        // 先取用户已收藏的 note_id 集合，再按条件筛选便签并分页
-        List<Long> favIds = favoriteMapper.selectList(new QueryWrapper<NoteFavorite>().eq("user_id", userId))
-                .stream().map(NoteFavorite::getNoteId).collect(Collectors.toList());
-        if (favIds == null || favIds.isEmpty()) {
-            Page<NoteItem> empty = Page.of(page, size);
-            empty.setTotal(0);
-            empty.setRecords(java.util.Collections.emptyList());
-            return empty;
-        }
-        QueryWrapper<Note> qw = new QueryWrapper<>();
-        qw.in("id", favIds);
-        if (q != null && !q.isBlank()) {
-            qw.and(w -> w.like("content", q).or().like("tags", q));
-        }
-        qw.orderByDesc("updated_at");
-        Page<Note> np = noteMapper.selectPage(Page.of(page, size), qw);
-        List<Note> records = np.getRecords();
-        List<Long> ids = records.stream().map(Note::getId).collect(Collectors.toList());
-        // 作者昵称映射
-        Map<Long, String> authorNameMap = new HashMap<>();
-        // 作者头像映射：user_id -> avatar_url 相对路径。
-        // 详细说明：头像在前端使用 avatarFullUrl 进行完整 URL 拼接；
-        // 这里提供原始相对路径，保持返回体轻量，兼容现有渲染逻辑。
-        Map<Long, String> avatarUrlMap = new HashMap<>();
-        List<Long> authorIds = records.stream().map(Note::getUserId).distinct().collect(Collectors.toList());
-        if (!authorIds.isEmpty()) {
-            List<User> users = userMapper.selectBatchIds(authorIds);
-            for (User u : users) {
-                String name = Optional.ofNullable(u.getNickname()).filter(s -> !s.isBlank()).orElse(u.getUsername());
-                authorNameMap.put(u.getId(), name);
-                // 同步记录头像相对路径，可能为 null（前端需做默认头像兜底）。
-                avatarUrlMap.put(u.getId(), u.getAvatarUrl());
-            }
-        }
-
-        Map<Long, Long> likeCountMap = new HashMap<>();
-        Map<Long, Long> favoriteCountMap = new HashMap<>();
-        final Set<Long> likedSet;
-        final Set<Long> favoritedSet;
-        if (!ids.isEmpty()) {
-            List<Map<String,Object>> likeCounts = likeMapper.countByNoteIds(ids);
-            for (Map<String,Object> m : likeCounts) {
-                Long nid = ((Number)m.get("noteId")).longValue();
-                Long cnt = ((Number)m.get("cnt")).longValue();
-                likeCountMap.put(nid, cnt);
-            }
-            List<Long> likedIds = likeMapper.findLikedNoteIdsByUser(userId, ids);
-            likedSet = likedIds.stream().collect(Collectors.toSet());
-
-            List<Map<String,Object>> favCounts = favoriteMapper.countByNoteIds(ids);
-            for (Map<String,Object> m : favCounts) {
-                Long nid = ((Number)m.get("noteId")).longValue();
-                Long cnt = ((Number)m.get("cnt")).longValue();
-                favoriteCountMap.put(nid, cnt);
-            }
-            List<Long> favoritedIds = favoriteMapper.findFavoritedNoteIdsByUser(userId, ids);
-            favoritedSet = favoritedIds.stream().collect(Collectors.toSet());
-        } else {
-            likedSet = Set.of();
-            favoritedSet = Set.of();
-        }
-
-        List<NoteItem> items = records.stream().map(n -> {
-            NoteItem it = new NoteItem();
-            it.setId(n.getId());
-            it.setUserId(n.getUserId());
-            it.setAuthorName(authorNameMap.get(n.getUserId()));
-            it.setAvatarUrl(avatarUrlMap.get(n.getUserId()));
-            it.setContent(n.getContent());
-            it.setTags(n.getTags());
-            it.setColor(n.getColor());
-            it.setArchived(n.getArchived());
-            it.setIsPublic(n.getIsPublic());
-            it.setCreatedAt(n.getCreatedAt());
-            it.setUpdatedAt(n.getUpdatedAt());
-            it.setLikeCount(likeCountMap.getOrDefault(n.getId(), 0L));
-            it.setLikedByMe(likedSet.contains(n.getId()));
-            it.setFavoriteCount(favoriteCountMap.getOrDefault(n.getId(), 0L));
-            it.setFavoritedByMe(favoritedSet.contains(n.getId()));
-            return it;
-        }).collect(Collectors.toList());
-
-        Page<NoteItem> ip = Page.of(np.getCurrent(), np.getSize());
-        ip.setTotal(np.getTotal());
-        ip.setRecords(items);
-        return ip;
+        return interactedPage(favoritedSource, userId, page, size, q);
     }
 
     /**
-     * 列出当前用户点过赞的便签（分页）
-     * 实现思路：
-     * 1) 先从点赞表按 user_id 取出该用户点赞过的所有 note_id；
-     * 2) 再使用这些 note_id 反查便签并分页；
-     * 3) 计算作者昵称、点赞/收藏数量，并根据当前用户补充 likedByMe/favoritedByMe 标记；
-     * 注意：
-     * - 当 userId 为空（匿名访问）时，无法计算“我是否点赞/收藏”，统一返回 false；
-     * - 为了简化实现，liked 集合为空时直接返回空分页结果。
+     * 游标分页检索“我收藏的便签”
+     * 说明：
+     * - 游标为上一页最后一条收藏记录的 (created_at, id)，命中索引 idx_fav_user_created，深翻页无 offset 扫描；
+     * - 其余参数与返回同 {@link #listByCursor}。
      */
+    public CursorPageResult<NoteItem> listFavoritedByCursor(Long userId, String cursor, int size, String q, boolean withTotal) {
+        return interactedByCursor(favoritedSource, userId, cursor, size, q, withTotal);
+    }
+
     /**
      * 分页检索“我点赞的便签”
      * 行为：
-     * - 先取当前用户点赞的 noteId 集合，再按条件筛选便签并分页；
+     * - 以 note_likes 联表 shiyan 按点赞时间倒序分页（最近点赞在前），SQL 规模只与页大小相关；
      * - 返回作者信息、统计数据与当前用户态（likedByMe/favoritedByMe）。
      *
      * 参数：
-     * - userId：当前用户 ID；
-     * - page/size：分页参数；
+     * - userId：当前用户 ID，未登录返回空页（前端“喜欢页”语义为“我点赞过的”）；
+     * - page/size：分页参数（size 上限 50）；
      * - q：关键词搜索（content/tags）。
      *
      * 返回：
      * - {@link Page} 包装的 {@link NoteItem} 列表与分页信息。
      */
     public Page<NoteItem> listLiked(Long userId, int page, int size, String q) {
-        // 若未登录，无用户上下文，直接返回空列表（也可改为公开便签中过滤，但前端喜欢页语义为“我点赞过的”）
-        if (userId == null || userId <= 0) {
-            Page<NoteItem> empty = Page.of(page, size);
-            empty.setTotal(0);
-            empty.setRecords(java.util.Collections.emptyList());
-            return empty;
-        }
-
-        // 取当前用户点赞过的便签 ID 集合
-        java.util.List<Long> likedIdsAll = likeMapper.selectList(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<com.yunbq.backend.model.NoteLike>().eq("user_id", userId))
-                .stream().map(com.yunbq.backend.model.NoteLike::getNoteId).collect(java.util.stream.Collectors.toList());
-        if (likedIdsAll == null || likedIdsAll.isEmpty()) {
-            Page<NoteItem> empty = Page.of(page, size);
-            empty.setTotal(0);
-            empty.setRecords(java.util.Collections.emptyList());
-            return empty;
-        }
-
-        // 反查便签并分页
-        com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<com.yunbq.backend.model.Note> qw = new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<>();
-        qw.in("id", likedIdsAll);
-        if (q != null && !q.isBlank()) {
-            qw.and(w -> w.like("content", q).or().like("tags", q));
-        }
-        qw.orderByDesc("updated_at");
-        com.baomidou.mybatisplus.extension.plugins.pagination.Page<com.yunbq.backend.model.Note> np = noteMapper.selectPage(com.baomidou.mybatisplus.extension.plugins.pagination.Page.of(page, size), qw);
-        java.util.List<com.yunbq.backend.model.Note> records = np.getRecords();
-        java.util.List<Long> ids = records.stream().map(com.yunbq.backend.model.Note::getId).collect(java.util.stream.Collectors.toList());
-
-        // 作者昵称映射
-        java.util.Map<Long, String> authorNameMap = new java.util.HashMap<>();
-        java.util.Map<Long, String> avatarUrlMap = new java.util.HashMap<>();
-        java.util.List<Long> authorIds = records.stream().map(com.yunbq.backend.model.Note::getUserId).distinct().collect(java.util.stream.Collectors.toList());
-        if (!authorIds.isEmpty()) {
-            java.util.List<com.yunbq.backend.model.User> users = userMapper.selectBatchIds(authorIds);
-            for (com.yunbq.backend.model.User u : users) {
-                String name = java.util.Optional.ofNullable(u.getNickname()).filter(s -> !s.isBlank()).orElse(u.getUsername());
-                authorNameMap.put(u.getId(), name);
-                avatarUrlMap.put(u.getId(), u.getAvatarUrl());
-            }
-        }
-
-        // 点赞/收藏数量与用户态标记
-        java.util.Map<Long, Long> likeCountMap = new java.util.HashMap<>();
-        java.util.Map<Long, Long> favoriteCountMap = new java.util.HashMap<>();
-        final java.util.Set<Long> likedSet;
-        final java.util.Set<Long> favoritedSet;
-        if (!ids.isEmpty()) {
-            java.util.List<java.util.Map<String,Object>> likeCounts = likeMapper.countByNoteIds(ids);
-            for (java.util.Map<String,Object> m : likeCounts) {
-                Long nid = ((Number)m.get("noteId")).longValue();
-                Long cnt = ((Number)m.get("cnt")).longValue();
-                likeCountMap.put(nid, cnt);
-            }
-            java.util.List<java.util.Map<String,Object>> favCounts = favoriteMapper.countByNoteIds(ids);
-            for (java.util.Map<String,Object> m : favCounts) {
-                Long nid = ((Number)m.get("noteId")).longValue();
-                Long cnt = ((Number)m.get("cnt")).longValue();
-                favoriteCountMap.put(nid, cnt);
-            }
-            // 当前用户已点赞/已收藏集合
-            java.util.List<Long> likedIds = likeMapper.findLikedNoteIdsByUser(userId, ids);
-            likedSet = likedIds.stream().collect(java.util.stream.Collectors.toSet());
-            java.util.List<Long> favoritedIds = favoriteMapper.findFavoritedNoteIdsByUser(userId, ids);
-            favoritedSet = favoritedIds.stream().collect(java.util.stream.Collectors.toSet());
-        } else {
-            likedSet = java.util.Set.of();
-            favoritedSet = java.util.Set.of();
-        }
-
-        java.util.List<com.yunbq.backend.dto.NoteItem> items = records.stream().map(n -> {
-            com.yunbq.backend.dto.NoteItem it = new com.yunbq.backend.dto.NoteItem();
-            it.setId(n.getId());
-            it.setUserId(n.getUserId());
-            it.setAuthorName(authorNameMap.get(n.getUserId()));
-            it.setAvatarUrl(avatarUrlMap.get(n.getUserId()));
-            it.setContent(n.getContent());
-            it.setTags(n.getTags());
-            it.setColor(n.getColor());
-            it.setArchived(n.getArchived());
-            it.setIsPublic(n.getIsPublic());
-            it.setCreatedAt(n.getCreatedAt());
-            it.setUpdatedAt(n.getUpdatedAt());
-            it.setLikeCount(likeCountMap.getOrDefault(n.getId(), 0L));
-            it.setLikedByMe(likedSet.contains(n.getId()));
-            it.setFavoriteCount(favoriteCountMap.getOrDefault(n.getId(), 0L));
-            it.setFavoritedByMe(favoritedSet.contains(n.getId()));
-            return it;
-        }).collect(java.util.stream.Collectors.toList());
-
-        com.baomidou.mybatisplus.extension.plugins.pagination.Page<com.yunbq.backend.dto.NoteItem> ip = com.baomidou.mybatisplus.extension.plugins.pagination.Page.of(np.getCurrent(), np.getSize());
-        ip.setTotal(np.getTotal());
-        ip.setRecords(items);
-        return ip;
+        return interactedPage(likedSource, userId, page, size, q);
     }
 
-    // 已移除：标签统计接口实现
-
-    // ========= 解析工具 =========
     /**
-     * 内容解析结果
+     * 游标分页检索“我点赞的便签”
      * 说明：
-     * - 用于承载从原始内容中解析出的主体内容与标准化标签串。
+     * - 游标为上一页最后一条点赞记录的 (created_at, id)，命中索引 idx_likes_user_created；
+     * - 其余参数与返回同 {@link #listByCursor}。
      */
-    private static class Parsed {
-        final String content;
-        final String tags;
-        Parsed(String c, String t){ this.content = c; this.tags = t; }
+    public CursorPageResult<NoteItem> listLikedByCursor(Long userId, String cursor, int size, String q, boolean withTotal) {
+        return interactedByCursor(likedSource, userId, cursor, size, q, withTotal);
     }
+
     /**
-     * 若 tags 为空，尝试从 content 中提取以 # 开头、逗号分隔的标签；并将这些标签从内容中移除。
+     * “我点赞的/我收藏的”offset 分页。
+     * 说明：
+     * - 原实现先把用户全部互动记录读入内存再拼 `id IN (...)`，互动数上万时 SQL 与堆分配随之膨胀；
+     *   现在直接以互动表为驱动表联表分页，每页只取 size 条互动记录，再按 ID 取回对应便签。
      */
+    private <T> Page<NoteItem> interactedPage(InteractionSource<T> src, Long userId, int page, int size, String q) {
+        long current = Math.max(1, page);
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        Page<NoteItem> ip = Page.of(current, limit);
+        ip.setRecords(Collections.emptyList());
+        if (userId == null || userId <= 0) {
+            ip.setTotal(0);
+            return ip;
+        }
+        QueryWrapper<Note> qw = interactedScope(userId, q);
+        long total = src.count().apply(qw);
+        ip.setTotal(total);
+        long offset = (current - 1) * limit;
+        if (offset >= total) {
+            return ip;
+        }
+        qw.orderByDesc("r.created_at", "r.id");
+        qw.last("LIMIT " + offset + ", " + limit);
+        ip.setRecords(withHighlight(itemAssembler.assemble(userId, notesOf(src, src.select().apply(qw))), q));
+        return ip;
+    }
+
+    /** “我点赞的/我收藏的”游标分页：按 (互动时间, 互动记录 id) 倒序定位，多取 1 条判断 hasMore。 */
+    private <T> CursorPageResult<NoteItem> interactedByCursor(InteractionSource<T> src, Long userId, String cursor, int size,
+                                                             String q, boolean withTotal) {
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        FeedCursor after = FeedCursor.decode(cursor);
+        if (userId == null || userId <= 0) {
+            return new CursorPageResult<>(Collections.emptyList(), null, false, limit, withTotal ? 0L : null);
+        }
+        QueryWrapper<Note> qw = interactedScope(userId, q);
+        Long total = withTotal ? src.count().apply(qw) : null;
+        if (after != null) {
+            qw.and(w -> w.lt("r.created_at", after.updatedAt)
+                    .or(o -> o.eq("r.created_at", after.updatedAt).lt("r.id", after.id)));
+        }
+        qw.orderByDesc("r.created_at", "r.id");
+        qw.last("LIMIT " + (limit + 1));
+        List<T> rows = src.select().apply(qw);
+
+        boolean hasMore = rows.size() > limit;
+        List<T> refs = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            T last = refs.get(refs.size() - 1);
+            nextCursor = FeedCursor.encode(src.createdAt().apply(last), src.id().apply(last));
+        }
+        return new CursorPageResult<>(withHighlight(itemAssembler.assemble(userId, notesOf(src, refs)), q), nextCursor, hasMore, limit, total);
+    }
+
+    /** 互动列表公共条件：当前用户的互动记录 + 可选关键词（匹配便签 content/tags）。 */
+    private QueryWrapper<Note> interactedScope(Long userId, String q) {
+        QueryWrapper<Note> qw = new QueryWrapper<>();
+        qw.eq("r.user_id", userId);
+        searchSupport.applyMatch(qw, q);
+        return qw;
+    }
+
+    /** 按一页互动记录的顺序取回便签（单次主键 IN 查询，规模不超过页大小）。 */
+    private <T> List<Note> notesOf(InteractionSource<T> src, List<T> refs) {
+        if (refs.isEmpty()) return Collections.emptyList();
+        List<Long> ids = refs.stream().map(src.noteId()).collect(Collectors.toList());
+        Map<Long, Note> byId = noteMapper.selectBatchIds(ids).stream()
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+        List<Note> out = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Note n = byId.get(id);
+            if (n != null) out.add(n);
+        }
+        return out;
+    }
+
     /**
-     * 从原始内容解析标签并清理内容
+     * 标签云（分面统计）
      * 行为：
-     * - 若提供 rawTags 使用其为主，否则从 rawContent 中提取以 `#tag` 形式出现的标签；
-     * - 规范化标签串（去重、去空、统一分隔与大小写策略）；
-     * - 返回清理后的内容与最终标签串。
+     * - 统计公开且未归档便签中出现次数最多的标签，按数量倒序；
+     * - 结果写入缓存 `note_tag_facets::limit`，依赖缓存 TTL 过期（标签云允许短暂滞后，不在每次写入时清理）。
      *
      * 参数：
-     * - rawContent：原始便签内容；
-     * - rawTags：显式传入的标签串，可为空。
+     * - limit：返回条数上限（调用方负责限制范围）。
      *
      * 返回：
-     * - {@link Parsed}：包含清理后的内容与标准化标签。
+     * - 列表项 { tag, count }。
      */
-    private static Parsed parseFromContent(String rawContent, String rawTags){
-        String content = (rawContent == null) ? "" : rawContent;
-        String tags = (rawTags == null) ? "" : rawTags;
-        if (tags != null && !tags.isBlank()) {
-            return new Parsed(content, normalizeTags(tags));
-        }
-        // 提取 #标签
-        java.util.regex.Pattern p = java.util.regex.Pattern.compile("#([\\p{L}\\w-]+)", java.util.regex.Pattern.UNICODE_CHARACTER_CLASS);
-        java.util.regex.Matcher m = p.matcher(content);
-        java.util.LinkedHashSet<String> set = new java.util.LinkedHashSet<>();
-        int found = 0;
-        while (m.find()) {
-            String tag = m.group(1);
-            if (tag != null && !tag.isBlank()) { set.add(tag.trim()); found++; }
-        }
-        String joined = String.join(",", set);
-        if (found == 0) {
-            // 未从内容解析出标签时，不清理内容，直接返回原内容与规范化的 tags（可能为空）
-            return new Parsed(content, normalizeTags(tags));
-        }
-        // 清理内容：移除 #标签 及其后可能的逗号与空白
-        String cleaned = content.replaceAll("\\s*#([\\p{L}\\w-]+)\\s*(,\\s*)?", " ")
-                                .replaceAll("\\s{2,}", " ")
-                                .trim();
-        return new Parsed(cleaned, joined);
+    @Cacheable(cacheNames = "note_tag_facets", key = "#limit")
+    public List<Map<String, Object>> topTags(int limit) {
+        return tagMapper.selectTopPublicTags(limit);
     }
+
     /**
-     * 标签串标准化
-     * 行为：
-     * - 按逗号/空白分隔拆分标签，去除空白与重复；
-     * - 可选采用统一大小写策略（当前保持原样），再按逗号拼接；
-     * - 返回适合存储与检索的轻量字符串表示。
+     * 同步便签的标签索引：删除旧行后按当前标签串整体重建。
+     * 说明：标签数量很少（单条便签通常不超过十个），整体重建比逐条比对更简单且只有两条语句。
+     */
+    private void syncTags(Long noteId, String tagsCsv) {
+        if (noteId == null) return;
+        tagMapper.deleteByNoteId(noteId);
+        List<String> tags = HashtagParser.splitTags(tagsCsv, MAX_TAG_LENGTH);
+        if (!tags.isEmpty()) {
+            tagMapper.insertTags(noteId, tags);
+        }
+    }
+
+    /** 计数列可能为 null（历史数据迁移前），统一按 0 处理。 */
+    private static long countOrZero(Long v) {
+        return v == null ? 0L : v;
+    }
+
+    /**
+     * “我点赞的/我收藏的”列表的数据来源
+     * - select/count：互动表联表 shiyan 的查询与计数（条件由 QueryWrapper 提供）；
+     * - noteId/createdAt/id：互动记录的便签 ID 与游标字段。
      */
-    private static String normalizeTags(String s){
-        if (s == null) return "";
-        String[] parts = s.split(",");
-        java.util.LinkedHashSet<String> set = new java.util.LinkedHashSet<>();
-        for (String part : parts){
-            if (part == null) continue;
-            String t = part.trim().replaceFirst("^#", "");
-            if (!t.isBlank()) set.add(t);
-        }
-        return String.join(",", set);
+    private record InteractionSource<T>(Function<Wrapper<?>, List<T>> select,
+                                        Function<Wrapper<?>, Long> count,
+                                        Function<T, Long> noteId,
+                                        Function<T, LocalDateTime> createdAt,
+                                        Function<T, Long> id) {}
+
+    // ========= 游标工具 =========
+    /**
+     * 列表游标：由上一页最后一条记录的 (updated_at, id) 组成；
+     * “我点赞的/我收藏的”列表复用同一编码，取互动记录的 (created_at, id)。
+     * 编码：`{updatedAt ISO-8601}|{id}` 再做 URL 安全的 Base64（无填充），对客户端保持不透明。
+     */
+    private static final class FeedCursor {
+        final LocalDateTime updatedAt;
+        final Long id;
+        FeedCursor(LocalDateTime updatedAt, Long id){ this.updatedAt = updatedAt; this.id = id; }
+
+        static String encode(LocalDateTime updatedAt, Long id) {
+            String raw = updatedAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** 空串或 null 表示第一页，返回 null；格式非法时抛出 IllegalArgumentException。 */
+        static FeedCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+                int sep = raw.lastIndexOf('|');
+                if (sep <= 0) throw new IllegalArgumentException("游标格式非法");
+                return new FeedCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("游标格式非法", e);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,225 @@
+package com.yunbq.backend.service;
+
+import com.yunbq.backend.config.LogProperties;
+import com.yunbq.backend.model.RequestLog;
+import com.yunbq.backend.util.BoundedRingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 请求日志攒批写入器（RequestLogWriter）
+ * 职责：
+ * - 请求线程只把 {@link RequestLog} 放入有界无锁环形缓冲（{@link BoundedRingBuffer}），不触碰线程池与数据库；
+ * - 单个后台线程按“满一批（logdb.request-batch-size）或到达刷写间隔（logdb.request-flush-interval-ms）”
+ *   取出记录，整批交给请求日志的 {@link LogSink}（db 为一条多行 INSERT，file 为一次分段追加）。
+ *
+ * 溢出策略（logdb.request-overflow-policy）：
+ * - drop-newest（默认）：缓冲区满时丢弃新记录；
+ * - drop-oldest：挤掉最旧的一条后再放入新记录，保留最近的请求；
+ * - 两种策略都不阻塞请求线程；丢弃数计入统计，刷写线程发现新增丢弃时输出一条告警。
+ *
+ * 设计要点：
+ * - 原实现每个请求提交一个 @Async 任务并单条 insert：高并发下线程池队列（1000）打满后抛出拒绝异常，
+ *   且每条日志一次网络往返与一次事务提交；
+ * - 批写失败不重试（日志允许少量丢失），失败条数计入统计，避免失败批次在内存中堆积；
+ * - 应用关闭时停止接收并等待刷写线程把缓冲中的记录全部写完；
+ * - 作为 {@link MeterBinder} 暴露队列深度与各计数（yunbq.requestlog.*），与 {@link #stats()} 同源。
+ */
+@Component
+public class RequestLogWriter implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(RequestLogWriter.class);
+
+    private final LogSinks sinks;
+    private final BoundedRingBuffer<RequestLog> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean dropOldest;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    // 刷写线程上次告警时的丢弃总数：仅刷写线程读写
+    private long droppedReported;
+
+    private volatile boolean running;
+    private volatile Thread drainer;
+
+    public RequestLogWriter(LogSinks sinks, LogProperties logProperties) {
+        this.sinks = sinks;
+        this.buffer = new BoundedRingBuffer<>(Math.max(64, logProperties.getRequestBufferCapacity()));
+        this.batchSize = Math.max(1, Math.min(1000, logProperties.getRequestBatchSize()));
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10L, logProperties.getRequestFlushIntervalMs()));
+        this.dropOldest = "drop-oldest".equalsIgnoreCase(String.valueOf(logProperties.getRequestOverflowPolicy()).trim());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        Thread t = new Thread(this::drainLoop, "request-log-writer");
+        t.setDaemon(true);
+        drainer = t;
+        t.start();
+    }
+
+    /**
+     * 提交一条请求日志（不阻塞）。
+     * 返回：
+     * - true 表示已进入缓冲；false 表示按溢出策略被丢弃或写入器已停止。
+     */
+    public boolean submit(RequestLog rl) {
+        if (rl == null) return false;
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        boolean ok = buffer.offer(rl);
+        if (!ok && dropOldest) {
+            if (buffer.poll() != null) dropped.increment();
+            ok = buffer.offer(rl);
+        }
+        if (!ok) {
+            dropped.increment();
+            return false;
+        }
+        accepted.increment();
+        // 攒满一批时唤醒刷写线程，无需等到刷写间隔
+        if (buffer.size() >= batchSize) {
+            Thread t = drainer;
+            if (t != null) LockSupport.unpark(t);
+        }
+        return true;
+    }
+
+    /**
+     * 写入器统计。
+     * 返回：
+     * - accepted / dropped / written / failed：累计进入缓冲、被丢弃、写入成功、写入失败的条数；
+     * - batches：累计批次数；pending / capacity：当前缓冲条数（近似）与容量；overflowPolicy：溢出策略。
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("accepted", accepted.sum());
+        m.put("dropped", dropped.sum());
+        m.put("written", written.sum());
+        m.put("failed", failed.sum());
+        m.put("batches", batches.sum());
+        m.put("pending", buffer.size());
+        m.put("capacity", buffer.capacity());
+        m.put("overflowPolicy", dropOldest ? "drop-oldest" : "drop-newest");
+        return m;
+    }
+
+    /**
+     * 注册指标（由 Spring Boot 自动绑定 MeterBinder Bean）。
+     * - yunbq.requestlog.queue.size / queue.capacity：缓冲当前条数与容量；
+     * - yunbq.requestlog.records{result=accepted|dropped|written|failed}：累计条数；
+     * - yunbq.requestlog.batches：累计刷写批次。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("yunbq.requestlog.queue.size", buffer, BoundedRingBuffer::size)
+                .description("Request logs waiting in the ring buffer")
+                .register(registry);
+        Gauge.builder("yunbq.requestlog.queue.capacity", buffer, BoundedRingBuffer::capacity)
+                .register(registry);
+        recordsCounter(registry, "accepted", accepted);
+        recordsCounter(registry, "dropped", dropped);
+        recordsCounter(registry, "written", written);
+        recordsCounter(registry, "failed", failed);
+        FunctionCounter.builder("yunbq.requestlog.batches", batches, LongAdder::sum)
+                .register(registry);
+    }
+
+    private static void recordsCounter(MeterRegistry registry, String result, LongAdder adder) {
+        FunctionCounter.builder("yunbq.requestlog.records", adder, LongAdder::sum)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /** 应用关闭时停止接收，并等待刷写线程写完缓冲中的剩余记录。 */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread t = drainer;
+        if (t == null) return;
+        LockSupport.unpark(t);
+        try {
+            t.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive()) {
+            log.warn("Request log writer did not finish within 10s, pending={}", buffer.size());
+        }
+        log.info("Request log writer stopped: {}", stats());
+    }
+
+    private void drainLoop() {
+        List<RequestLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            long wait;
+            while (running && buffer.size() < batchSize && (wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            drainAll(batch);
+            reportDrops();
+        }
+        // 停止后把剩余记录全部写完
+        drainAll(batch);
+        reportDrops();
+    }
+
+    private void drainAll(List<RequestLog> batch) {
+        RequestLog rl;
+        while ((rl = buffer.poll()) != null) {
+            batch.add(rl);
+            if (batch.size() >= batchSize) {
+                write(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<RequestLog> batch) {
+        int n = batch.size();
+        try {
+            sinks.write(LogSink.Type.REQUEST, batch);
+            written.add(n);
+        } catch (Exception e) {
+            failed.add(n);
+            log.warn("Request log batch write failed, {} rows discarded: {}", n, e.getMessage());
+        } finally {
+            batches.increment();
+            batch.clear();
+        }
+    }
+
+    private void reportDrops() {
+        long total = dropped.sum();
+        if (total > droppedReported) {
+            log.warn("Request log buffer overflow: {} records dropped since last flush (total {}, policy {})",
+                    total - droppedReported, total, dropOldest ? "drop-oldest" : "drop-newest");
+            droppedReported = total;
+        }
+    }
+}
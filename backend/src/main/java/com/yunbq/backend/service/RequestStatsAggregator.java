@@ -0,0 +1,289 @@
+package com.yunbq.backend.service;
+
+import com.yunbq.backend.config.LogProperties;
+import com.yunbq.backend.mapper.RequestStatMapper;
+import com.yunbq.backend.model.RequestStat;
+import com.yunbq.backend.util.LatencyHistogram;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求耗时分钟汇总（RequestStatsAggregator）
+ * 职责：
+ * - 由 RequestLoggingFilter 对每个请求调用 {@link #record}，按（分钟, 方法 + 路由模板, 状态码）累计请求数、耗时合计/最大值与耗时直方图；
+ * - 定时把已结束的分钟写入 request_stats（{@link #flush}，由 RequestStatsFlushJob 触发，关闭时全量写出）；
+ * - 管理端按任意时间窗口合并汇总行与尚未落库的内存分钟，求各路由的分位数（{@link #query}），不扫描 request_logs 明细。
+ *
+ * 设计要点：
+ * - 路由使用 Spring MVC 匹配到的模板（如 /api/notes/{id}），而非原始 URI，键数量与接口数量同阶；
+ * - 热路径只做一次 ConcurrentHashMap 查找与若干原子累加，不加锁、不分配直方图对象；
+ * - 只写出早于上一分钟的分钟，给恰好跨分钟边界的请求留出余量；未落库的键数超过 logdb.request-stats-max-keys 时新键的请求只计入丢弃数；
+ * - 写入失败的分钟直接丢弃并告警（汇总是观测数据，不重试堆积）；
+ * - 不受请求日志采样与 request-enabled 开关影响，分位数基于全量请求。
+ */
+@Service
+public class RequestStatsAggregator implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(RequestStatsAggregator.class);
+
+    /** 未匹配到处理器（404、静态资源外的路径）的路由名，避免原始 URI 撑爆键空间 */
+    public static final String UNMATCHED = "UNMATCHED";
+    private static final int ROUTE_MAX_LEN = 192;
+    private static final int INSERT_BATCH = 500;
+
+    private record Key(long minute, String route, int status) {
+    }
+
+    /** 单个键的并发累加单元 */
+    private static final class Cell {
+        final LongAdder count = new LongAdder();
+        final LongAdder sumMs = new LongAdder();
+        final LongAccumulator maxMs = new LongAccumulator(Math::max, 0L);
+        final AtomicLongArray hist = new AtomicLongArray(LatencyHistogram.BUCKETS);
+
+        void add(long ms) {
+            count.increment();
+            sumMs.add(ms);
+            maxMs.accumulate(ms);
+            hist.incrementAndGet(LatencyHistogram.index(ms));
+        }
+
+        LatencyHistogram histogram() {
+            LatencyHistogram h = new LatencyHistogram();
+            for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                h.add(i, hist.get(i));
+            }
+            return h;
+        }
+    }
+
+    /** 查询时按路由合并的结果 */
+    private static final class Totals {
+        long count;
+        long sumMs;
+        long maxMs;
+        long errors;
+        final Map<Integer, Long> statusCounts = new TreeMap<>();
+        final LatencyHistogram hist = new LatencyHistogram();
+
+        void add(int status, long cnt, long sum, long max, LatencyHistogram h) {
+            count += cnt;
+            sumMs += sum;
+            maxMs = Math.max(maxMs, max);
+            if (status >= 500) errors += cnt;
+            statusCounts.merge(status, cnt, Long::sum);
+            hist.merge(h);
+        }
+    }
+
+    private final RequestStatMapper mapper;
+    private final LogProperties props;
+    private final ConcurrentHashMap<Key, Cell> cells = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    // 累计丢弃数（不随告警重置），供指标使用
+    private final LongAdder droppedTotal = new LongAdder();
+
+    public RequestStatsAggregator(RequestStatMapper mapper, LogProperties props) {
+        this.mapper = mapper;
+        this.props = props;
+    }
+
+    /**
+     * 记录一个请求（热路径）。
+     * 参数：
+     * - method：HTTP 方法；
+     * - routePattern：匹配到的路由模板，null 时记为 {@link #UNMATCHED}；
+     * - status：响应状态码；
+     * - costMs：耗时（毫秒）。
+     */
+    public void record(String method, String routePattern, int status, long costMs) {
+        if (!props.isRequestStatsEnabled()) return;
+        String route = route(method, routePattern);
+        Key key = new Key(System.currentTimeMillis() / 60_000L, route, status);
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            if (cells.size() >= Math.max(1, props.getRequestStatsMaxKeys())) {
+                dropped.increment();
+                droppedTotal.increment();
+                return;
+            }
+            cell = cells.computeIfAbsent(key, k -> new Cell());
+        }
+        cell.add(Math.max(0L, costMs));
+    }
+
+    /**
+     * 将已结束的分钟写入 request_stats。
+     * 参数：
+     * - all：true 时写出全部分钟（应用关闭时），否则只写出早于上一分钟的分钟。
+     * 返回：
+     * - 写入的汇总行数。
+     */
+    public int flush(boolean all) {
+        long before = System.currentTimeMillis() / 60_000L - 1;
+        List<RequestStat> rows = new ArrayList<>();
+        Iterator<Map.Entry<Key, Cell>> it = cells.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Cell> e = it.next();
+            Key k = e.getKey();
+            if (!all && k.minute() >= before) continue;
+            it.remove();
+            Cell c = e.getValue();
+            RequestStat r = new RequestStat();
+            r.setBucketStart(minuteStart(k.minute()));
+            r.setRoute(k.route());
+            r.setStatus(k.status());
+            r.setCnt(c.count.sum());
+            r.setSumMs(c.sumMs.sum());
+            r.setMaxMs(c.maxMs.get());
+            r.setHist(c.histogram().encode());
+            rows.add(r);
+        }
+        int written = 0;
+        for (int i = 0; i < rows.size(); i += INSERT_BATCH) {
+            List<RequestStat> batch = rows.subList(i, Math.min(rows.size(), i + INSERT_BATCH));
+            try {
+                mapper.insertBatch(batch);
+                written += batch.size();
+            } catch (Exception e) {
+                log.warn("[RequestStats] flush {} rows failed: {}", batch.size(), e.getMessage());
+            }
+        }
+        long d = dropped.sumThenReset();
+        if (d > 0) {
+            log.warn("[RequestStats] {} requests not aggregated: more than {} pending keys", d, props.getRequestStatsMaxKeys());
+        }
+        return written;
+    }
+
+    /** 应用关闭时写出全部内存分钟。 */
+    @PreDestroy
+    public void shutdown() {
+        flush(true);
+    }
+
+    /** 单次查询允许的最大窗口（天，至少 1）。 */
+    public int maxQueryDays() {
+        return Math.max(1, props.getRequestStatsMaxQueryDays());
+    }
+
+    /**
+     * 按时间窗口查询各路由的请求数与耗时分位数。
+     * 参数：
+     * - from / to：时间窗口 [from, to)，按分钟对齐（from 向下取整，to 向上取整）；
+     * - route：可选，路由模板模糊匹配；
+     * - status：可选，精确状态码；
+     * - limit：按请求数倒序返回的最大路由数。
+     * 返回：
+     * - 每个路由一项：route、count、errors（5xx）、statusCounts、avgMs、p50Ms、p90Ms、p95Ms、p99Ms、maxMs；
+     *   分位数为直方图桶上界，相对误差不超过 12.5%。
+     * 说明：
+     * - 汇总行经游标逐行合并进各路由的累计直方图，内存占用只与路由数相关，与窗口长度无关；
+     *   窗口上限另由调用方按 logdb.request-stats-max-query-days 校验。
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> query(LocalDateTime from, LocalDateTime to, String route, Integer status, int limit) {
+        LocalDateTime f = from.truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime t = to.truncatedTo(ChronoUnit.MINUTES);
+        if (t.isBefore(to)) t = t.plusMinutes(1);
+        String routeLike = route == null || route.isBlank() ? null : route.trim();
+
+        Map<String, Totals> byRoute = new HashMap<>();
+        try (Cursor<RequestStat> cursor = mapper.selectRangeCursor(f, t, routeLike, status)) {
+            for (RequestStat r : cursor) {
+                byRoute.computeIfAbsent(r.getRoute(), k -> new Totals())
+                        .add((int) nz(r.getStatus()), nz(r.getCnt()), nz(r.getSumMs()), nz(r.getMaxMs()), LatencyHistogram.decode(r.getHist()));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取请求耗时汇总失败", e);
+        }
+        // 尚未落库的分钟
+        long fromMinute = toMinute(f);
+        long toMinute = toMinute(t);
+        for (Map.Entry<Key, Cell> e : cells.entrySet()) {
+            Key k = e.getKey();
+            if (k.minute() < fromMinute || k.minute() >= toMinute) continue;
+            if (routeLike != null && !k.route().contains(routeLike)) continue;
+            if (status != null && k.status() != status) continue;
+            Cell c = e.getValue();
+            byRoute.computeIfAbsent(k.route(), x -> new Totals())
+                    .add(k.status(), c.count.sum(), c.sumMs.sum(), c.maxMs.get(), c.histogram());
+        }
+
+        List<Map.Entry<String, Totals>> sorted = new ArrayList<>(byRoute.entrySet());
+        sorted.sort((a, b) -> Long.compare(b.getValue().count, a.getValue().count));
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Map.Entry<String, Totals> e : sorted) {
+            if (out.size() >= Math.max(1, limit)) break;
+            Totals s = e.getValue();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("route", e.getKey());
+            m.put("count", s.count);
+            m.put("errors", s.errors);
+            m.put("statusCounts", s.statusCounts);
+            m.put("avgMs", s.count == 0 ? 0 : Math.round((double) s.sumMs / s.count));
+            m.put("p50Ms", Math.min(s.hist.percentile(0.50), s.maxMs));
+            m.put("p90Ms", Math.min(s.hist.percentile(0.90), s.maxMs));
+            m.put("p95Ms", Math.min(s.hist.percentile(0.95), s.maxMs));
+            m.put("p99Ms", Math.min(s.hist.percentile(0.99), s.maxMs));
+            m.put("maxMs", s.maxMs);
+            out.add(m);
+        }
+        return out;
+    }
+
+    /** 注册未落库键数与累计丢弃数指标（yunbq.requeststats.*）。 */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("yunbq.requeststats.pending.keys", cells, Map::size)
+                .register(registry);
+        FunctionCounter.builder("yunbq.requeststats.dropped", droppedTotal, LongAdder::sum)
+                .register(registry);
+    }
+
+    /** 当前未落库的键数（观测用）。 */
+    public int pendingKeys() {
+        return cells.size();
+    }
+
+    private static String route(String method, String pattern) {
+        String r = (method == null ? "" : method) + " " + (pattern == null || pattern.isEmpty() ? UNMATCHED : pattern);
+        return r.length() > ROUTE_MAX_LEN ? r.substring(0, ROUTE_MAX_LEN) : r;
+    }
+
+    private static LocalDateTime minuteStart(long minute) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(minute * 60_000L), ZoneId.systemDefault());
+    }
+
+    private static long toMinute(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / 60_000L;
+    }
+
+    private static long nz(Number n) {
+        return n == null ? 0L : n.longValue();
+    }
+}
@@ -0,0 +1,144 @@
+package com.yunbq.backend.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.yunbq.backend.mapper.UserMapper;
+import com.yunbq.backend.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户公开资料缓存（UserProfileCache）
+ * 职责：
+ * - 缓存渲染列表所需的用户公开字段（用户名、昵称、头像、签名），供便签列表、消息列表等热点读路径共用；
+ * - 按页批量取：{@link #getAll} 一次返回整页作者/触发者资料，未命中的 ID 合并为一条 `id IN (...)` 查询。
+ *
+ * 一致性：
+ * - 账户接口（昵称/头像/签名/邮箱）与管理端用户更新、删除后调用 {@link #invalidate} 立即失效；
+ * - 多实例部署时其他实例依赖 TTL（cache.users.profile-ttl-seconds）收敛；
+ * - 只读取公开字段，密码哈希、邮箱、角色等不进入缓存。
+ */
+@Component
+public class UserProfileCache implements MeterBinder {
+
+    /** 用户公开资料 */
+    public record Profile(Long id, String username, String nickname, String avatarUrl, String signature) {
+        /** 展示名：优先昵称，昵称为空时回退用户名。 */
+        public String displayName() {
+            return (nickname != null && !nickname.isBlank()) ? nickname : username;
+        }
+    }
+
+    private final UserMapper userMapper;
+    // 便签列表含作者昵称/头像：资料变更时同时使列表 ETag 失效
+    private final ContentVersions versions;
+    private final LoadingCache<Long, Profile> cache;
+
+    public UserProfileCache(UserMapper userMapper,
+                            ContentVersions versions,
+                            @Value("${cache.users.profile-max-size:20000}") long maxSize,
+                            @Value("${cache.users.profile-ttl-seconds:600}") long ttlSeconds) {
+        this.userMapper = userMapper;
+        this.versions = versions;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(100, maxSize))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, ttlSeconds)))
+                .recordStats()
+                .build(new CacheLoader<Long, Profile>() {
+                    @Override
+                    public Profile load(Long id) {
+                        Map<Long, Profile> m = loadProfiles(Collections.singleton(id));
+                        return m.get(id);
+                    }
+
+                    @Override
+                    public Map<Long, Profile> loadAll(Set<? extends Long> ids) {
+                        return loadProfiles(ids);
+                    }
+                });
+    }
+
+    /** 注册缓存命中率等指标（cache.gets{cache=user_profiles} 等，由 Spring Boot 自动绑定 MeterBinder Bean）。 */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "user_profiles");
+    }
+
+    /**
+     * 获取单个用户资料。
+     * 返回：
+     * - 资料；userId 为 null 或用户不存在时返回 null（不存在的用户不缓存）。
+     */
+    public Profile get(Long userId) {
+        if (userId == null) return null;
+        return cache.get(userId);
+    }
+
+    /**
+     * 批量获取用户资料（忽略 null ID）。
+     * 返回：
+     * - userId → 资料；不存在的用户不在结果中。
+     */
+    public Map<Long, Profile> getAll(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) return Collections.emptyMap();
+        Set<Long> keys = new LinkedHashSet<>();
+        for (Long id : userIds) {
+            if (id != null) keys.add(id);
+        }
+        if (keys.isEmpty()) return Collections.emptyMap();
+        return cache.getAll(keys);
+    }
+
+    /** 用户资料变更（或删除）后失效对应条目。 */
+    public void invalidate(Long userId) {
+        if (userId == null) return;
+        cache.invalidate(userId);
+        versions.bump(ContentVersions.NOTES);
+    }
+
+    /**
+     * 在当前事务提交后失效对应条目；无事务时立即失效。
+     * 说明：若在提交前失效，并发请求可能在提交前重新加载并缓存旧资料。
+     */
+    public void invalidateAfterCommit(Long userId) {
+        if (userId == null) return;
+        versions.bump(ContentVersions.NOTES);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        } else {
+            cache.invalidate(userId);
+        }
+    }
+
+    private Map<Long, Profile> loadProfiles(Collection<? extends Long> ids) {
+        List<User> users = userMapper.selectList(new QueryWrapper<User>()
+                .select("id", "username", "nickname", "avatar_url", "signature")
+                .in("id", ids));
+        Map<Long, Profile> out = new HashMap<>(users.size() * 2);
+        for (User u : users) {
+            out.put(u.getId(), new Profile(u.getId(), u.getUsername(), u.getNickname(), u.getAvatarUrl(), u.getSignature()));
+        }
+        return out;
+    }
+}
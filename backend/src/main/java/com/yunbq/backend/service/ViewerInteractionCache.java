@@ -0,0 +1,113 @@
+package com.yunbq.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunbq.backend.mapper.NoteFavoriteMapper;
+import com.yunbq.backend.mapper.NoteLikeMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 按用户缓存“已点赞/已收藏的便签 ID 集合”（ViewerInteractionCache）
+ * 职责：
+ * - 登录用户翻页时，likedByMe/favoritedByMe 直接在内存中判断，不再每页查询点赞/收藏表；
+ * - 每个用户一份紧凑集合（{@link NoteIdSet}：稠密时位图、稀疏时有序数组），Caffeine 按估算字节数限容。
+ *
+ * 一致性：
+ * - 本实例内点赞/收藏变化后使该用户条目失效（事务提交后执行，避免并发加载到提交前的旧数据）；
+ * - 多实例部署时其他实例依赖 TTL（notes.viewer-cache.ttl-seconds）收敛；
+ * - 交互数超过 max-ids-per-user 的用户不缓存（记为溢出），回退到按页查询。
+ */
+@Component
+public class ViewerInteractionCache implements MeterBinder {
+
+    /** 单个用户的点赞/收藏集合 */
+    public record Interactions(NoteIdSet liked, NoteIdSet favorited) {
+        public boolean likes(Long noteId) { return liked.contains(noteId); }
+        public boolean favorites(Long noteId) { return favorited.contains(noteId); }
+    }
+
+    // 溢出占位：交互过多的用户缓存此值，避免每次都尝试加载
+    private static final Interactions OVERFLOW = new Interactions(NoteIdSet.EMPTY, NoteIdSet.EMPTY);
+
+    private final NoteLikeMapper likeMapper;
+    private final NoteFavoriteMapper favoriteMapper;
+    private final boolean enabled;
+    private final int maxIdsPerUser;
+    private final Cache<Long, Interactions> cache;
+
+    public ViewerInteractionCache(NoteLikeMapper likeMapper,
+                                  NoteFavoriteMapper favoriteMapper,
+                                  @Value("${notes.viewer-cache.enabled:true}") boolean enabled,
+                                  @Value("${notes.viewer-cache.max-bytes:67108864}") long maxBytes,
+                                  @Value("${notes.viewer-cache.ttl-seconds:600}") long ttlSeconds,
+                                  @Value("${notes.viewer-cache.max-ids-per-user:200000}") int maxIdsPerUser) {
+        this.likeMapper = likeMapper;
+        this.favoriteMapper = favoriteMapper;
+        this.enabled = enabled;
+        this.maxIdsPerUser = Math.max(1, maxIdsPerUser);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1024, maxBytes))
+                .weigher((Long uid, Interactions v) -> (int) Math.min(Integer.MAX_VALUE,
+                        v.liked().estimatedBytes() + v.favorited().estimatedBytes()))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, ttlSeconds)))
+                .recordStats()
+                .build();
+    }
+
+    /** 注册缓存命中率等指标（cache.gets{cache=viewer_interactions} 等，由 Spring Boot 自动绑定 MeterBinder Bean）。 */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "viewer_interactions");
+    }
+
+    /**
+     * 获取用户的点赞/收藏集合。
+     * 返回：
+     * - 集合；未启用、匿名或交互数超限时返回 null（调用方回退到数据库查询）。
+     */
+    public Interactions get(Long userId) {
+        if (!enabled || userId == null) return null;
+        Interactions v = cache.get(userId, this::load);
+        return v == OVERFLOW ? null : v;
+    }
+
+    /** 立即失效某用户的集合。 */
+    public void invalidate(Long userId) {
+        if (userId != null) cache.invalidate(userId);
+    }
+
+    /**
+     * 在当前事务提交后失效某用户的集合；无事务时立即失效。
+     * 说明：若在提交前失效，并发请求可能在提交前重新加载并缓存旧状态。
+     */
+    public void invalidateAfterCommit(Long userId) {
+        if (userId == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        } else {
+            cache.invalidate(userId);
+        }
+    }
+
+    private Interactions load(Long userId) {
+        List<Long> liked = likeMapper.selectNoteIdsByUser(userId, maxIdsPerUser + 1);
+        if (liked.size() > maxIdsPerUser) return OVERFLOW;
+        List<Long> favorited = favoriteMapper.selectNoteIdsByUser(userId, maxIdsPerUser + 1);
+        if (favorited.size() > maxIdsPerUser) return OVERFLOW;
+        return new Interactions(NoteIdSet.of(liked), NoteIdSet.of(favorited));
+    }
+}
@@ -0,0 +1,86 @@
+package com.yunbq.backend.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界无锁环形缓冲区（多生产者 / 多消费者）。
+ * 说明：
+ * - 采用按槽位序号（sequence）协调的数组环：入队/出队各自以 CAS 推进游标，不使用锁，满时 offer 立即返回 false；
+ * - 槽位序号的 volatile 写发布元素，volatile 读获取元素，保证跨线程可见性；
+ * - 容量向上取整为 2 的幂，size() 为近似值（并发下可能瞬时偏差），仅用于触发与统计。
+ */
+public final class BoundedRingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public BoundedRingBuffer(int capacity) {
+        int cap = 2;
+        while (cap < capacity && cap < (1 << 30)) cap <<= 1;
+        this.slots = new Object[cap];
+        this.sequences = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = cap - 1;
+    }
+
+    /** 入队；缓冲区已满时返回 false（不阻塞）。 */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        long pos = tail.get();
+        for (;;) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[idx] = e;
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /** 出队；缓冲区为空时返回 null。 */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = head.get();
+        for (;;) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = (E) slots[idx];
+                    slots[idx] = null;
+                    sequences.set(idx, pos + mask + 1);
+                    return e;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /** 当前元素个数（近似值）。 */
+    public int size() {
+        long n = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(n, slots.length));
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
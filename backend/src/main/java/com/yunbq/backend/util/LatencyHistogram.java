@@ -0,0 +1,109 @@
+package com.yunbq.backend.util;
+
+/**
+ * 耗时直方图（毫秒，对数-线性分桶，HDR 风格）
+ * 说明：
+ * - 0..15 ms 每毫秒一个桶；此后每个 2 的幂区间再均分 8 个子桶，相对误差不超过 12.5%；
+ * - 上限约 2^24 ms（约 4.6 小时），更大的值计入最后一个桶；共 {@link #BUCKETS} 个桶；
+ * - 桶布局固定，不同实例/分钟的直方图可直接逐桶相加，从而对任意时间窗口求分位数；
+ * - 持久化使用稀疏文本编码 {@code "桶号:次数,桶号:次数"}（{@link #encode} / {@link #decode}）；
+ * - 非线程安全：并发记录由调用方按桶号累加（见 RequestStatsAggregator），本类用于快照、合并与查询。
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR = 16;
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_EXP = 24;
+
+    /** 桶数量 */
+    public static final int BUCKETS = LINEAR + (MAX_EXP - 4 + 1) * SUB;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    /** 耗时（毫秒）对应的桶号。 */
+    public static int index(long ms) {
+        if (ms < LINEAR) return (int) Math.max(0, ms);
+        int e = 63 - Long.numberOfLeadingZeros(ms);
+        if (e > MAX_EXP) return BUCKETS - 1;
+        int sub = (int) ((ms >>> (e - SUB_BITS)) & (SUB - 1));
+        return LINEAR + (e - 4) * SUB + sub;
+    }
+
+    /** 桶的上界（含），用作分位数的保守估计值。 */
+    public static long upperBound(int idx) {
+        if (idx < LINEAR) return idx;
+        int e = 4 + (idx - LINEAR) / SUB;
+        int sub = (idx - LINEAR) % SUB;
+        long lower = (long) (SUB + sub) << (e - SUB_BITS);
+        return lower + (1L << (e - SUB_BITS)) - 1;
+    }
+
+    public void add(int idx, long n) {
+        if (n <= 0) return;
+        counts[idx] += n;
+        total += n;
+    }
+
+    public void record(long ms) {
+        add(index(ms), 1);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    /**
+     * 分位数（q ∈ [0, 1]）。
+     * 返回：
+     * - 命中桶的上界（毫秒）；无数据时返回 0。
+     */
+    public long percentile(double q) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(Math.min(1.0, Math.max(0.0, q)) * total);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /** 稀疏编码：仅输出非零桶。 */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] == 0) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(i).append(':').append(counts[i]);
+        }
+        return sb.toString();
+    }
+
+    /** 解析 {@link #encode} 的输出；越界或格式错误的项直接跳过。 */
+    public static LatencyHistogram decode(String s) {
+        LatencyHistogram h = new LatencyHistogram();
+        if (s == null || s.isEmpty()) return h;
+        for (String part : s.split(",")) {
+            int colon = part.indexOf(':');
+            if (colon <= 0) continue;
+            try {
+                int idx = Integer.parseInt(part.substring(0, colon).trim());
+                long n = Long.parseLong(part.substring(colon + 1).trim());
+                if (idx >= 0 && idx < BUCKETS) h.add(idx, n);
+            } catch (NumberFormatException ignored) {
+                // 跳过损坏的项
+            }
+        }
+        return h;
+    }
+}
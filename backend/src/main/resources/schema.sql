@@ -15,6 +15,9 @@ CREATE TABLE IF NOT EXISTS users (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 主表：拾言（原 notes 重命名为 shiyan）
+-- 全文索引须在关闭 InnoDB 默认停用词的会话中创建：ngram 分词下含停用词（如 a、i、in、is）的词元会被整体丢弃，
+-- 导致 MATCH 漏掉 LIKE 能命中的便签；索引注释 stopwords=off 供 DbMigrationRunner / NoteSearchSupport 识别
+SET SESSION innodb_ft_enable_stopword = 0;
 CREATE TABLE IF NOT EXISTS shiyan (
   id BIGINT PRIMARY KEY AUTO_INCREMENT,
   user_id BIGINT NOT NULL,
@@ -25,9 +28,18 @@ CREATE TABLE IF NOT EXISTS shiyan (
   is_public TINYINT(1) DEFAULT 0,
   created_at DATETIME NOT NULL,
   updated_at DATETIME NOT NULL,
+  -- 反范式计数：点赞/收藏数量，随点赞/收藏切换原子增减，由后台对账任务修复漂移
+  like_count BIGINT NOT NULL DEFAULT 0,
+  favorite_count BIGINT NOT NULL DEFAULT 0,
   INDEX idx_user (user_id),
+  -- 游标分页（updated_at DESC, id DESC）使用的复合索引：公开流与“我的”流各一条
+  INDEX idx_shiyan_public_updated (is_public, updated_at, id),
+  INDEX idx_shiyan_user_updated (user_id, updated_at, id),
+  -- 关键词检索：content/tags 全文索引（ngram 解析器支持中文分词）
+  FULLTEXT INDEX ft_shiyan_content_tags (content, tags) WITH PARSER ngram COMMENT 'stopwords=off',
   CONSTRAINT fk_shiyan_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+SET SESSION innodb_ft_enable_stopword = 1;
 
 -- 新增：点赞记录表，唯一用户对拾言的点赞
 CREATE TABLE IF NOT EXISTS note_likes (
@@ -38,6 +50,8 @@ CREATE TABLE IF NOT EXISTS note_likes (
   UNIQUE KEY uniq_note_user (note_id, user_id),
   INDEX idx_note (note_id),
   INDEX idx_user (user_id),
+  INDEX idx_likes_created (created_at),
+  INDEX idx_likes_user_created (user_id, created_at, id),
   CONSTRAINT fk_likes_note FOREIGN KEY (note_id) REFERENCES shiyan(id) ON DELETE CASCADE,
   CONSTRAINT fk_likes_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -51,10 +65,29 @@ CREATE TABLE IF NOT EXISTS note_favorites (
   UNIQUE KEY uniq_note_user_fav (note_id, user_id),
   INDEX idx_note_fav (note_id),
   INDEX idx_user_fav (user_id),
+  INDEX idx_fav_created (created_at),
+  INDEX idx_fav_user_created (user_id, created_at, id),
   CONSTRAINT fk_favorites_note FOREIGN KEY (note_id) REFERENCES shiyan(id) ON DELETE CASCADE,
   CONSTRAINT fk_favorites_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- 新增：热门拾言热度分表（由后台任务按点赞/收藏时间衰减加权定期重算）
+CREATE TABLE IF NOT EXISTS note_scores (
+  note_id BIGINT PRIMARY KEY,
+  score DOUBLE NOT NULL,
+  computed_at DATETIME NOT NULL,
+  INDEX idx_note_scores_score (score)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 新增：拾言标签索引表（shiyan.tags 的规范化拆分），用于按标签精确筛选与标签云统计
+CREATE TABLE IF NOT EXISTS note_tags (
+  note_id BIGINT NOT NULL,
+  tag VARCHAR(64) NOT NULL,
+  PRIMARY KEY (note_id, tag),
+  INDEX idx_note_tags_tag (tag, note_id),
+  CONSTRAINT fk_note_tags_note FOREIGN KEY (note_id) REFERENCES shiyan(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- 管理日志表
 CREATE TABLE IF NOT EXISTS audit_logs (
   id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -93,6 +126,20 @@ CREATE TABLE IF NOT EXISTS request_logs (
 
 -- 已在 CREATE TABLE 中包含 request_id 与其索引，无需条件 ALTER
 
+-- 请求耗时分钟汇总表：每个实例每分钟每路由模板每状态码一行，供 /api/admin/request-stats 按窗口求分位数
+CREATE TABLE IF NOT EXISTS request_stats (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  bucket_start DATETIME NOT NULL,        -- 所在分钟
+  route VARCHAR(192) NOT NULL,           -- 方法 + 路由模板，如 GET /api/notes/{id}
+  status INT NOT NULL,                   -- 响应状态码
+  cnt BIGINT NOT NULL,                   -- 请求数
+  sum_ms BIGINT NOT NULL,                -- 耗时合计（毫秒）
+  max_ms BIGINT NOT NULL,                -- 最大耗时（毫秒）
+  hist TEXT NOT NULL,                    -- 耗时直方图（LatencyHistogram 稀疏编码）
+  INDEX idx_request_stats_bucket (bucket_start),
+  INDEX idx_request_stats_route (route, bucket_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- 认证日志表：记录登录或令牌校验的成功/失败事件
 CREATE TABLE IF NOT EXISTS auth_logs (
   id BIGINT PRIMARY KEY AUTO_INCREMENT,
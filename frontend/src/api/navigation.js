@@ -98,7 +98,7 @@ export function searchByTags(tags, limit = 10) {
 /**
  * 增加站点点击次数
  * @param {number} id 站点ID
- * @returns {Promise} 返回更新后的站点信息
+ * @returns {Promise} 返回 { id, accepted }（点击由后台批量计入，热门排序按间隔刷新）；站点不存在或未启用时 404
  */
 export function incrementClickCount(id) {
   // 增加点击次数